@@ -0,0 +1,31 @@
+package edu.neumont.rehm.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every Pong benchmark and writes the results as JSON, so runs before and after an engine
+ * change can be compared.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * The entry point.
+     *
+     * @param args optional output file (default jmh-result.json) and benchmark name pattern (default all)
+     * @throws RunnerException if JMH fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "jmh-result.json";
+        String include = args.length > 1 ? args[1] : "edu\\.neumont\\.rehm\\..*";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
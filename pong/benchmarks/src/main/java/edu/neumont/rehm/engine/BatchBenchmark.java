@@ -0,0 +1,86 @@
+package edu.neumont.rehm.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bot-vs-bot lane-ticks per second: the batch kernel against the same number of PongEngines.
+ * Each invocation runs 100 ticks of every game; finished games are restarted outside the count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int TICKS = 100, LANES = 1024;
+
+    private BatchEngine batch;
+    private PongEngine[] engines;
+    private long seed = 0;
+
+    @Setup
+    public void setup() {
+        batch = new BatchEngine(LANES, 5);
+        engines = new PongEngine[LANES];
+        for(int i = 0; i < LANES; i++) {
+            batch.reset(i, seed, true, true);
+            engines[i] = newEngine(seed++);
+        }
+    }
+
+    private static PongEngine newEngine(long seed) {
+        PongEngine engine = new PongEngine(5, new Random(seed));
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        return engine;
+    }
+
+    /**
+     * Operations are lane-ticks; the score is lane-ticks per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TICKS * LANES)
+    public BatchEngine batch() {
+        batch.step(TICKS);
+        for(int i = 0; i < LANES; i++) {
+            if(batch.isDone(i)) {
+                batch.reset(i, seed++, true, true);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * The same work one PongEngine at a time.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TICKS * LANES)
+    public PongEngine[] engines() {
+        for(int i = 0; i < LANES; i++) {
+            PongEngine engine = engines[i];
+            for(int k = 0; k < TICKS; k++) {
+                engine.tick();
+            }
+            if(engine.isMatchOver()) {
+                engines[i] = newEngine(seed++);
+            }
+        }
+        return engines;
+    }
+}
@@ -0,0 +1,99 @@
+package edu.neumont.rehm.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of one engine tick and of its collision and bot phases.
+ * Lives in the engine package so it can drive the package-private phases directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private PongEngine match, collision, bot;
+    private double steep = 1;
+
+    @Setup
+    public void setup() {
+        match = new PongEngine(5, new Random(42));
+        match.toggleSmartBot();
+        match.toggleDumbBot();
+        match.resetGame();
+
+        collision = new PongEngine(5, new Random(42));
+        collision.resetGame();
+        collision.setPaddles(265, 265);
+
+        bot = new PongEngine(5, new Random(42));
+        bot.toggleSmartBot();
+        bot.resetGame();
+    }
+
+    /**
+     * One full tick of a bot-vs-bot match (movement, collision, scoring, bots).
+     */
+    @Benchmark
+    public PongEngine tick() {
+        match.tick();
+        if(match.isMatchOver()) {
+            match.resetGame();
+        }
+        return match;
+    }
+
+    /**
+     * The ball about to hit the right paddle face this step.
+     */
+    @Benchmark
+    public double collisionPaddleZone() {
+        collision.setBall(745, 290, 12, 1.5);
+        collision.collisionCheck();
+        return collision.getBallX();
+    }
+
+    /**
+     * The ball in the middle of the board, nothing to hit.
+     */
+    @Benchmark
+    public double collisionOpenField() {
+        collision.setBall(400, 290, 12, 1.5);
+        collision.collisionCheck();
+        return collision.getBallX();
+    }
+
+    /**
+     * Re-predicting the intercept for a ball that bounces off the walls many times before it arrives.
+     */
+    @Benchmark
+    public double botPredictSteep() {
+        steep = -steep;
+        bot.setBall(700, 300, -1.5, 60 * steep);
+        bot.bot();
+        return bot.getBotY();
+    }
+
+    /**
+     * A bot tick while the path is unchanged and the prediction is cached.
+     */
+    @Benchmark
+    public double botCached() {
+        bot.bot();
+        return bot.getBotY();
+    }
+}
@@ -0,0 +1,77 @@
+package edu.neumont.rehm.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bot-vs-bot tick on the fixed-point engine against the double one, and the cost of the
+ * per-tick state hash on top.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    private PongEngine engine;
+    private FixedPointEngine fixed;
+
+    @Setup
+    public void setup() {
+        engine = new PongEngine(5, new Random(42));
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+
+        fixed = new FixedPointEngine(5, new RewindableRandom(42));
+        fixed.toggleSmartBot();
+        fixed.toggleDumbBot();
+        fixed.resetGame();
+    }
+
+    /**
+     * A tick with doubles, as {@link EngineBenchmark#tick()}.
+     */
+    @Benchmark
+    public PongEngine tickDouble() {
+        engine.tick();
+        if(engine.isMatchOver()) {
+            engine.resetGame();
+        }
+        return engine;
+    }
+
+    /**
+     * The same tick in fixed point.
+     */
+    @Benchmark
+    public FixedPointEngine tickFixed() {
+        fixed.tick();
+        if(fixed.isMatchOver()) {
+            fixed.resetGame();
+        }
+        return fixed;
+    }
+
+    /**
+     * A fixed-point tick and its state hash, as a lockstep check would run it.
+     */
+    @Benchmark
+    public long tickFixedHashed() {
+        tickFixed();
+        return fixed.stateHash();
+    }
+}
@@ -0,0 +1,91 @@
+package edu.neumont.rehm.render;
+
+import edu.neumont.rehm.engine.BatchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arena mode frame time against the match count on a 1600x900 framebuffer: the matches drawn in
+ * one pass, and a whole frame (a 60 Hz frame's worth of ticks, then the draw). Each tile drawn
+ * with BoardPainter.drawGame through a ScaledSurface is the baseline the shared images and
+ * batched fills are measured against.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+    @Param({"64", "256", "1024"})
+    private int matches;
+
+    private BatchEngine batch;
+    private ArenaPainter arena;
+    private BoardPainter painter;
+    private RasterSurface surface;
+    private ScaledSurface tile;
+    private int columns, pitchX, pitchY;
+    private long seed = 1;
+
+    @Setup
+    public void setup() {
+        batch = new BatchEngine(matches, 5);
+        for(int i = 0; i < matches; i++) {
+            batch.reset(i, seed++, true, true);
+        }
+        batch.step(2000);
+        arena = new ArenaPainter(1600, 900, matches);
+        painter = new BoardPainter();
+        surface = new RasterSurface(1600, 900);
+        tile = new ScaledSurface(surface, arena.getScale());
+        columns = arena.getColumns();
+        pitchX = (int) Math.ceil(800 * arena.getScale());
+        pitchY = (int) Math.ceil(600 * arena.getScale());
+    }
+
+    @Benchmark
+    public int[] draw() {
+        return arena.draw(batch).getPixels();
+    }
+
+    @Benchmark
+    public int[] frame() {
+        batch.step(3);
+        for(int i = 0; i < matches; i++) {
+            if(batch.isDone(i)) {
+                batch.reset(i, seed++, true, true);
+            }
+        }
+        return arena.draw(batch).getPixels();
+    }
+
+    /**
+     * Every tile drawn whole, board and net and all, one rect at a time.
+     */
+    @Benchmark
+    public int[] drawTileByTile() {
+        for(int i = 0; i < matches; i++) {
+            tile.setOrigin((i % columns) * pitchX, (i / columns) * pitchY);
+            painter.resetBoard(tile);
+            painter.drawScore(tile, batch.getPlayerLScore(i), batch.getPlayerRScore(i));
+            painter.drawSplit(tile);
+            painter.drawBall(tile, batch.getBallX(i), batch.getBallY(i), batch.getBallW(), batch.getBallH());
+            painter.drawPaddle(tile, batch.getPadLX(), batch.getPadLY(i), batch.getPadW(), batch.getPadH());
+            painter.drawPaddle(tile, batch.getPadRX(), batch.getPadRY(i), batch.getPadW(), batch.getPadH());
+        }
+        return surface.getPixels();
+    }
+}
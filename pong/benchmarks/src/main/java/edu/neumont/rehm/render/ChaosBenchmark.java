@@ -0,0 +1,77 @@
+package edu.neumont.rehm.render;
+
+import edu.neumont.rehm.engine.ChaosEngine;
+import edu.neumont.rehm.engine.PongEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chaos mode tick and frame time against the ball count. A frame is a tick plus the whole board
+ * drawn onto a RasterSurface, the balls in one batched pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChaosBenchmark {
+
+    @Param({"100", "1000", "10000", "30000"})
+    private int balls;
+
+    private ChaosEngine chaos;
+    private BoardPainter painter;
+    private RasterSurface surface;
+
+    @Setup
+    public void setup() {
+        chaos = new ChaosEngine(balls, 5, new Random(1));
+        painter = new BoardPainter();
+        surface = new RasterSurface((int) PongEngine.WIDTH, (int) PongEngine.HEIGHT);
+    }
+
+    @Benchmark
+    public ChaosEngine tick() {
+        chaos.tick();
+        return chaos;
+    }
+
+    @Benchmark
+    public int[] frame() {
+        chaos.tick();
+        painter.drawChaos(surface, chaos);
+        return surface.getPixels();
+    }
+
+    /**
+     * The balls alone, one fillRect at a time, to compare with the batched pass.
+     */
+    @Benchmark
+    public int[] ballsOneByOne() {
+        double[] xs = chaos.getXs(), ys = chaos.getYs();
+        surface.setFill(BoardPainter.GAME_COLOR);
+        for(int i = 0; i < chaos.getCount(); i++) {
+            surface.fillRect(xs[i], ys[i], chaos.getSize(), chaos.getSize());
+        }
+        return surface.getPixels();
+    }
+
+    @Benchmark
+    public int[] ballsBatched() {
+        painter.drawBalls(surface, chaos.getXs(), chaos.getYs(), chaos.getCount(), chaos.getSize());
+        return surface.getPixels();
+    }
+}
@@ -0,0 +1,79 @@
+package edu.neumont.rehm.render;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of splitting and drawing the score, onto a surface that only records what it is asked to fill.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreRenderBenchmark {
+
+    private BoardPainter painter;
+    private RecordingSurface surface;
+    private int score = 0;
+
+    @Setup
+    public void setup() {
+        painter = new BoardPainter();
+        surface = new RecordingSurface();
+    }
+
+    @Benchmark
+    public int[] splitInts() {
+        score = (score + 1) % 12;
+        return painter.splitInts(score);
+    }
+
+    @Benchmark
+    public double drawNumber() {
+        score = (score + 1) % 10;
+        painter.drawNumber(surface, 100, 20, score);
+        return surface.checksum;
+    }
+
+    /**
+     * Both scores, including a two-digit one, drawn rect by rect.
+     */
+    @Benchmark
+    public double drawScore() {
+        score = (score + 1) % 12;
+        painter.drawScore(surface, score, 11 - score);
+        return surface.checksum;
+    }
+
+    /**
+     * Keeps a running sum of everything drawn so the work can't be optimized away.
+     */
+    static class RecordingSurface implements Surface {
+        private int fill;
+        private long fills;
+        private double checksum;
+
+        @Override
+        public void setFill(int argb) {
+            fill = argb;
+        }
+
+        @Override
+        public void fillRect(double x, double y, double w, double h) {
+            fills++;
+            checksum += x + y * 3 + w * 5 + h * 7 + fill;
+        }
+    }
+}
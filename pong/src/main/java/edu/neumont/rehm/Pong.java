@@ -1,35 +1,67 @@
-package edu.neumont.rehm;
-
-import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
-
-import edu.neumont.rehm.view.PongView;
-
-import java.net.URL;
-
-/**
- * The Main class for Pong
- */
-public class Pong extends Application {
-
-    /**
-     * The entry point of application.
-     *
-     * @param args the input arguments
-     */
-    public static void main(String[] args) {
-        Application.launch(Pong.class, args);
-    }
-
-    public void start(Stage stage) throws Exception {
-        URL location = this.getClass().getClassLoader().getResource("PongView.fxml");
-        FXMLLoader loader = new FXMLLoader(location);
-        Parent root = loader.load();
-        PongView view = loader.getController();
-        view.init(stage);
-        stage.setScene(new Scene(root));
-    }
-}
+package edu.neumont.rehm;
+
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.Startup;
+import edu.neumont.rehm.view.ArenaView;
+import edu.neumont.rehm.view.PongView;
+
+import java.net.URL;
+
+/**
+ * The Main class for Pong
+ */
+public class Pong extends Application {
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     */
+    public static void main(String[] args) {
+        Startup.markMain();
+        Application.launch(Pong.class, args);
+    }
+
+    /**
+     * Build the scene and hand the stage to the view. The scene is a canvas in a StackPane, built in code;
+     * -Dpong.fxml=true loads it from PongView.fxml instead, for editing the layout. -Dpong.arena=&lt;matches&gt;
+     * shows a grid of bot matches instead of a game, on a canvas of -Dpong.arenaSize=&lt;width&gt;x&lt;height&gt; (default 1600x900).
+     *
+     * @param stage the stage
+     * @throws Exception if the FXML can't be loaded
+     */
+    public void start(Stage stage) throws Exception {
+        Startup.markStage();
+        Parent root;
+        int matches = Integer.getInteger("pong.arena", 0);
+        if(matches > 0) {
+            String[] size = System.getProperty("pong.arenaSize", "1600x900").split("x");
+            ArenaView arena = new ArenaView(matches);
+            arena.canvas = new Canvas(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+            stage.setScene(new Scene(new StackPane(arena.canvas)));
+            arena.init(stage);
+            return;
+        }
+        PongView view;
+        if(Boolean.getBoolean("pong.fxml")) {
+            URL location = this.getClass().getClassLoader().getResource("PongView.fxml");
+            FXMLLoader loader = new FXMLLoader(location);
+            root = loader.load();
+            view = loader.getController();
+        } else {
+            view = new PongView();
+            view.canvas = new Canvas(PongEngine.WIDTH, PongEngine.HEIGHT);
+            root = new StackPane(view.canvas);
+        }
+        stage.setScene(new Scene(root));
+        view.init(stage);
+    }
+}
@@ -0,0 +1,515 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Many games stepped together, for mass simulation. Each game (lane) keeps the same state as a
+ * {@link PongEngine}, but in one primitive array per field, and {@link #step(int)} advances every
+ * lane in one call. The arithmetic is done in the same order as PongEngine, so a lane comes out
+ * bit-for-bit the same as a PongEngine given the same seed and inputs.
+ * <p>
+ * A lane stops stepping once its match is over (PongEngine would drop into lobby mode) until it is reset.
+ * There is no pause, lobby or listener.
+ */
+public class BatchEngine {
+
+    private static final double WIDTH = PongEngine.WIDTH, HEIGHT = PongEngine.HEIGHT;
+    private static final double INF = Double.POSITIVE_INFINITY;
+    private static final int MAX_BOUNCES = 16; // per tick; the rest of the tick is dropped after that, as in PongEngine
+    private static final int MAX_SPEED_UP = 32; // ballV never goes past this many serve speeds
+    private static final int NONE = 0, CEILING = 1, FLOOR = 2, LEFT_FACE = 3, RIGHT_FACE = 4, PADDLE_EDGE = 5; // collision targets
+    private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1; // java.util.Random's generator
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    // the same constants PongEngine derives, computed the same way
+    private final double buffer = 20;
+    private final double rateScale, padSpd, ballSpd, vAdd, maxBallV;
+    private final int kickoffTicks;
+    private final double padW = 14, padH = padW * 5;
+    private final double padLX = buffer, padRX = WIDTH-buffer-padW;
+    private final double ballW = padW * 0.9, ballH = ballW;
+    private final double botX = padLX + padW;
+    private double botSpd, botRange = padH/2 * 0.80, deadZone = 0.3;
+
+    private final int size;
+    private final double[] ballX, ballY, ballXV, ballYV, ballV, vDir;
+    private final double[] padLY, padRY, padLYV, padRYV;
+    private final double[] ballXC, ballYC, padLC, padRC;
+    private final double[] botY, oldBotY, botArrival, oldBotArrival;
+    private final int[] counter, scoreL, scoreR;
+    private final long[] ticks, random;
+    private final boolean[] predictionValid, done, botLeft, botRight;
+
+    /**
+     * Instantiates a batch; every lane starts finished until it is reset.
+     *
+     * @param size     the number of lanes
+     * @param rateInMs the length of one tick
+     */
+    public BatchEngine(int size, int rateInMs) {
+        this.size = size;
+        rateScale = rateInMs / 5.0;
+        kickoffTicks = Math.max(1, 500 / rateInMs);
+        padSpd = 0.6 * rateInMs;
+        ballSpd = padSpd / 2;
+        vAdd = padSpd / 10;
+        maxBallV = ballSpd * MAX_SPEED_UP;
+        botSpd = padSpd * 0.8;
+        ballX = new double[size];
+        ballY = new double[size];
+        ballXV = new double[size];
+        ballYV = new double[size];
+        ballV = new double[size];
+        vDir = new double[size];
+        padLY = new double[size];
+        padRY = new double[size];
+        padLYV = new double[size];
+        padRYV = new double[size];
+        ballXC = new double[size];
+        ballYC = new double[size];
+        padLC = new double[size];
+        padRC = new double[size];
+        botY = new double[size];
+        oldBotY = new double[size];
+        botArrival = new double[size];
+        oldBotArrival = new double[size];
+        counter = new int[size];
+        scoreL = new int[size];
+        scoreR = new int[size];
+        ticks = new long[size];
+        random = new long[size];
+        predictionValid = new boolean[size];
+        done = new boolean[size];
+        botLeft = new boolean[size];
+        botRight = new boolean[size];
+        Arrays.fill(done, true);
+    }
+
+    /**
+     * Start a new match in a lane, as a PongEngine built with {@code new Random(seed)}, given
+     * the same bots and then {@link PongEngine#resetGame()}.
+     *
+     * @param lane     the lane
+     * @param seed     the seed
+     * @param smartBot whether the smart bot has the left paddle
+     * @param dumbBot  whether the dumb bot has the right paddle
+     */
+    public void reset(int lane, long seed, boolean smartBot, boolean dumbBot) {
+        random[lane] = (seed ^ MULTIPLIER) & MASK;
+        vDir[lane] = next(lane, 1) != 0 ? 1 : -1;
+        resetBall(lane);
+        padLY[lane] = (HEIGHT/2) - (padH/2);
+        padRY[lane] = padLY[lane];
+        padLYV[lane] = 0;
+        padRYV[lane] = 0;
+        ballYC[lane] = ballY[lane] + ballH/2;
+        ballXC[lane] = ballX[lane] + ballW/2;
+        padLC[lane] = padLY[lane] + padH/2;
+        padRC[lane] = padRY[lane] + padH/2;
+        botY[lane] = ballYC[lane];
+        oldBotY[lane] = ballYC[lane];
+        botArrival[lane] = 0;
+        oldBotArrival[lane] = 0;
+        ticks[lane] = 0;
+        scoreL[lane] = 0;
+        scoreR[lane] = 0;
+        botLeft[lane] = smartBot;
+        botRight[lane] = dumbBot;
+        done[lane] = false;
+    }
+
+    private void resetBall(int i) {
+        counter[i] = 0;
+        ballX[i] = WIDTH/2 - ballW/2;
+        ballY[i] = HEIGHT/2 - ballH/2;
+        ballXV[i] = 0;
+        ballYV[i] = 0;
+        ballV[i] = ballSpd;
+        predictionValid[i] = false;
+    }
+
+    private int next(int i, int bits) {
+        random[i] = (random[i] * MULTIPLIER + ADDEND) & MASK;
+        return (int) (random[i] >>> (48 - bits));
+    }
+
+
+    /**
+     * Advance every unfinished lane by one tick.
+     */
+    public void step() {
+        step(1);
+    }
+
+    /**
+     * Advance every unfinished lane by a number of ticks.
+     *
+     * @param n the ticks
+     */
+    public void step(int n) {
+        for(int i = 0; i < size; i++) {
+            if(!done[i]) {
+                run(i, n);
+            }
+        }
+    }
+
+    /**
+     * Run one lane for up to n ticks: PongEngine's tick (outside lobby mode) with the lane's columns
+     * held in locals. Keeping a lane for several ticks keeps its state in registers and its
+     * branches predictable; going lane by lane within each tick loses both.
+     */
+    private void run(int i, int n) {
+        double ballX = this.ballX[i], ballY = this.ballY[i], ballXV = this.ballXV[i], ballYV = this.ballYV[i], ballV = this.ballV[i];
+        double padLY = this.padLY[i], padRY = this.padRY[i], padLYV = this.padLYV[i], padRYV = this.padRYV[i];
+        double ballYC = this.ballYC[i], ballXC = this.ballXC[i], padLC = this.padLC[i], padRC = this.padRC[i];
+        double botY = this.botY[i], oldBotY = this.oldBotY[i], botArrival = this.botArrival[i], oldBotArrival = this.oldBotArrival[i];
+        double vDir = this.vDir[i];
+        int counter = this.counter[i], scoreL = this.scoreL[i], scoreR = this.scoreR[i];
+        long ticks = this.ticks[i], random = this.random[i];
+        boolean predictionValid = this.predictionValid[i], botLeft = this.botLeft[i], botRight = this.botRight[i], done = false;
+        final double lLeft = padLX - ballW, lRight = padLX + padW, rLeft = padRX - ballW, rRight = padRX + padW; // ballX overlapping each paddle
+
+        for(int k = 0; k < n && !done; k++) {
+            counter++;
+            ticks++;
+
+            // movement
+            padRY += padRYV;
+            padLY += padLYV;
+            padRY = (padRY < 0)? 0 : padRY; // right paddle ceiling
+            padRY = (padRY + padH > HEIGHT)? HEIGHT - padH : padRY; // right paddle floor
+            padLY = (padLY < 0)? 0 : padLY; // left paddle ceiling
+            padLY = (padLY + padH > HEIGHT)? HEIGHT - padH : padLY; // left paddle floor
+
+            // swept collision
+            double remaining = 1; // fraction of the tick left to travel
+            for(int bounce = 0; bounce < MAX_BOUNCES && remaining > 0; bounce++) {
+                // ceiling or floor, whichever the ball is heading for; already past it counts as hitting it now
+                double tw = ballYV < 0 ? Math.max(0, -ballY / ballYV) : ballYV > 0 ? Math.max(0, (HEIGHT - ballH - ballY) / ballYV) : INF;
+                boolean wall = tw < remaining;
+                double t = wall ? tw : remaining;
+                int hit = wall ? (ballYV < 0 ? CEILING : FLOOR) : NONE;
+
+                // only sweep a paddle the ball could reach this step; the 1px margin keeps rounding out of it
+                double reach = Math.abs(ballXV) * t + 1;
+                if(ballX - reach <= lRight) {
+                    double top = padLY - ballH, bottom = padLY + padH, tp = t;
+                    boolean face = false;
+                    if(ballXV < 0 && ballX >= lRight) {
+                        double ti = (lRight - ballX) / ballXV;
+                        if(ti < tp && within(ballY + ballYV * ti, top, bottom)) { tp = ti; face = true; }
+                    }
+                    double te = ballYV > 0 && ballY <= top ? (top - ballY) / ballYV : ballYV < 0 && ballY >= bottom ? (bottom - ballY) / ballYV : INF;
+                    if(te < tp && within(ballX + ballXV * te, lLeft, lRight)) { tp = te; face = false; }
+                    if(tp < t) { t = tp; hit = face ? LEFT_FACE : PADDLE_EDGE; }
+                }
+                if(ballX + reach >= rLeft) {
+                    double top = padRY - ballH, bottom = padRY + padH, tp = t;
+                    boolean face = false;
+                    if(ballXV > 0 && ballX <= rLeft) {
+                        double ti = (rLeft - ballX) / ballXV;
+                        if(ti < tp && within(ballY + ballYV * ti, top, bottom)) { tp = ti; face = true; }
+                    }
+                    double te = ballYV > 0 && ballY <= top ? (top - ballY) / ballYV : ballYV < 0 && ballY >= bottom ? (bottom - ballY) / ballYV : INF;
+                    if(te < tp && within(ballX + ballXV * te, rLeft, rRight)) { tp = te; face = false; }
+                    if(tp < t) { t = tp; hit = face ? RIGHT_FACE : PADDLE_EDGE; }
+                }
+
+                ballX += ballXV * t;
+                ballY += ballYV * t;
+                remaining -= t;
+
+                if(hit == NONE) {
+                    break;
+                } else if(hit == CEILING || hit == FLOOR) {
+                    ballY = hit == CEILING ? 0 : HEIGHT - ballH;
+                    ballYV *= -1;
+                } else if(hit == PADDLE_EDGE) {
+                    ballYV *= -1;
+                    predictionValid = false;
+                } else { // a face: the farther from the paddle center, the steeper it leaves
+                    boolean left = hit == LEFT_FACE;
+                    double padY = left ? padLY : padRY, padYV = left ? padLYV : padRYV;
+                    ballX = left ? lRight : rLeft;
+                    double reflection = (ballY + ballH/2) - (padY + padH/2);
+                    ballXV = ballV * (left ? 1 : -1);
+                    ballYV = ((padYV != 0) ? reflection * 0.1 : reflection * 0.03) * rateScale;
+                    ballV = Math.min(maxBallV, ballV + vAdd);
+                    predictionValid = false;
+                }
+            }
+            ballYC = ballY + ballH/2;
+            ballXC = ballX + ballW/2;
+            padLC = padLY + padH/2;
+            padRC = padRY + padH/2;
+
+            // scoring
+            boolean leftScored = ballX >= WIDTH + buffer, rightScored = !leftScored && ballX + ballW <= 0 - buffer;
+            if(leftScored || rightScored) {
+                scoreL += leftScored ? 1 : 0;
+                scoreR += rightScored ? 1 : 0;
+                vDir = leftScored ? 1 : -1;
+                counter = 0;
+                ballX = WIDTH/2 - ballW/2;
+                ballY = HEIGHT/2 - ballH/2;
+                ballXV = 0;
+                ballYV = 0;
+                ballV = ballSpd;
+                predictionValid = false;
+            }
+            if(ballXV == 0 && ballYV == 0 && counter == kickoffTicks) { // kickoff, with java.util.Random's nextDouble
+                random = (random * MULTIPLIER + ADDEND) & MASK;
+                long high = random >>> (48 - 26);
+                random = (random * MULTIPLIER + ADDEND) & MASK;
+                long low = random >>> (48 - 27);
+                ballYV += ((high << 27) + low) * DOUBLE_UNIT * ballSpd * 2 - ballSpd;
+                ballXV = ballSpd * vDir;
+                predictionValid = false;
+            }
+            done = scoreL >= PongEngine.WIN_CONDITION || scoreR >= PongEngine.WIN_CONDITION;
+
+            // bots
+            if(!predictionValid) {
+                predictionValid = true;
+                double minY = ballH/2, maxY = HEIGHT - ballH/2; // the range of the ball's center
+                double t = Trajectory.timeTo(ballX, ballXV, botX);
+                if(t != INF) {
+                    botY = Trajectory.foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+                    botArrival = ticks + t;
+                }
+                t = Trajectory.timeTo(ballX + ballW, ballXV, padRX);
+                if(t != INF) {
+                    oldBotY = Trajectory.foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+                    oldBotArrival = ticks + t;
+                }
+            }
+            if(botRight) { // VERSION 1
+                padRYV = ballYC < padRC - padH * deadZone ? botSpd * -1 : ballYC > padRC + padH * deadZone ? botSpd : 0;
+            }
+            if(ballXV < 0 && botLeft) { // VERSION 2
+                double slack = (botArrival - ticks) - (Math.abs(botY - padLC) - botRange) / botSpd; // ticks to spare before it has to move
+                if(slack > 2 && padLYV == 0) {
+                    // plenty of time; wait
+                } else if(botY < (padLC - botRange)) {
+                    padLYV = botSpd * -1;
+                } else if(botY > (padLC + botRange)) {
+                    padLYV = botSpd;
+                } else if(botY > (padLC - botRange) && botY < (padLC + botRange)) {
+                    padLYV = (botArrival - ticks > 1)? 0 : ((botY < padLC)? botSpd : botSpd * -1); // hardmode flick
+                }
+            } else if(botLeft) {
+                padLYV = ballXV > 0 ? (ballYC < padLC - 5 ? botSpd * -1 : ballYC > padLC + 5 ? botSpd : 0) : 0;
+            }
+        }
+
+        this.ballX[i] = ballX;
+        this.ballY[i] = ballY;
+        this.ballXV[i] = ballXV;
+        this.ballYV[i] = ballYV;
+        this.ballV[i] = ballV;
+        this.padLY[i] = padLY;
+        this.padRY[i] = padRY;
+        this.padLYV[i] = padLYV;
+        this.padRYV[i] = padRYV;
+        this.ballYC[i] = ballYC;
+        this.ballXC[i] = ballXC;
+        this.padLC[i] = padLC;
+        this.padRC[i] = padRC;
+        this.botY[i] = botY;
+        this.oldBotY[i] = oldBotY;
+        this.botArrival[i] = botArrival;
+        this.oldBotArrival[i] = oldBotArrival;
+        this.vDir[i] = vDir;
+        this.counter[i] = counter;
+        this.scoreL[i] = scoreL;
+        this.scoreR[i] = scoreR;
+        this.ticks[i] = ticks;
+        this.random[i] = random;
+        this.predictionValid[i] = predictionValid;
+        this.done[i] = done;
+    }
+
+    private static boolean within(double v, double min, double max) {
+        return v >= min && v <= max;
+    }
+
+    /**
+     * Move a lane's left paddle; ignored while its smart bot controls it.
+     *
+     * @param lane      the lane
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveLeftPaddle(int lane, int direction) {
+        if(!botLeft[lane]) {
+            padLYV[lane] = padSpd * direction;
+        }
+    }
+
+    /**
+     * Move a lane's right paddle; ignored while its dumb bot controls it.
+     *
+     * @param lane      the lane
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveRightPaddle(int lane, int direction) {
+        if(!botRight[lane]) {
+            padRYV[lane] = padSpd * direction;
+        }
+    }
+
+    /**
+     * Retune every lane's bots; see {@link PongEngine#setBotTuning(double, double, double)}.
+     *
+     * @param speed    bot paddle speed as a fraction of a player's
+     * @param range    the smart bot's target range as a fraction of half a paddle
+     * @param deadZone the dumb bot's dead zone as a fraction of a paddle
+     */
+    public void setBotTuning(double speed, double range, double deadZone) {
+        botSpd = padSpd * speed;
+        botRange = padH/2 * range;
+        this.deadZone = deadZone;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getBallW() {
+        return ballW;
+    }
+
+    public double getBallH() {
+        return ballH;
+    }
+
+    public double getPadW() {
+        return padW;
+    }
+
+    public double getPadH() {
+        return padH;
+    }
+
+    public double getPadLX() {
+        return padLX;
+    }
+
+    public double getPadRX() {
+        return padRX;
+    }
+
+    public boolean isDone(int lane) {
+        return done[lane];
+    }
+
+    public int getPlayerLScore(int lane) {
+        return scoreL[lane];
+    }
+
+    public int getPlayerRScore(int lane) {
+        return scoreR[lane];
+    }
+
+    public double getBallX(int lane) {
+        return ballX[lane];
+    }
+
+    public double getBallY(int lane) {
+        return ballY[lane];
+    }
+
+    public double getBallXV(int lane) {
+        return ballXV[lane];
+    }
+
+    public double getBallYV(int lane) {
+        return ballYV[lane];
+    }
+
+    public double getPadLY(int lane) {
+        return padLY[lane];
+    }
+
+    public double getPadRY(int lane) {
+        return padRY[lane];
+    }
+
+    public double getPadLYV(int lane) {
+        return padLYV[lane];
+    }
+
+    public double getPadRYV(int lane) {
+        return padRYV[lane];
+    }
+
+    public long getTicks(int lane) {
+        return ticks[lane];
+    }
+
+    /**
+     * The entry point: checks a few lanes tick by tick against PongEngine, then measures throughput.
+     *
+     * @param args optional lane count (default 1024), ticks to run (default 20000) and seed
+     */
+    public static void main(String[] args) {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        int checked = Math.min(lanes, 32);
+        BatchEngine batch = new BatchEngine(checked, 5);
+        PongEngine[] engines = new PongEngine[checked];
+        for(int i = 0; i < checked; i++) {
+            batch.reset(i, seed + i, true, true);
+            engines[i] = new PongEngine(5, new Random(seed + i));
+            engines[i].toggleSmartBot();
+            engines[i].toggleDumbBot();
+            engines[i].resetGame();
+        }
+        long compared = 0, mismatches = 0;
+        for(boolean running = true; running; ) {
+            running = false;
+            batch.step();
+            for(int i = 0; i < checked; i++) {
+                if(engines[i].isMatchOver()) {
+                    continue;
+                }
+                engines[i].tick();
+                running = true;
+                compared++;
+                if(batch.getBallX(i) != engines[i].getBallX() || batch.getBallY(i) != engines[i].getBallY() ||
+                        batch.getPadLY(i) != engines[i].getPadLY() || batch.getPadRY(i) != engines[i].getPadRY() ||
+                        batch.getPlayerLScore(i) != engines[i].getPlayerLScore() || batch.getPlayerRScore(i) != engines[i].getPlayerRScore()) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("%d lane-ticks compared with PongEngine, %d mismatches%n", compared, mismatches);
+
+        batch = new BatchEngine(lanes, 5);
+        long next = seed;
+        for(int i = 0; i < lanes; i++) {
+            batch.reset(i, next++, true, true);
+        }
+        for(int round = 1; round <= 3; round++) { // the first round includes JIT warm-up
+            long laneTicks = 0, start = System.nanoTime();
+            for(int k = 0; k < steps; k += 1000) {
+                for(int i = 0; i < lanes; i++) {
+                    laneTicks -= batch.getTicks(i);
+                }
+                batch.step(1000);
+                for(int i = 0; i < lanes; i++) {
+                    laneTicks += batch.getTicks(i); // finished lanes stop early
+                    if(batch.isDone(i)) {
+                        batch.reset(i, next++, true, true);
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: %d lanes x %d ticks in %.3f s (%.1f million lane-ticks/s)%n",
+                    round, lanes, steps, seconds, laneTicks / seconds / 1e6);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Chaos mode: many balls on one board at once, bouncing off the walls, the paddles and each other.
+ * Every ball scores on its own when it gets past a paddle and is served again from the middle.
+ * Ball state is one primitive array per field. Ball-to-ball collisions use a uniform grid: each
+ * tick the balls are counting-sorted into cells at least a ball wide, so a ball only has to be tested
+ * against the balls in its own and the neighbouring cells and the cost grows with the ball count,
+ * not its square. The paddle and wall collisions are not swept the way {@link PongEngine}'s are;
+ * a chaos ball never moves more than a few pixels a tick.
+ */
+public class ChaosEngine {
+
+    private static final double WIDTH = PongEngine.WIDTH, HEIGHT = PongEngine.HEIGHT;
+    private static final double FILL = 0.2; // the share of the board the balls cover when the size is picked for the count
+
+    private final double buffer = 20; // 20
+    private final double rateScale, padSpd, ballSpd, botSpd;
+    private final double padW = 14, padH = padW * 5;
+    private final double padLX = buffer, padRX = WIDTH-buffer-padW;
+    private double padLY = HEIGHT/2 - padH/2, padRY = HEIGHT/2 - padH/2;
+    private double padLYV = 0, padRYV = 0;
+    private boolean botLeft = true, botRight = true;
+    private int playerLScore = 0, playerRScore = 0;
+    private long ticks = 0;
+
+    private final int count;
+    private final double size; // ball width and height
+    private final double[] x, y, xv, yv;
+    private final Random random;
+
+    // the grid, rebuilt every tick
+    private final double cell;
+    private final int cols, rows;
+    private final int[] cellStart, cellOf, order; // cellStart[c]..cellStart[c+1] index order[] for the balls in cell c
+    private long pairTests = 0, collisions = 0, lastCollisions = 0;
+
+    /**
+     * Instantiates a board of balls sized so they cover about a fifth of it, up to a normal ball's size.
+     *
+     * @param count    the number of balls
+     * @param rateInMs the length of one tick; speeds scale with it
+     * @param random   the source for the serve angles and starting positions
+     */
+    public ChaosEngine(int count, int rateInMs, Random random) {
+        this(count, sizeFor(count), rateInMs, random);
+    }
+
+    /**
+     * Instantiates a board of balls scattered over it, each heading in a random direction.
+     *
+     * @param count    the number of balls
+     * @param size     the ball width and height
+     * @param rateInMs the length of one tick; speeds scale with it
+     * @param random   the source for the serve angles and starting positions
+     */
+    public ChaosEngine(int count, double size, int rateInMs, Random random) {
+        this.count = count;
+        this.size = size;
+        this.random = random;
+        rateScale = rateInMs / 5.0;
+        padSpd = 0.6 * rateInMs;
+        ballSpd = padSpd / 2;
+        botSpd = padSpd * 0.8;
+        x = new double[count];
+        y = new double[count];
+        xv = new double[count];
+        yv = new double[count];
+
+        cell = Math.max(1, Math.ceil(size));
+        cols = (int) Math.ceil(WIDTH / cell);
+        rows = (int) Math.ceil(HEIGHT / cell);
+        cellStart = new int[cols * rows + 1];
+        cellOf = new int[count];
+        order = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            x[i] = padLX + padW + random.nextDouble() * (padRX - padLX - padW - size);
+            y[i] = random.nextDouble() * (HEIGHT - size);
+            aim(i, random.nextBoolean() ? 1 : -1);
+        }
+    }
+
+    /**
+     * The ball size {@link #ChaosEngine(int, int, Random)} picks for a ball count.
+     *
+     * @param count the number of balls
+     * @return the width and height, between 2 px and a normal ball's
+     */
+    public static double sizeFor(int count) {
+        return Math.max(2, Math.min(14 * 0.9, Math.sqrt(WIDTH * HEIGHT * FILL / Math.max(1, count))));
+    }
+
+    /**
+     * Send a ball off at a random angle of up to 45 degrees, at between one and two serve speeds.
+     */
+    private void aim(int i, int direction) {
+        double angle = (random.nextDouble() - 0.5) * Math.PI / 2, speed = ballSpd * (1 + random.nextDouble());
+        xv[i] = Math.cos(angle) * speed * direction;
+        yv[i] = Math.sin(angle) * speed;
+    }
+
+    /**
+     * Advance every ball and both paddles by one step.
+     */
+    public void tick() {
+        ticks++;
+        padLY = Math.max(0, Math.min(HEIGHT - padH, padLY + padLYV));
+        padRY = Math.max(0, Math.min(HEIGHT - padH, padRY + padRYV));
+        move();
+        collide();
+        bots();
+    }
+
+    /**
+     * Move every ball, bounce it off the ceiling, floor and paddle faces, and score the ones that got past a paddle.
+     */
+    private void move() {
+        double lFace = padLX + padW, rFace = padRX - size;
+        for(int i = 0; i < count; i++) {
+            double bx = x[i] + xv[i], by = y[i] + yv[i];
+            if(by < 0) {
+                by = -by;
+                yv[i] = -yv[i];
+            } else if(by > HEIGHT - size) {
+                by = 2 * (HEIGHT - size) - by;
+                yv[i] = -yv[i];
+            }
+            if(xv[i] < 0 && bx <= lFace && x[i] >= lFace - 1 && by + size >= padLY && by <= padLY + padH) {
+                bx = lFace;
+                returnBall(i, by, padLY, 1);
+            } else if(xv[i] > 0 && bx >= rFace && x[i] <= rFace + 1 && by + size >= padRY && by <= padRY + padH) {
+                bx = rFace;
+                returnBall(i, by, padRY, -1);
+            }
+            if(bx >= WIDTH + buffer) {
+                playerLScore++;
+                serve(i, 1);
+            } else if(bx + size <= 0 - buffer) {
+                playerRScore++;
+                serve(i, -1);
+            } else {
+                x[i] = bx;
+                y[i] = by;
+            }
+        }
+    }
+
+    /**
+     * Send a ball back off a paddle face at its own speed, steeper the farther from the paddle center it hit.
+     */
+    private void returnBall(int i, double by, double padY, int direction) {
+        double speed = Math.sqrt(xv[i] * xv[i] + yv[i] * yv[i]);
+        double reflection = (by + size/2) - (padY + padH/2); // -padH/2 to padH/2
+        double vy = yv[i] + reflection * 0.03 * rateScale, vx = Math.abs(xv[i]);
+        double scale = speed / Math.sqrt(vx * vx + vy * vy);
+        xv[i] = vx * scale * direction;
+        yv[i] = vy * scale;
+    }
+
+    private void serve(int i, int direction) {
+        x[i] = WIDTH/2 - size/2;
+        y[i] = random.nextDouble() * (HEIGHT - size);
+        aim(i, direction);
+    }
+
+    /**
+     * The broad phase sorts the balls into grid cells; the narrow phase tests each ball against the
+     * later balls in its cell and every ball in the four cells after it (right, and the row below),
+     * so each pair is tested once. Touching balls, as circles, push apart and trade the velocity along
+     * the line between their centers, as equal masses do.
+     */
+    private void collide() {
+        int cells = cols * rows;
+        Arrays.fill(cellStart, 0);
+        for(int i = 0; i < count; i++) {
+            int cx = Math.min(cols - 1, Math.max(0, (int) (x[i] / cell))), cy = Math.min(rows - 1, Math.max(0, (int) (y[i] / cell)));
+            int c = cy * cols + cx;
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+        for(int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        for(int i = 0; i < count; i++) { // cellStart[c] is the next free slot of cell c while filling, so it ends up at the next cell's start
+            order[cellStart[cellOf[i]]++] = i;
+        }
+        for(int c = cells; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+
+        lastCollisions = 0;
+        for(int cy = 0; cy < rows; cy++) {
+            for(int cx = 0; cx < cols; cx++) {
+                int c = cy * cols + cx;
+                for(int a = cellStart[c], end = cellStart[c + 1]; a < end; a++) {
+                    int i = order[a];
+                    for(int b = a + 1; b < end; b++) {
+                        test(i, order[b]);
+                    }
+                    if(cx + 1 < cols) {
+                        testCell(i, c + 1);
+                    }
+                    if(cy + 1 < rows) {
+                        if(cx > 0) {
+                            testCell(i, c + cols - 1);
+                        }
+                        testCell(i, c + cols);
+                        if(cx + 1 < cols) {
+                            testCell(i, c + cols + 1);
+                        }
+                    }
+                }
+            }
+        }
+        collisions += lastCollisions;
+    }
+
+    private void testCell(int i, int c) {
+        for(int b = cellStart[c], end = cellStart[c + 1]; b < end; b++) {
+            test(i, order[b]);
+        }
+    }
+
+    private void test(int i, int j) {
+        pairTests++;
+        double dx = x[j] - x[i], dy = y[j] - y[i];
+        double d2 = dx * dx + dy * dy;
+        if(d2 >= size * size || d2 == 0) {
+            return;
+        }
+        lastCollisions++;
+        double d = Math.sqrt(d2), nx = dx / d, ny = dy / d;
+        double push = (size - d) / 2;
+        x[i] -= nx * push;
+        y[i] -= ny * push;
+        x[j] += nx * push;
+        y[j] += ny * push;
+        y[i] = Math.max(0, Math.min(HEIGHT - size, y[i]));
+        y[j] = Math.max(0, Math.min(HEIGHT - size, y[j]));
+        double vn = (xv[j] - xv[i]) * nx + (yv[j] - yv[i]) * ny;
+        if(vn < 0) { // closing
+            xv[i] += vn * nx;
+            yv[i] += vn * ny;
+            xv[j] -= vn * nx;
+            yv[j] -= vn * ny;
+        }
+    }
+
+    /**
+     * Each bot follows the ball that will reach its paddle first.
+     */
+    private void bots() {
+        if(!botLeft && !botRight) {
+            return;
+        }
+        double lFace = padLX + padW, rFace = padRX - size;
+        double lTime = Double.POSITIVE_INFINITY, rTime = Double.POSITIVE_INFINITY, lTarget = padLY + padH/2, rTarget = padRY + padH/2;
+        for(int i = 0; i < count; i++) {
+            if(xv[i] < 0 && x[i] >= lFace) {
+                double t = (x[i] - lFace) / -xv[i];
+                if(t < lTime) { lTime = t; lTarget = y[i] + size/2; }
+            } else if(xv[i] > 0 && x[i] <= rFace) {
+                double t = (rFace - x[i]) / xv[i];
+                if(t < rTime) { rTime = t; rTarget = y[i] + size/2; }
+            }
+        }
+        if(botLeft) {
+            padLYV = follow(lTarget, padLY + padH/2);
+        }
+        if(botRight) {
+            padRYV = follow(rTarget, padRY + padH/2);
+        }
+    }
+
+    private double follow(double target, double center) {
+        return target < center - 5 ? botSpd * -1 : target > center + 5 ? botSpd : 0;
+    }
+
+    /**
+     * Apply one player input: paddle moves and bot toggles; everything else is ignored.
+     *
+     * @param command the command
+     */
+    public void apply(Command command) {
+        switch(command) {
+            case LEFT_UP:
+                moveLeftPaddle(-1);
+                break;
+            case LEFT_DOWN:
+                moveLeftPaddle(1);
+                break;
+            case LEFT_STOP:
+                moveLeftPaddle(0);
+                break;
+            case RIGHT_UP:
+                moveRightPaddle(-1);
+                break;
+            case RIGHT_DOWN:
+                moveRightPaddle(1);
+                break;
+            case RIGHT_STOP:
+                moveRightPaddle(0);
+                break;
+            case TOGGLE_SMART_BOT:
+                botLeft = !botLeft;
+                padLYV = 0;
+                break;
+            case TOGGLE_DUMB_BOT:
+                botRight = !botRight;
+                padRYV = 0;
+                break;
+            case SMART_BOT_OFF:
+                if(botLeft) {
+                    botLeft = false;
+                    padLYV = 0;
+                }
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Move the left paddle; ignored while its bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveLeftPaddle(int direction) {
+        if(!botLeft) {
+            padLYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * Move the right paddle; ignored while its bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveRightPaddle(int direction) {
+        if(!botRight) {
+            padRYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * The ball count, scores and how much work the broad phase saved.
+     *
+     * @return two lines
+     */
+    public String summary() {
+        return String.format("chaos %d balls  %.1f px  %d-%d%n%.2f tests/ball/tick  %d touching",
+                count, size, playerLScore, playerRScore, ticks == 0 ? 0 : pairTests / (double) ticks / count, lastCollisions);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    /**
+     * The ball x positions, one per ball. Live, not a copy.
+     *
+     * @return the array
+     */
+    public double[] getXs() {
+        return x;
+    }
+
+    /**
+     * The ball y positions, one per ball. Live, not a copy.
+     *
+     * @return the array
+     */
+    public double[] getYs() {
+        return y;
+    }
+
+    public double getPadLX() {
+        return padLX;
+    }
+
+    public double getPadRX() {
+        return padRX;
+    }
+
+    public double getPadLY() {
+        return padLY;
+    }
+
+    public double getPadRY() {
+        return padRY;
+    }
+
+    public double getPadW() {
+        return padW;
+    }
+
+    public double getPadH() {
+        return padH;
+    }
+
+    public int getPlayerLScore() {
+        return playerLScore;
+    }
+
+    public int getPlayerRScore() {
+        return playerRScore;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getPairTests() {
+        return pairTests;
+    }
+
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * The entry point: tick time against the ball count, 100, 300, 1000, 3000 and so on.
+     *
+     * @param args optional largest ball count (default 30000), ticks per count (default 1000) and seed
+     */
+    public static void main(String[] args) {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 30_000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        System.out.println("  balls    size   tick us  ns/ball  tests/ball  touching");
+        for(int balls = 100; balls <= max; balls = Integer.toString(balls).charAt(0) == '1' ? balls * 3 : balls / 3 * 10) {
+            ChaosEngine chaos = new ChaosEngine(balls, 5, new Random(seed));
+            for(int i = 0, warmup = Math.max(steps, 2_000_000 / balls); i < warmup; i++) { // JIT warm-up, and let the scattered start settle
+                chaos.tick();
+            }
+            long tests = chaos.getPairTests(), touching = chaos.getCollisions(), start = System.nanoTime();
+            for(int i = 0; i < steps; i++) {
+                chaos.tick();
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%7d %7.1f %9.1f %8.1f %11.2f %9.1f%n", balls, chaos.getSize(), nanos / 1e3 / steps, nanos / (double) steps / balls,
+                    (chaos.getPairTests() - tests) / (double) steps / balls, (chaos.getCollisions() - touching) / (double) steps);
+        }
+    }
+}
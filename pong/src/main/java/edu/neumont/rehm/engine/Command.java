@@ -0,0 +1,28 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * The player inputs the engine understands, applied between ticks with {@link PongEngine#apply(Command)}.
+ */
+public enum Command {
+    LEFT_UP,
+    LEFT_DOWN,
+    LEFT_STOP,
+    RIGHT_UP,
+    RIGHT_DOWN,
+    RIGHT_STOP,
+    START_OR_PAUSE,
+    RESET_GAME,
+    RESET_BALL,
+    TOGGLE_SMART_BOT,
+    TOGGLE_DUMB_BOT,
+    SMART_BOT_OFF; // takes the left paddle back from the smart bot, if it has it; for callers that can't see the engine's state
+
+    /**
+     * Whether this command changes a paddle's velocity.
+     *
+     * @return true for the up, down and stop commands
+     */
+    public boolean isPaddleMove() {
+        return ordinal() <= RIGHT_STOP.ordinal();
+    }
+}
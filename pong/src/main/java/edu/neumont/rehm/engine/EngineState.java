@@ -0,0 +1,30 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * A copy of everything a {@link PongEngine} changes while it runs, for rollback.
+ * Allocate these once and reuse them; saving and restoring only copies fields.
+ */
+public class EngineState {
+
+    int playerLScore, playerRScore, counter;
+    boolean pause, lobbyMode;
+    double padLY, padRY, padLYV, padRYV;
+    double ballX, ballY, ballXV, ballYV, ballV, vDir;
+    double prevBallX, prevBallY, prevPadLY, prevPadRY;
+    double ballXC, ballYC, padLC, padRC; // as last computed, which can lag a reset
+    double botX, botY, oldBotY, botArrival, oldBotArrival;
+    boolean predictionValid, botActive, oldBot;
+    long ticks, randomState;
+    long rallyStart;
+    int rallyHits;
+    double rallyMaxV;
+
+    /**
+     * The tick count the state was saved at.
+     *
+     * @return the engine's ticks since construction
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
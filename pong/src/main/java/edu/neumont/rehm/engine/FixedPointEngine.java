@@ -0,0 +1,745 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Random;
+
+/**
+ * The game rules of {@link PongEngine} in integer fixed point, for lockstep and replay checks that
+ * have to agree bit for bit on any JVM and CPU. Positions, velocities, times of impact and the bots'
+ * predictions are ints and longs in 1/65536 pixel (or tick) units, and no floating point is used
+ * while ticking; the random kickoff angle comes from {@link Random#nextInt(int)}, whose sequence is
+ * fixed by its spec. Doubles only appear converting tuning in and positions out, for drawing.
+ * <p>
+ * It plays the same game as PongEngine but rounds differently, so the two drift apart from the
+ * first paddle hit; compare fixed-point games with fixed-point games, using {@link #stateHash()}.
+ * The ball speed is capped at 32 times the serve speed (48 pixels a tick at 5 ms), which no rally
+ * gets near, so every value stays in range; see {@link #BOUNDS}.
+ */
+public class FixedPointEngine {
+
+    /**
+     * Fractional bits: one pixel (or one tick) is 65536 units.
+     */
+    public static final int SHIFT = 16;
+    /**
+     * One pixel, or one tick, in fixed point.
+     */
+    public static final int ONE = 1 << SHIFT;
+    /**
+     * The longest tick the engine accepts, in milliseconds; the bounds are worked out for it.
+     */
+    public static final int MAX_RATE_IN_MS = 50;
+    /**
+     * The largest magnitude any intermediate value can reach, at the capped ball speed and the
+     * longest tick: a long with plenty of room. Worked out with exact arithmetic when the class
+     * loads, which fails if any int field could overflow.
+     */
+    public static final long BOUNDS;
+
+    private static final int WIDTH = (int) PongEngine.WIDTH << SHIFT, HEIGHT = (int) PongEngine.HEIGHT << SHIFT;
+    private static final int MAX_BOUNCES = 16; // per tick; the rest of the tick is dropped after that, as in PongEngine
+    private static final int NONE = 0, CEILING = 1, FLOOR = 2, LEFT_WALL = 3, RIGHT_WALL = 4, LEFT_FACE = 5, RIGHT_FACE = 6, PADDLE_EDGE = 7; // collision targets
+    private static final long NEVER = Long.MAX_VALUE; // a time of arrival for a ball not heading there
+    private static final int MAX_SPEED_UP = 32; // ballV never goes past this many serve speeds
+
+    private static final int buffer = 20 << SHIFT;
+    private static final int padW = 14 << SHIFT, padH = padW * 5;
+    private static final int padLX = buffer, padRX = WIDTH - buffer - padW;
+    private static final int ballW = padW * 9 / 10, ballH = ballW;
+    private static final int botX = padLX + padW;
+
+    static {
+        BOUNDS = bounds();
+    }
+
+    private final int rateInMs, kickoffTicks;
+    private final int padSpd, ballSpd, vAdd, maxBallV; // padSpd = 0.6 px per ms of tick
+    private int botSpd, botRange, deadZone; // padSpd * 0.8, padH/2 * 0.8, padH * 0.3
+    private boolean sweptFace = false;
+
+    private int playerLScore = 0, playerRScore = 0, counter = 0;
+    private boolean pause = false, lobbyMode = true;
+    private int padLY = HEIGHT/2 - padH/2, padRY = HEIGHT/2 - padH/2, padLYV = 0, padRYV = 0;
+    private int ballX = WIDTH/2 - ballW/2, ballY = HEIGHT/2 - ballH/2, ballXV = 0, ballYV = 0, ballV = 0, vDir;
+    private int prevBallX = ballX, prevBallY = ballY, prevPadLY = padLY, prevPadRY = padRY; // for interpolation only
+    private int ballXC, ballYC, padLC, padRC;
+    private int botY = ballY + ballH/2, oldBotY = botY;
+    private long botArrival = 0, oldBotArrival = 0; // the tick, in fixed point, the ball reaches each paddle face
+    private boolean predictionValid = false, botActive = false, oldBot = false;
+    private long ticks = 0, rallyStart = 0;
+    private int rallyHits = 0, rallyMaxV = 0;
+
+    private final Random random;
+    private GameListener listener = GameListener.NONE;
+
+    /**
+     * Instantiates a new engine.
+     *
+     * @param rateInMs the length of one tick, 1 to {@link #MAX_RATE_IN_MS}; paddle and ball speeds scale with it
+     * @param random   the source for kickoff angles and serve direction
+     */
+    public FixedPointEngine(int rateInMs, Random random) {
+        if(rateInMs < 1 || rateInMs > MAX_RATE_IN_MS) {
+            throw new IllegalArgumentException("rateInMs must be 1 to " + MAX_RATE_IN_MS + ": " + rateInMs);
+        }
+        this.rateInMs = rateInMs;
+        this.random = random;
+        kickoffTicks = Math.max(1, 500 / rateInMs);
+        padSpd = (rateInMs << SHIFT) * 6 / 10;
+        ballSpd = padSpd / 2;
+        vAdd = padSpd / 10;
+        maxBallV = ballSpd * MAX_SPEED_UP;
+        botSpd = padSpd * 8 / 10;
+        botRange = padH / 2 * 8 / 10;
+        deadZone = padH * 3 / 10;
+        vDir = random.nextBoolean() ? 1 : -1;
+        resetBall();
+        updateCenters();
+    }
+
+    /**
+     * Work through the largest value each step of a tick can produce, at the longest tick and the
+     * capped ball speed, with overflow-checked arithmetic.
+     *
+     * @return the largest magnitude seen
+     */
+    private static long bounds() {
+        long padSpd = Math.multiplyExact((long) MAX_RATE_IN_MS << SHIFT, 6) / 10, ballSpd = padSpd / 2;
+        long maxV = Math.multiplyExact(ballSpd, MAX_SPEED_UP);
+        long reflection = padH / 2 + ballH / 2; // farthest off center the ball can hit a face
+        long maxYV = Math.max(ballSpd, Math.multiplyExact(Math.multiplyExact(reflection, 10), MAX_RATE_IN_MS) / 500);
+        long maxPos = Math.addExact(Math.addExact(WIDTH, buffer), Math.addExact(maxV, ballW)); // a ball past the goal, before it is reset
+        long span = 2 * maxPos; // any distance between two positions
+        long minXV = ballSpd / MAX_RATE_IN_MS; // the serve speed at a 1 ms tick
+        long maxTicks = Math.multiplyExact(span, ONE) / minXV; // the longest predicted arrival, in fixed-point ticks
+        long[] products = {
+                Math.multiplyExact(maxV, ONE), // a velocity times a time of impact
+                Math.multiplyExact(span, ONE), // a distance shifted up for a division
+                Math.multiplyExact(maxYV, maxTicks), // a prediction's unfolded path
+                Math.multiplyExact(span, ONE) / (padSpd * 8 / 10 / MAX_RATE_IN_MS), // bot slack
+                Math.multiplyExact(Math.multiplyExact(reflection, 10), MAX_RATE_IN_MS),
+                Math.multiplyExact((long) Integer.MAX_VALUE, ONE) // ticks in fixed point, for 2^31 ticks
+        };
+        long max = 0;
+        for(long p : products) {
+            max = Math.max(max, p);
+        }
+        for(long v : new long[]{maxV, maxYV, maxPos, span, HEIGHT}) { // what is kept in ints
+            Math.toIntExact(v);
+        }
+        return max;
+    }
+
+    /**
+     * Advance the game by one step. Does nothing while paused.
+     */
+    public void tick() {
+        if(pause) {
+            return;
+        }
+        counter++;
+        ticks++;
+        prevBallX = ballX;
+        prevBallY = ballY;
+        prevPadLY = padLY;
+        prevPadRY = padRY;
+        movement();
+        sweep();
+        updateCenters();
+        conditionCheck();
+        bot();
+    }
+
+    private void movement() {
+        padRY = Math.max(0, Math.min(HEIGHT - padH, padRY + padRYV));
+        padLY = Math.max(0, Math.min(HEIGHT - padH, padLY + padLYV));
+    }
+
+    private void updateCenters() {
+        ballYC = ballY + ballH/2;
+        ballXC = ballX + ballW/2;
+        padLC = padLY + padH/2;
+        padRC = padRY + padH/2;
+    }
+
+    /**
+     * The time for a distance at a velocity, in fixed-point ticks, rounded toward zero.
+     */
+    private static long time(long distance, int velocity) {
+        return (distance << SHIFT) / velocity;
+    }
+
+    /**
+     * How far a velocity goes in a fixed-point time, rounded down.
+     */
+    private static int travel(int velocity, long time) {
+        return (int) ((velocity * time) >> SHIFT);
+    }
+
+    /**
+     * The same swept solver as PongEngine's, with times of impact as fractions of a tick in fixed point.
+     */
+    private void sweep() {
+        long remaining = ONE;
+        for(int bounce = 0; bounce < MAX_BOUNCES && remaining > 0; bounce++) {
+            long t = remaining;
+            int hit = NONE;
+
+            if(ballYV < 0) {
+                long ti = Math.max(0, time(-ballY, ballYV));
+                if(ti < t) { t = ti; hit = CEILING; }
+            } else if(ballYV > 0) {
+                long ti = Math.max(0, time(HEIGHT - ballH - ballY, ballYV));
+                if(ti < t) { t = ti; hit = FLOOR; }
+            }
+
+            if(lobbyMode) {
+                if(ballXV > 0) {
+                    long ti = Math.max(0, time(WIDTH - ballW - ballX, ballXV));
+                    if(ti < t) { t = ti; hit = RIGHT_WALL; }
+                } else if(ballXV < 0) {
+                    long ti = Math.max(0, time(-ballX, ballXV));
+                    if(ti < t) { t = ti; hit = LEFT_WALL; }
+                }
+            } else {
+                long ti = sweepPaddle(padLX, padLY, t);
+                if(ti < t) { t = ti; hit = sweptFace? LEFT_FACE : PADDLE_EDGE; }
+                ti = sweepPaddle(padRX, padRY, t);
+                if(ti < t) { t = ti; hit = sweptFace? RIGHT_FACE : PADDLE_EDGE; }
+            }
+
+            ballX += travel(ballXV, t);
+            ballY += travel(ballYV, t);
+            remaining -= t;
+
+            switch(hit) {
+                case NONE:
+                    return;
+                case CEILING:
+                    ballY = 0;
+                    ballYV = -ballYV;
+                    listener.wallHit();
+                    break;
+                case FLOOR:
+                    ballY = HEIGHT - ballH;
+                    ballYV = -ballYV;
+                    listener.wallHit();
+                    break;
+                case LEFT_WALL:
+                    ballX = 0;
+                    ballXV = -ballXV;
+                    predictionValid = false;
+                    listener.wallHit();
+                    break;
+                case RIGHT_WALL:
+                    ballX = WIDTH - ballW;
+                    ballXV = -ballXV;
+                    predictionValid = false;
+                    listener.wallHit();
+                    break;
+                case LEFT_FACE:
+                    ballX = padLX + padW;
+                    returnBall(padLY, padLYV, 1);
+                    break;
+                case RIGHT_FACE:
+                    ballX = padRX - ballW;
+                    returnBall(padRY, padRYV, -1);
+                    break;
+                case PADDLE_EDGE:
+                    rallyHits++;
+                    ballYV = -ballYV;
+                    predictionValid = false;
+                    listener.paddleHit();
+            }
+        }
+    }
+
+    private long sweepPaddle(int padX, int padY, long limit) {
+        int left = padX - ballW, right = padX + padW;
+        int top = padY - ballH, bottom = padY + padH;
+        long t = limit;
+        boolean leftPaddle = padX < WIDTH/2;
+        if(leftPaddle && ballXV < 0 && ballX >= right) {
+            long ti = time(right - ballX, ballXV);
+            if(ti < t && within(ballY + travel(ballYV, ti), top, bottom)) { t = ti; sweptFace = true; }
+        } else if(!leftPaddle && ballXV > 0 && ballX <= left) {
+            long ti = time(left - ballX, ballXV);
+            if(ti < t && within(ballY + travel(ballYV, ti), top, bottom)) { t = ti; sweptFace = true; }
+        }
+        if(ballYV > 0 && ballY <= top) {
+            long ti = time(top - ballY, ballYV);
+            if(ti < t && within(ballX + travel(ballXV, ti), left, right)) { t = ti; sweptFace = false; }
+        } else if(ballYV < 0 && ballY >= bottom) {
+            long ti = time(bottom - ballY, ballYV);
+            if(ti < t && within(ballX + travel(ballXV, ti), left, right)) { t = ti; sweptFace = false; }
+        }
+        return t;
+    }
+
+    private static boolean within(int v, int min, int max) {
+        return v >= min && v <= max;
+    }
+
+    /**
+     * PongEngine's return: 0.1 (or 0.03 off a still paddle) of the offset from center, per 5 ms of tick.
+     */
+    private void returnBall(int padY, int padYV, int direction) {
+        long reflection = (ballY + ballH/2) - (padY + padH/2);
+        ballXV = ballV * direction;
+        rallyHits++;
+        rallyMaxV = Math.max(rallyMaxV, ballV);
+        ballYV = (int) (reflection * (padYV != 0 ? 10 : 3) * rateInMs / 500);
+        ballV = Math.min(maxBallV, ballV + vAdd);
+        predictionValid = false;
+        listener.paddleHit();
+    }
+
+    private void conditionCheck() {
+        if(ballX >= WIDTH + buffer) {
+            playerLScore += 1;
+            listener.rallyEnded(ticks - rallyStart, rallyHits, rallyMaxV / (double) ONE, vDir, true, botActive, oldBot);
+            vDir = 1;
+            resetBall();
+            listener.leftScored();
+        }
+        if(ballX + ballW <= -buffer) {
+            playerRScore += 1;
+            listener.rallyEnded(ticks - rallyStart, rallyHits, rallyMaxV / (double) ONE, vDir, false, botActive, oldBot);
+            vDir = -1;
+            resetBall();
+            listener.rightScored();
+        }
+        if(ballXV == 0 && ballYV == 0 && counter == kickoffTicks) {
+            kickoff();
+        }
+        if(playerLScore >= PongEngine.WIN_CONDITION || playerRScore >= PongEngine.WIN_CONDITION) {
+            lobbyMode = true;
+        }
+    }
+
+    private void bot() {
+        if(!predictionValid) {
+            predict();
+        }
+        if(oldBot) {
+            if(ballYC < padRC - deadZone) {
+                padRYV = -botSpd;
+            } else if(ballYC > padRC + deadZone) {
+                padRYV = botSpd;
+            } else {
+                padRYV = 0;
+            }
+        }
+        long now = ticks << SHIFT;
+        if(ballXV < 0 && botActive) {
+            long slack = (botArrival - now) - time(Math.abs(botY - padLC) - botRange, botSpd);
+            if(slack > 2 * ONE && padLYV == 0) {
+                // plenty of time; wait
+            } else if(botY < padLC - botRange) {
+                padLYV = -botSpd;
+            } else if(botY > padLC + botRange) {
+                padLYV = botSpd;
+            } else if(botY > padLC - botRange && botY < padLC + botRange) {
+                padLYV = (botArrival - now > ONE) ? 0 : (botY < padLC ? botSpd : -botSpd); // flick on contact
+            }
+        } else if(ballXV > 0 && botActive) {
+            if(ballYC < padLC - (5 << SHIFT)) {
+                padLYV = -botSpd;
+            } else if(ballYC > padLC + (5 << SHIFT)) {
+                padLYV = botSpd;
+            } else {
+                padLYV = 0;
+            }
+        } else if(botActive) {
+            padLYV = 0;
+        }
+    }
+
+    private void predict() {
+        predictionValid = true;
+        int minY = ballH/2, maxY = HEIGHT - ballH/2;
+        long t = timeTo(ballX, ballXV, botX);
+        if(t != NEVER) {
+            botY = foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+            botArrival = (ticks << SHIFT) + t;
+        }
+        t = timeTo(ballX + ballW, ballXV, padRX);
+        if(t != NEVER) {
+            oldBotY = foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+            oldBotArrival = (ticks << SHIFT) + t;
+        }
+    }
+
+    /**
+     * {@link Trajectory#timeTo} in fixed point.
+     */
+    private static long timeTo(int x, int xv, int targetX) {
+        if(xv == 0) {
+            return NEVER;
+        }
+        long t = time((long) targetX - x, xv);
+        return t < 0 ? NEVER : t;
+    }
+
+    /**
+     * {@link Trajectory#foldY} in fixed point.
+     */
+    private static int foldY(int y, int yv, long t, int minY, int maxY) {
+        long range = maxY - minY, period = range * 2;
+        long m = Math.floorMod((y - minY) + ((yv * t) >> SHIFT), period);
+        return (int) (minY + (m <= range ? m : period - m));
+    }
+
+    /**
+     * Reset the ball and paddles, clear both scores and leave lobby mode.
+     */
+    public void resetGame() {
+        resetBall();
+        padLY = HEIGHT/2 - padH/2;
+        padRY = padLY;
+        prevPadLY = padLY;
+        prevPadRY = padRY;
+        playerLScore = 0;
+        playerRScore = 0;
+        lobbyMode = false;
+        pause = false;
+    }
+
+    /**
+     * Put the ball back in the center; it kicks off half a second later.
+     */
+    public void resetBall() {
+        counter = 0;
+        ballX = WIDTH/2 - ballW/2;
+        ballY = HEIGHT/2 - ballH/2;
+        ballXV = 0;
+        ballYV = 0;
+        ballV = ballSpd;
+        predictionValid = false;
+        prevBallX = ballX;
+        prevBallY = ballY;
+    }
+
+    private void kickoff() {
+        ballYV += random.nextInt(ballSpd * 2 + 1) - ballSpd;
+        ballXV = ballSpd * vDir;
+        predictionValid = false;
+        rallyStart = ticks;
+        rallyHits = 0;
+        rallyMaxV = ballSpd;
+    }
+
+    /**
+     * Toggle pause.
+     */
+    public void pause() {
+        pause = !pause;
+    }
+
+    /**
+     * Apply one player input. Call between ticks.
+     *
+     * @param command the command
+     */
+    public void apply(Command command) {
+        switch(command) {
+            case LEFT_UP:
+                moveLeftPaddle(-1);
+                break;
+            case LEFT_DOWN:
+                moveLeftPaddle(1);
+                break;
+            case LEFT_STOP:
+                moveLeftPaddle(0);
+                break;
+            case RIGHT_UP:
+                moveRightPaddle(-1);
+                break;
+            case RIGHT_DOWN:
+                moveRightPaddle(1);
+                break;
+            case RIGHT_STOP:
+                moveRightPaddle(0);
+                break;
+            case START_OR_PAUSE:
+                if(lobbyMode) {
+                    resetGame();
+                } else {
+                    pause();
+                }
+                break;
+            case RESET_GAME:
+                resetGame();
+                break;
+            case RESET_BALL:
+                resetBall();
+                break;
+            case TOGGLE_SMART_BOT:
+                toggleSmartBot();
+                break;
+            case TOGGLE_DUMB_BOT:
+                toggleDumbBot();
+                break;
+            case SMART_BOT_OFF:
+                if(botActive) {
+                    toggleSmartBot();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Move the left paddle; ignored while the smart bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveLeftPaddle(int direction) {
+        if(!botActive) {
+            padLYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * Move the right paddle; ignored while the dumb bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveRightPaddle(int direction) {
+        if(!oldBot) {
+            padRYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * Toggle the smart bot (left paddle).
+     */
+    public void toggleSmartBot() {
+        botActive = !botActive;
+        padLYV = 0;
+    }
+
+    /**
+     * Toggle the dumb bot (right paddle). Stops the left paddle, as PongEngine does.
+     */
+    public void toggleDumbBot() {
+        oldBot = !oldBot;
+        padLYV = 0;
+    }
+
+    /**
+     * Retune both bots, as {@link PongEngine#setBotTuning}. The fractions are rounded to thousandths,
+     * so the same arguments give the same fixed-point tuning everywhere.
+     *
+     * @param speed    bot paddle speed as a fraction of a player's (default 0.8)
+     * @param range    how far off center the smart bot lets its target be, as a fraction of half a paddle (default 0.8)
+     * @param deadZone how far off center the dumb bot lets the ball be, as a fraction of a paddle (default 0.3)
+     */
+    public void setBotTuning(double speed, double range, double deadZone) {
+        botSpd = Math.max(1, (int) ((long) padSpd * Math.round(speed * 1000) / 1000));
+        botRange = (int) ((long) padH / 2 * Math.round(range * 1000) / 1000);
+        this.deadZone = (int) ((long) padH * Math.round(deadZone * 1000) / 1000);
+    }
+
+    /**
+     * A 64-bit hash of everything that decides what happens next: two engines with the same hash after
+     * the same tick will almost surely stay the same. Compare it tick by tick, or chain it, to find the
+     * first tick two runs diverged. The random source is included when it is a {@link RewindableRandom}.
+     *
+     * @return the hash
+     */
+    public long stateHash() {
+        long h = 0x9E3779B97F4A7C15L;
+        h = mix(h, ticks);
+        h = mix(h, counter);
+        h = mix(h, ((long) playerLScore << 32) | playerRScore);
+        h = mix(h, (pause ? 1 : 0) | (lobbyMode ? 2 : 0) | (botActive ? 4 : 0) | (oldBot ? 8 : 0) | (predictionValid ? 16 : 0));
+        h = mix(h, ((long) padLY << 32) ^ padRY);
+        h = mix(h, ((long) padLYV << 32) ^ padRYV);
+        h = mix(h, ((long) ballX << 32) ^ ballY);
+        h = mix(h, ((long) ballXV << 32) ^ ballYV);
+        h = mix(h, ((long) ballV << 32) ^ vDir);
+        h = mix(h, ((long) botY << 32) ^ oldBotY);
+        h = mix(h, botArrival);
+        h = mix(h, oldBotArrival);
+        h = mix(h, ((long) botSpd << 32) ^ botRange);
+        h = mix(h, deadZone);
+        h = mix(h, rallyStart);
+        h = mix(h, ((long) rallyHits << 32) ^ rallyMaxV);
+        if(random instanceof RewindableRandom) {
+            h = mix(h, ((RewindableRandom) random).getState());
+        }
+        return h;
+    }
+
+    /**
+     * Fold one value into a hash; a multiply-xorshift round, so every input bit reaches every output bit.
+     */
+    static long mix(long h, long v) {
+        h = (h ^ v) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Sets the listener that receives wall, paddle and score events.
+     *
+     * @param listener the listener, or {@link GameListener#NONE}
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Whether a match has been won.
+     *
+     * @return true once either score reaches {@link PongEngine#WIN_CONDITION}
+     */
+    public boolean isMatchOver() {
+        return playerLScore >= PongEngine.WIN_CONDITION || playerRScore >= PongEngine.WIN_CONDITION;
+    }
+
+    public int getRateInMs() {
+        return rateInMs;
+    }
+
+    public int getPlayerLScore() {
+        return playerLScore;
+    }
+
+    public int getPlayerRScore() {
+        return playerRScore;
+    }
+
+    public boolean isPaused() {
+        return pause;
+    }
+
+    public boolean isLobbyMode() {
+        return lobbyMode;
+    }
+
+    public boolean isBotActive() {
+        return botActive;
+    }
+
+    public boolean isOldBot() {
+        return oldBot;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * The ball x in fixed point; divide by {@link #ONE} for pixels.
+     *
+     * @return the x
+     */
+    public int getBallXFixed() {
+        return ballX;
+    }
+
+    /**
+     * The ball y in fixed point; divide by {@link #ONE} for pixels.
+     *
+     * @return the y
+     */
+    public int getBallYFixed() {
+        return ballY;
+    }
+
+    public int getBallVFixed() {
+        return ballV;
+    }
+
+    /**
+     * The ball x position between the previous tick and the current one, in pixels, for drawing.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getBallX(double alpha) {
+        return (prevBallX + (ballX - prevBallX) * alpha) / ONE;
+    }
+
+    /**
+     * The ball y position between the previous tick and the current one, in pixels, for drawing.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getBallY(double alpha) {
+        return (prevBallY + (ballY - prevBallY) * alpha) / ONE;
+    }
+
+    /**
+     * The left paddle y position between the previous tick and the current one, in pixels, for drawing.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getPadLY(double alpha) {
+        return (prevPadLY + (padLY - prevPadLY) * alpha) / ONE;
+    }
+
+    /**
+     * The right paddle y position between the previous tick and the current one, in pixels, for drawing.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getPadRY(double alpha) {
+        return (prevPadRY + (padRY - prevPadRY) * alpha) / ONE;
+    }
+
+    /**
+     * The entry point: bot-vs-bot matches on both engines, printing how each plays, its ticks per
+     * second and, for the fixed-point engine, a hash chained over every tick. The chain only depends
+     * on the seed, so it should print the same on every machine and JVM (try -Xint).
+     *
+     * @param args optional ticks to run (default 2000000) and seed (default 1)
+     */
+    public static void main(String[] args) {
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        System.out.printf("bounds: largest intermediate %d (2^%.1f of 2^63)%n", BOUNDS, Math.log(BOUNDS) / Math.log(2));
+        for(int round = 1; round <= 3; round++) { // the first rounds include JIT warm-up
+            FixedPointEngine fixed = new FixedPointEngine(5, new RewindableRandom(seed));
+            fixed.toggleSmartBot();
+            fixed.toggleDumbBot();
+            fixed.resetGame();
+            long chain = 0, points = 0, leftPoints = 0, start = System.nanoTime();
+            for(long t = 0; t < ticks; t++) {
+                fixed.tick();
+                chain = mix(chain, fixed.stateHash());
+                if(fixed.isMatchOver()) {
+                    points += fixed.getPlayerLScore() + fixed.getPlayerRScore();
+                    leftPoints += fixed.getPlayerLScore();
+                    fixed.resetGame();
+                }
+            }
+            double fixedSeconds = (System.nanoTime() - start) / 1e9;
+
+            PongEngine engine = new PongEngine(5, new RewindableRandom(seed));
+            engine.toggleSmartBot();
+            engine.toggleDumbBot();
+            engine.resetGame();
+            long doublePoints = 0, doubleLeftPoints = 0;
+            start = System.nanoTime();
+            for(long t = 0; t < ticks; t++) {
+                engine.tick();
+                if(engine.isMatchOver()) {
+                    doublePoints += engine.getPlayerLScore() + engine.getPlayerRScore();
+                    doubleLeftPoints += engine.getPlayerLScore();
+                    engine.resetGame();
+                }
+            }
+            double doubleSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("round %d, %d ticks of smart bot vs dumb bot:%n", round, ticks);
+            System.out.printf("  fixed  %6.1f M ticks/s (hashing every tick)  %6d points, %5.1f%% left  hash chain %016x%n",
+                    ticks / fixedSeconds / 1e6, points, points == 0 ? 0 : leftPoints * 100.0 / points, chain);
+            System.out.printf("  double %6.1f M ticks/s                       %6d points, %5.1f%% left%n",
+                    ticks / doubleSeconds / 1e6, doublePoints, doublePoints == 0 ? 0 : doubleLeftPoints * 100.0 / doublePoints);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * An accumulator that turns irregular frame timestamps into a whole number of fixed-length steps.
+ * Whatever time is left over is exposed as an interpolation factor for rendering.
+ */
+public class FixedStepClock {
+
+    private final long stepNanos;
+    private final int maxSteps;
+    private long last = -1, accumulator = 0;
+    private long droppedSteps = 0, lastDropped = 0; // steps given up on in total; in the last advance
+
+    /**
+     * Instantiates a new clock.
+     *
+     * @param rateInMs the step length
+     * @param maxSteps the most steps one call to {@link #advance(long)} may return; extra time is dropped
+     */
+    public FixedStepClock(int rateInMs, int maxSteps) {
+        this.stepNanos = rateInMs * 1_000_000L;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Add the time since the previous call and take as many whole steps out of it as fit.
+     *
+     * @param now the current time in nanoseconds
+     * @return the number of steps to run
+     */
+    public int advance(long now) {
+        if(last < 0) {
+            last = now;
+            return 0;
+        }
+        accumulator += now - last;
+        last = now;
+        int steps = 0;
+        while(accumulator >= stepNanos && steps < maxSteps) {
+            accumulator -= stepNanos;
+            steps++;
+        }
+        lastDropped = 0;
+        if(accumulator >= stepNanos) { // fell too far behind (window drag, GC, breakpoint); don't try to catch up
+            lastDropped = accumulator / stepNanos;
+            droppedSteps += lastDropped;
+            accumulator %= stepNanos;
+        }
+        return steps;
+    }
+
+    /**
+     * How far the clock is between the last step and the next one.
+     *
+     * @return a value in [0, 1)
+     */
+    public double getAlpha() {
+        return accumulator / (double) stepNanos;
+    }
+
+    /**
+     * Forget the last timestamp, e.g. after a pause, so the next call starts fresh.
+     */
+    public void reset() {
+        last = -1;
+        accumulator = 0;
+    }
+
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * The steps the most recent {@link #advance(long)} gave up on.
+     *
+     * @return the number of steps
+     */
+    public long getLastDropped() {
+        return lastDropped;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+}
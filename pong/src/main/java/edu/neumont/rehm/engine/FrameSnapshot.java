@@ -0,0 +1,66 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * What one frame needs to draw the game, as of one tick: positions before and after it (for
+ * interpolation), scores, modes, the smart bot's target and running counts of the events that make
+ * sounds. Written by {@link SimulationLoop} and handed to the drawing thread through a
+ * {@link SnapshotExchange}; once handed over it is not written again until the reader lets it go.
+ */
+public class FrameSnapshot {
+
+    long tickIndex = -1, ticks, time; // time: when it was published, from System.nanoTime()
+    double ballX, ballY, prevBallX, prevBallY, ballXV, ballYV;
+    double padLY, padRY, prevPadLY, prevPadRY, padLYV, padRYV;
+    double botY;
+    int playerLScore, playerRScore;
+    boolean lobbyMode, pause, botActive, oldBot;
+    long wallHits, paddleHits, leftScores, rightScores; // since the simulation started
+    long inputTime = -1; // when the last key that set a paddle moving was pressed
+
+    /**
+     * The simulation step this was taken after, counting paused steps; -1 before the first.
+     *
+     * @return the step index
+     */
+    public long getTickIndex() {
+        return tickIndex;
+    }
+
+    /**
+     * When this was published.
+     *
+     * @return the time in nanoseconds, from {@link System#nanoTime()}
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public boolean isPaused() {
+        return pause;
+    }
+
+    public long getWallHits() {
+        return wallHits;
+    }
+
+    public long getPaddleHits() {
+        return paddleHits;
+    }
+
+    public long getLeftScores() {
+        return leftScores;
+    }
+
+    public long getRightScores() {
+        return rightScores;
+    }
+
+    /**
+     * When the last key that set a paddle moving was pressed, for input-to-photon latency.
+     *
+     * @return the time in nanoseconds, or -1 if there hasn't been one
+     */
+    public long getInputTime() {
+        return inputTime;
+    }
+}
@@ -0,0 +1,46 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * Receives the events the engine raises while ticking (used by the view for sound).
+ * Every method defaults to doing nothing so headless runs can ignore them.
+ */
+public interface GameListener {
+
+    /**
+     * A listener that ignores every event.
+     */
+    GameListener NONE = new GameListener() {};
+
+    /**
+     * The ball bounced off a wall, the ceiling or the floor.
+     */
+    default void wallHit() {}
+
+    /**
+     * The ball bounced off a paddle.
+     */
+    default void paddleHit() {}
+
+    /**
+     * A rally ended in a point; raised just before {@link #leftScored()} or {@link #rightScored()}.
+     *
+     * @param ticks          ticks from the serve to the point
+     * @param hits           how many times the ball hit a paddle
+     * @param maxSpeed       the fastest the ball travelled across the board, in pixels per tick
+     * @param serveDirection the way the ball was served, 1 to the right or -1 to the left
+     * @param leftWon        whether the left player won the point
+     * @param smartBot       whether the smart bot had the left paddle when the point was scored
+     * @param dumbBot        whether the dumb bot had the right paddle when the point was scored
+     */
+    default void rallyEnded(long ticks, int hits, double maxSpeed, int serveDirection, boolean leftWon, boolean smartBot, boolean dumbBot) {}
+
+    /**
+     * The left player scored a point.
+     */
+    default void leftScored() {}
+
+    /**
+     * The right player scored a point.
+     */
+    default void rightScored() {}
+}
@@ -0,0 +1,91 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Random;
+
+/**
+ * Runs bot-vs-bot matches with no window, stepping the engine as fast as the CPU allows.
+ */
+public class HeadlessRunner {
+
+    private static final long MAX_TICKS = 10_000_000; // guard against a rally that never ends
+
+    private final int rateInMs;
+    private final Random random;
+    private int leftWins = 0, rightWins = 0, unfinished = 0;
+    private long ticks = 0;
+
+    /**
+     * Instantiates a new runner.
+     *
+     * @param rateInMs the engine tick length
+     * @param random   the source shared by every match this runner plays
+     */
+    public HeadlessRunner(int rateInMs, Random random) {
+        this.rateInMs = rateInMs;
+        this.random = random;
+    }
+
+    /**
+     * Play one match to {@link PongEngine#WIN_CONDITION} with both bots active.
+     *
+     * @return the finished engine
+     */
+    public PongEngine playMatch() {
+        PongEngine engine = new PongEngine(rateInMs, random);
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        long matchTicks = 0;
+        while(!engine.isMatchOver() && matchTicks < MAX_TICKS) {
+            engine.tick();
+            matchTicks++;
+        }
+        ticks += matchTicks;
+        if(!engine.isMatchOver()) {
+            unfinished++;
+        } else if(engine.getPlayerLScore() > engine.getPlayerRScore()) {
+            leftWins++;
+        } else {
+            rightWins++;
+        }
+        return engine;
+    }
+
+    public int getLeftWins() {
+        return leftWins;
+    }
+
+    public int getRightWins() {
+        return rightWins;
+    }
+
+    public int getUnfinished() {
+        return unfinished;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * The entry point for max-speed runs.
+     *
+     * @param args optional match count (default 1000) and seed
+     */
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Random random = args.length > 1 ? new Random(Long.parseLong(args[1])) : new Random();
+        HeadlessRunner runner = new HeadlessRunner(5, random);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < matches; i++) {
+            runner.playMatch();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d matches in %.3f s (%.1f matches/s, %.0f ticks/s)%n",
+                matches, seconds, matches / seconds, runner.getTicks() / seconds);
+        System.out.printf("smart bot (left): %d  dumb bot (right): %d  unfinished: %d%n",
+                runner.getLeftWins(), runner.getRightWins(), runner.getUnfinished());
+    }
+}
@@ -0,0 +1,88 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * A preallocated ring buffer of timestamped commands. Events are added as they arrive and
+ * read back in order at the next tick boundary; nothing is allocated after construction.
+ * Lock-free for one thread adding and one (possibly other) thread reading, e.g. key events from the
+ * FX thread to a simulation thread; offer never blocks.
+ */
+public class InputQueue {
+
+    private final Command[] commands;
+    private final long[] times;
+    private final int mask;
+    private volatile long head = 0, tail = 0; // head is the next slot to read, tail the next slot to write; each written by one side only
+    private long dropped = 0;
+
+    /**
+     * Instantiates a new queue.
+     *
+     * @param capacity the number of events it can hold, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        commands = new Command[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Add an event; if the queue is full the event is dropped.
+     *
+     * @param command the command
+     * @param nanos   when it happened, from {@link System#nanoTime()}
+     * @return false if it was dropped
+     */
+    public boolean offer(Command command, long nanos) {
+        long t = tail;
+        if(t - head > mask) {
+            dropped++;
+            return false;
+        }
+        int i = (int) (t & mask);
+        commands[i] = command;
+        times[i] = nanos;
+        tail = t + 1; // publishes the slot to the reader
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * The oldest command, without removing it.
+     *
+     * @return the command
+     */
+    public Command peekCommand() {
+        return commands[(int) (head & mask)];
+    }
+
+    /**
+     * The timestamp of the oldest command, without removing it.
+     *
+     * @return the time in nanoseconds
+     */
+    public long peekTime() {
+        return times[(int) (head & mask)];
+    }
+
+    /**
+     * Remove the oldest command.
+     */
+    public void remove() {
+        long h = head;
+        if(h < tail) {
+            head = h + 1; // hands the slot back to the writer
+        }
+    }
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * A running count, last, average and maximum of a latency, in nanoseconds.
+ */
+public class LatencyStats {
+
+    private long count = 0, last = 0, total = 0, max = 0;
+
+    /**
+     * Record one sample.
+     *
+     * @param nanos the latency
+     */
+    public void record(long nanos) {
+        count++;
+        last = nanos;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getAverage() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d last=%.2f ms avg=%.2f ms max=%.2f ms", count, last / 1e6, getAverage() / 1e6, max / 1e6);
+    }
+}
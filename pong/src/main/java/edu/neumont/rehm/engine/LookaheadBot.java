@@ -0,0 +1,308 @@
+package edu.neumont.rehm.engine;
+
+import edu.neumont.rehm.metrics.LatencyHistogram;
+
+import java.util.Random;
+
+/**
+ * A left paddle bot that plans its returns by Monte-Carlo lookahead. While the ball is coming, it
+ * runs rollouts of the rest of the rally from the current state, on a scratch engine restored from an
+ * {@link EngineState}. Each rollout plays one candidate return (where on the paddle to take the ball,
+ * and whether to flick the paddle as it hits) against a randomly tuned dumb bot standing in for the
+ * opponent. Candidates are picked UCB1-style so the promising ones get most of the rollouts, and the
+ * statistics carry over from tick to tick until the ball's path changes.
+ * <p>
+ * The search runs inside a fixed time budget per tick and checks the clock inside each rollout, so it
+ * can never hold up the game loop by more than the budget plus a few microseconds. The bot plays like
+ * a player: {@link #decide(PongEngine)} returns paddle commands to feed in through the normal input
+ * path, so recordings, replays and online games stay deterministic.
+ */
+public class LookaheadBot {
+
+    private static final int OFFSETS = 9, FLICKS = 3; // where on the paddle to take the ball; flick up, none, down
+    private static final int ARMS = OFFSETS * FLICKS;
+    private static final int MAX_TICKS = 4000; // a rollout that long is a long rally; call it even
+    private static final int CLOCK_CHECK = 64; // ticks between clock checks inside a rollout
+    private static final double EXPLORATION = 0.7;
+
+    private final long budgetNanos;
+    private final PongEngine sim;
+    private final EngineState root = new EngineState();
+    private final Random random;
+    private final double padH, padSpd;
+    private final double lockTicks; // how long the paddle takes to get from one end of the spread of spots to the other
+
+    private final int[] visits = new int[ARMS];
+    private final double[] values = new double[ARMS];
+    private int totalVisits = 0, best = center();
+    private double pathKey = Double.NaN; // the predicted arrival tick the statistics are for
+    private int direction = 0; // the paddle direction last asked for
+
+    private long rollouts = 0, aborted = 0, searchNanos = 0, decisions = 0, overruns = 0;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Instantiates a bot for engines ticking at a given rate.
+     *
+     * @param rateInMs    the engine tick length
+     * @param budgetNanos the most time to spend searching per tick
+     * @param random      the source for the opponent models
+     */
+    public LookaheadBot(int rateInMs, long budgetNanos, Random random) {
+        this.budgetNanos = budgetNanos;
+        this.random = random;
+        sim = new PongEngine(rateInMs, new RewindableRandom(0));
+        padH = sim.getPadH();
+        padSpd = 0.6 * rateInMs;
+        lockTicks = padH * 0.9 / padSpd + 2;
+    }
+
+    /**
+     * Search for the rest of this tick's budget and steer the left paddle toward the best return found.
+     * Call once per tick, before the tick. The engine's smart bot has to be off for the commands to take.
+     *
+     * @param engine the game
+     * @return the paddle command to apply, or null to keep the current one
+     */
+    public Command decide(PongEngine engine) {
+        long start = System.nanoTime();
+        double target;
+        int flick = 0;
+        if(engine.isLobbyMode() || engine.isPaused()) {
+            return null;
+        } else if(engine.getBallXV() < 0) {
+            double arrival = engine.getTicks() + engine.getBotArrival();
+            if(Math.abs(arrival - pathKey) > 0.5) { // a new path: what was learned about the old one is moot
+                pathKey = arrival;
+                clear();
+            }
+            if(engine.getBotArrival() > lockTicks) {
+                search(engine, start + budgetNanos);
+            } // else committed: too late for the paddle to get to a different spot
+            target = target(engine.getBotY(), best);
+            flick = flick(best);
+        } else {
+            pathKey = Double.NaN;
+            target = PongEngine.HEIGHT / 2; // wait in the middle
+        }
+        int next = steer(engine.getPadLY() + padH/2, target, engine.getBotArrival(), flick);
+        long end = System.nanoTime();
+        latency.record(end - start);
+        if(end - start > budgetNanos * 2) {
+            overruns++;
+        }
+        decisions++;
+        if(next == direction) {
+            return null;
+        }
+        direction = next;
+        return next < 0 ? Command.LEFT_UP : next > 0 ? Command.LEFT_DOWN : Command.LEFT_STOP;
+    }
+
+    private void clear() {
+        for(int i = 0; i < ARMS; i++) {
+            visits[i] = 0;
+            values[i] = 0;
+        }
+        totalVisits = 0;
+        best = center();
+    }
+
+    private void search(PongEngine engine, long deadline) {
+        engine.save(root);
+        long start = System.nanoTime();
+        while(System.nanoTime() < deadline) {
+            int arm = select();
+            double value = rollout(arm, deadline);
+            if(Double.isNaN(value)) {
+                aborted++;
+                break;
+            }
+            visits[arm]++;
+            values[arm] += value;
+            totalVisits++;
+            rollouts++;
+        }
+        searchNanos += System.nanoTime() - start;
+        best = pick();
+    }
+
+    /**
+     * The arm to try next: any untried arm, else the best upper confidence bound.
+     */
+    private int select() {
+        int arm = 0;
+        double top = Double.NEGATIVE_INFINITY, log = Math.log(Math.max(1, totalVisits));
+        for(int i = 0; i < ARMS; i++) {
+            if(visits[i] == 0) {
+                return i;
+            }
+            double ucb = values[i] / visits[i] + EXPLORATION * Math.sqrt(log / visits[i]);
+            if(ucb > top) {
+                top = ucb;
+                arm = i;
+            }
+        }
+        return arm;
+    }
+
+    /**
+     * The arm to play: the best mean, with ties (and near ties) going to the safer middle of the paddle.
+     */
+    private int pick() {
+        int arm = center();
+        double top = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < ARMS; i++) {
+            if(visits[i] == 0) {
+                continue;
+            }
+            double score = values[i] / visits[i] - 0.01 * Math.abs(i / FLICKS - OFFSETS / 2) - (flick(i) != 0 ? 0.005 : 0);
+            if(score > top) {
+                top = score;
+                arm = i;
+            }
+        }
+        return arm;
+    }
+
+    /**
+     * Play the rest of the rally with one arm against a randomly tuned opponent.
+     *
+     * @return 1 if the bot scores, -1 if the opponent does, 0 if the opponent returns the ball; NaN if the deadline hit first
+     */
+    private double rollout(int arm, long deadline) {
+        sim.restore(root);
+        if(sim.isBotActive()) {
+            sim.toggleSmartBot();
+        }
+        if(!sim.isOldBot()) {
+            sim.toggleDumbBot(); // the model of whoever has the right paddle
+        }
+        sim.setBotTuning(0.6 + random.nextDouble() * 0.4, 0.8, 0.1 + random.nextDouble() * 0.4);
+        int scoreL = sim.getPlayerLScore(), scoreR = sim.getPlayerRScore();
+        double target = target(sim.getBotY(), arm);
+        int flick = flick(arm);
+        boolean returned = false;
+        for(int k = 1; k <= MAX_TICKS; k++) {
+            if(!returned) {
+                sim.moveLeftPaddle(steer(sim.getPadLY() + padH/2, target, sim.getBotArrival(), flick));
+            }
+            sim.tick();
+            if(sim.getPlayerLScore() != scoreL) {
+                return 1;
+            } else if(sim.getPlayerRScore() != scoreR) {
+                return -1;
+            }
+            if(!returned && sim.getBallXV() > 0) {
+                returned = true;
+                sim.moveLeftPaddle(0);
+            } else if(returned && sim.getBallXV() < 0) {
+                return 0;
+            }
+            if(k % CLOCK_CHECK == 0 && System.nanoTime() >= deadline) {
+                return Double.NaN;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The paddle center that takes the ball at an arm's spot on the paddle.
+     */
+    private double target(double ballY, int arm) {
+        double offset = (arm / FLICKS - OFFSETS / 2) / (double) (OFFSETS / 2) * padH * 0.45;
+        return ballY - offset;
+    }
+
+    private static int flick(int arm) {
+        return arm % FLICKS - 1;
+    }
+
+    private static int center() {
+        return OFFSETS / 2 * FLICKS + 1;
+    }
+
+    /**
+     * The paddle direction that brings its center to the target, or the flick in the last tick before contact.
+     */
+    private int steer(double center, double target, double ticksLeft, int flick) {
+        if(flick != 0 && ticksLeft <= 1 && ticksLeft > -1) {
+            return flick;
+        }
+        double diff = target - center;
+        return diff > padSpd / 2 ? 1 : diff < -padSpd / 2 ? -1 : 0;
+    }
+
+    /**
+     * Rollouts, rollouts per second of searching and the decision latency.
+     *
+     * @return two lines
+     */
+    public String summary() {
+        return String.format("lookahead: %d rollouts (%d cut off at the deadline), %.0f rollouts/s over %d ticks%n" +
+                        "decision p50 %.1f us  p99 %.1f us  max %.1f us  (budget %.0f us, %d over twice that)",
+                rollouts, aborted, searchNanos == 0 ? 0 : rollouts * 1e9 / searchNanos, decisions, latency.percentile(50) / 1e3,
+                latency.percentile(99) / 1e3, latency.getMax() / 1e3, budgetNanos / 1e3, overruns);
+    }
+
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * The entry point: the lookahead bot against a fast dumb bot, next to the smart bot against it.
+     *
+     * @param args optional ticks to play (default 200000), budget in microseconds (default 200) and seed
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : 200) * 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        play(ticks / 10, seed - 1, new LookaheadBot(5, budget, new Random(seed))); // JIT warm-up
+        LookaheadBot bot = new LookaheadBot(5, budget, new Random(seed));
+        int[] lookahead = play(ticks, seed, bot), smart = play(ticks, seed, null);
+        System.out.printf("over %d ticks against a fast dumb bot, points for-against: lookahead %d-%d, smart %d-%d%n",
+                ticks, lookahead[0], lookahead[1], smart[0], smart[1]);
+        System.out.println(bot.summary());
+    }
+
+    /**
+     * Play for a number of ticks, starting a new match whenever one ends, with a dumb bot on the right
+     * at full paddle speed that hardly lets the ball drift (the smart bot gets the speed too), and the
+     * lookahead bot, or else the smart bot, on the left.
+     *
+     * @return left points, right points
+     */
+    private static int[] play(int ticks, long seed, LookaheadBot bot) {
+        int[] points = new int[2];
+        PongEngine engine = new PongEngine(5, new Random(seed));
+        engine.toggleDumbBot();
+        engine.setBotTuning(1, 0.8, 0.1);
+        if(bot == null) {
+            engine.toggleSmartBot();
+        }
+        engine.resetGame();
+        for(int t = 0; t < ticks; t++) {
+            if(bot != null) {
+                Command command = bot.decide(engine);
+                if(command != null) {
+                    engine.apply(command);
+                }
+            }
+            engine.tick();
+            if(engine.isMatchOver()) {
+                points[0] += engine.getPlayerLScore();
+                points[1] += engine.getPlayerRScore();
+                engine.resetGame();
+            }
+        }
+        points[0] += engine.getPlayerLScore();
+        points[1] += engine.getPlayerRScore();
+        return points;
+    }
+}
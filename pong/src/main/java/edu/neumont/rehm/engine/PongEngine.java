@@ -0,0 +1,989 @@
+package edu.neumont.rehm.engine;
+
+import edu.neumont.rehm.metrics.Phase;
+import edu.neumont.rehm.metrics.PhaseProbe;
+
+import java.util.Random;
+
+/**
+ * The JavaFX-free game rules, including:
+ * Ball/Paddle position and movement,
+ * Collision detection/action,
+ * Scoring and the bots.
+ * Call {@link #tick()} once per step; nothing here depends on a Stage, Canvas or MediaPlayer.
+ */
+public class PongEngine {
+
+    /**
+     * The board width.
+     */
+    public static final double WIDTH = 800;
+    /**
+     * The board height.
+     */
+    public static final double HEIGHT = 600;
+    /**
+     * The score either player needs to win a match.
+     */
+    public static final int WIN_CONDITION = 11; // 11
+
+    private final double buffer = 20; // 20
+
+    private static final int MAX_BOUNCES = 16; // per tick; see sweep()
+    private static final int MAX_SPEED_UP = 32; // ballV never goes past this many serve speeds
+    private static final int NONE = 0, CEILING = 1, FLOOR = 2, LEFT_WALL = 3, RIGHT_WALL = 4, LEFT_FACE = 5, RIGHT_FACE = 6, PADDLE_EDGE = 7; // collision targets
+    private boolean sweptFace = false; // whether the last sweepPaddle hit was on the face
+
+    private final int rateInMs; // 5
+    private final double rateScale; // rateInMs / 5, for the per-tick constants tuned at 5 ms
+    private final int kickoffTicks; // 100 ticks at 5 ms
+    private int playerLScore = 0, playerRScore = 0; // 0, 0
+    private int counter = 0;
+    private boolean pause = false, lobbyMode = true; // false, true
+
+    private final double padSpd, ballSpd; // 0.6
+    private final double padW = 14, padH = padW * 5; // 14, 12; 70, 60
+    private final double padLX = buffer, padRX = WIDTH-buffer-padW;
+    private double padLY = HEIGHT/2 - padH/2, padRY = HEIGHT/2 - padH/2;
+    private double padRYV = 0, padLYV = 0; // 0, 0
+
+    private final double ballW = padW * 0.9, ballH = ballW; // 14, ballW
+    private double ballX = WIDTH/2 - ballW/2, ballY = HEIGHT/2 - ballH/2;
+    private double ballXV = 0, ballYV = 0, ballV = 0; // 0, 0, 0
+    private double prevBallX = ballX, prevBallY = ballY, prevPadLY = padLY, prevPadRY = padRY; // positions before the last tick, for interpolation
+    private double vAdd, vDir; // 0.3
+    private final double maxBallV; // ballSpd * MAX_SPEED_UP
+    private long cutSweeps = 0; // ticks that ran out of bounces, see sweep()
+
+    private double ballYC = ballY + ballH/2, ballXC = ballX + ballW/2;
+    private double padRC = padRY + padH/2, padLC = padLY + padH/2;
+
+    private double botSpd, botRange = padH/2 * 0.80; // padSpd * 0.8, padH/2 * 0.4; 0.3
+    private double deadZone = 0.3; // fraction of padH the dumb bot lets the ball drift from its center
+    private double botX = padLX + padW, botY = ballYC, oldBotY = ballYC; // predicted ball center at each paddle face
+    private double botArrival = 0, oldBotArrival = 0; // tick the ball reaches each paddle face
+    private boolean predictionValid = false;
+    private long ticks = 0; // ticks since construction, never reset
+    private long rallyStart = 0; // the tick the ball was served on
+    private int rallyHits = 0;
+    private double rallyMaxV = 0; // the fastest the ball has crossed the board this rally
+    private boolean botActive = false, oldBot = false;
+
+    private final Random random;
+    private GameListener listener = GameListener.NONE;
+    private PhaseProbe probe; // null unless the phases are being timed
+
+    /**
+     * Instantiates a new engine ticking every 5 ms.
+     */
+    public PongEngine() {
+        this(5, new Random());
+    }
+
+    /**
+     * Instantiates a new engine.
+     *
+     * @param rateInMs the length of one tick; paddle and ball speeds scale with it
+     * @param random   the source for kickoff angles and serve direction
+     */
+    public PongEngine(int rateInMs, Random random) {
+        this.rateInMs = rateInMs;
+        this.random = random;
+        rateScale = rateInMs / 5.0;
+        kickoffTicks = Math.max(1, 500 / rateInMs);
+        padSpd = 0.6 * rateInMs;
+        ballSpd = padSpd / 2;
+        vAdd = padSpd / 10;
+        maxBallV = ballSpd * MAX_SPEED_UP;
+        botSpd = padSpd * 0.8;
+        vDir = getStartingDirection();
+        resetBall();
+    }
+
+    /**
+     * Advance the game by one step. Does nothing while paused.
+     */
+    public void tick() {
+        if(pause) {
+            return;
+        }
+        counter++;
+        ticks++;
+        prevBallX = ballX;
+        prevBallY = ballY;
+        prevPadLY = padLY;
+        prevPadRY = padRY;
+        if(probe == null) {
+            movement();
+            collisionCheck();
+            conditionCheck();
+            bot();
+            return;
+        }
+        long t0 = System.nanoTime();
+        movement();
+        long t1 = System.nanoTime();
+        collisionCheck();
+        long t2 = System.nanoTime();
+        conditionCheck();
+        long t3 = System.nanoTime();
+        bot();
+        long t4 = System.nanoTime();
+        probe.record(Phase.MOVEMENT, t1 - t0);
+        probe.record(Phase.COLLISION, t2 - t1);
+        probe.record(Phase.CONDITION, t3 - t2);
+        probe.record(Phase.BOT, t4 - t3);
+    }
+
+    private void movement() {
+        padRY += padRYV;
+        padLY += padLYV;
+        padRY = (padRY < 0)? 0 : padRY; // right paddle ceiling
+        padRY = (padRY + padH > HEIGHT)? HEIGHT - padH : padRY; // right paddle floor
+        padLY = (padLY < 0)? 0 : padLY; // left paddle ceiling
+        padLY = (padLY + padH > HEIGHT)? HEIGHT - padH : padLY; // left paddle floor
+    }
+
+    private void updateCenters() {
+        ballYC = ballY + ballH/2;
+        ballXC = ballX + ballW/2;
+        padLC = padLY + padH/2;
+        padRC = padRY + padH/2;
+    }
+
+    /**
+     * Move the ball along its whole step, stopping at the exact time of impact with each wall or
+     * paddle it meets, responding, and carrying on with the rest of the step. Works at any speed,
+     * so the ball can never tunnel through a paddle. The paddles are treated as still during the step.
+     */
+    void collisionCheck() {
+        sweep();
+        updateCenters();
+    }
+
+    /**
+     * A tick gets at most {@link #MAX_BOUNCES} impacts. A ball that uses them all (far above the
+     * speed cap, or wedged between a paddle edge and a wall) stops where the last one left it, and
+     * the rest of the tick's travel is dropped; {@link #getCutSweeps()} counts the ticks that did.
+     */
+    private void sweep() {
+        double remaining = 1; // fraction of the tick left to travel
+        for(int bounce = 0; bounce < MAX_BOUNCES && remaining > 0; bounce++) {
+            double t = remaining;
+            int hit = NONE;
+
+            // ceiling/floor
+            if(ballYV < 0) {
+                double ti = Math.max(0, -ballY / ballYV); // already past it counts as hitting it now
+                if(ti < t) { t = ti; hit = CEILING; }
+            } else if(ballYV > 0) {
+                double ti = Math.max(0, (HEIGHT - ballH - ballY) / ballYV);
+                if(ti < t) { t = ti; hit = FLOOR; }
+            }
+
+            if(lobbyMode) { // lobby mode collision (no paddles, think VHS logo)
+                if(ballXV > 0) {
+                    double ti = Math.max(0, (WIDTH - ballW - ballX) / ballXV);
+                    if(ti < t) { t = ti; hit = RIGHT_WALL; }
+                } else if(ballXV < 0) {
+                    double ti = Math.max(0, -ballX / ballXV);
+                    if(ti < t) { t = ti; hit = LEFT_WALL; }
+                }
+            } else {
+                double ti = sweepPaddle(padLX, padLY, t);
+                if(ti < t) { t = ti; hit = sweptFace? LEFT_FACE : PADDLE_EDGE; }
+                ti = sweepPaddle(padRX, padRY, t);
+                if(ti < t) { t = ti; hit = sweptFace? RIGHT_FACE : PADDLE_EDGE; }
+            }
+
+            ballX += ballXV * t;
+            ballY += ballYV * t;
+            remaining -= t;
+
+            switch(hit) {
+                case NONE:
+                    return;
+                case CEILING:
+                    ballY = 0;
+                    ballYV *= -1;
+                    listener.wallHit();
+                    break;
+                case FLOOR:
+                    ballY = HEIGHT - ballH;
+                    ballYV *= -1;
+                    listener.wallHit();
+                    break;
+                case LEFT_WALL:
+                    ballX = 0;
+                    ballXV *= -1;
+                    predictionValid = false;
+                    listener.wallHit();
+                    break;
+                case RIGHT_WALL:
+                    ballX = WIDTH - ballW;
+                    ballXV *= -1;
+                    predictionValid = false;
+                    listener.wallHit();
+                    break;
+                case LEFT_FACE:
+                    ballX = padLX + padW;
+                    returnBall(padLY, padLYV, 1);
+                    break;
+                case RIGHT_FACE:
+                    ballX = padRX - ballW;
+                    returnBall(padRY, padRYV, -1);
+                    break;
+                case PADDLE_EDGE: // top or bottom of either paddle
+                    rallyHits++;
+                    ballYV *= -1;
+                    predictionValid = false;
+                    listener.paddleHit();
+            }
+        }
+        if(remaining > 0) {
+            cutSweeps++;
+        }
+    }
+
+    /**
+     * Sweep the ball against one paddle box (Minkowski sum with the ball) over [0, limit].
+     * Sets {@link #sweptFace} to whether the side that was hit is the face.
+     *
+     * @param padX  the paddle x
+     * @param padY  the paddle y
+     * @param limit the latest time of interest
+     * @return the time of impact, or limit if the ball does not reach the paddle first
+     */
+    private double sweepPaddle(double padX, double padY, double limit) {
+        double left = padX - ballW, right = padX + padW; // range of ballX overlapping the paddle
+        double top = padY - ballH, bottom = padY + padH; // range of ballY overlapping the paddle
+        double t = limit;
+        boolean leftPaddle = padX < WIDTH/2;
+        // the face is the side pointing at the middle of the board
+        if(leftPaddle && ballXV < 0 && ballX >= right) {
+            double ti = (right - ballX) / ballXV;
+            if(ti < t && within(ballY + ballYV * ti, top, bottom)) { t = ti; sweptFace = true; }
+        } else if(!leftPaddle && ballXV > 0 && ballX <= left) {
+            double ti = (left - ballX) / ballXV;
+            if(ti < t && within(ballY + ballYV * ti, top, bottom)) { t = ti; sweptFace = true; }
+        }
+        if(ballYV > 0 && ballY <= top) {
+            double ti = (top - ballY) / ballYV;
+            if(ti < t && within(ballX + ballXV * ti, left, right)) { t = ti; sweptFace = false; }
+        } else if(ballYV < 0 && ballY >= bottom) {
+            double ti = (bottom - ballY) / ballYV;
+            if(ti < t && within(ballX + ballXV * ti, left, right)) { t = ti; sweptFace = false; }
+        }
+        return t;
+    }
+
+    private static boolean within(double v, double min, double max) {
+        return v >= min && v <= max;
+    }
+
+    /**
+     * Send the ball back off a paddle face: the farther from the paddle center it hits, the steeper
+     * it leaves, more so if the paddle is moving.
+     */
+    private void returnBall(double padY, double padYV, int direction) {
+        double reflection = (ballY + ballH/2) - (padY + padH/2);
+        ballXV = ballV * direction; // changes the direction
+        rallyHits++;
+        rallyMaxV = Math.max(rallyMaxV, ballV);
+        ballYV = ((padYV != 0) ? reflection * 0.1 : reflection * 0.03) * rateScale; // resets the velocity
+        ballV = Math.min(maxBallV, ballV + vAdd); // increases the speed, up to the cap
+        predictionValid = false;
+        listener.paddleHit();
+    }
+
+    private void conditionCheck() {
+        // left player scores
+        if(ballX >= WIDTH + buffer) {
+            playerLScore += 1;
+            listener.rallyEnded(ticks - rallyStart, rallyHits, rallyMaxV, (int) vDir, true, botActive, oldBot);
+            vDir = 1;
+            resetBall();
+            listener.leftScored();
+        }
+        // right player scores
+        if(ballX + ballW <= 0 - buffer) {
+            playerRScore += 1;
+            listener.rallyEnded(ticks - rallyStart, rallyHits, rallyMaxV, (int) vDir, false, botActive, oldBot);
+            vDir = -1;
+            resetBall();
+            listener.rightScored();
+        }
+
+        if(ballXV == 0 && ballYV == 0) { // built for legacy sound features
+            if(counter == kickoffTicks) { kickoff(); }
+        }
+
+        // declare winner TODO
+        if(playerLScore >= WIN_CONDITION || playerRScore >= WIN_CONDITION) {
+            lobbyMode = true;
+        }
+    }
+
+    void bot() {
+        // do the math (only when the ball's path changed)
+        if(!predictionValid) {
+            predict();
+        }
+
+        // # VERSION 1 # (on the right) (EASY Difficulty)
+        if(oldBot) {
+            if(ballYC < padRC - padH * deadZone) {
+                padRYV = botSpd * -1;
+            } else if(ballYC > padRC + padH * deadZone) {
+                padRYV = botSpd;
+            } else {
+                padRYV = 0;
+            }
+        }
+
+        // # VERSION 2 # (HARD Difficulty; to make medium remove hardmode ternary)
+        if(ballXV < 0 && botActive) {
+            double slack = (botArrival - ticks) - (Math.abs(botY - padLC) - botRange) / botSpd; // ticks to spare before it has to move
+            if(slack > 2 && padLYV == 0) {
+                // plenty of time; wait and move late so the paddle isn't committed early
+            } else if(botY < (padLC - botRange)) {
+                padLYV = botSpd * -1;
+            } else if(botY > (padLC + botRange)) {
+                padLYV = botSpd;
+            } else if(botY > (padLC - botRange) && botY < (padLC + botRange)) {
+                padLYV = (botArrival - ticks > 1)? 0 : ((botY < padLC)? botSpd : botSpd * -1); // hardmode: flick the paddle on contact for spin
+            }
+        } else if(ballXV > 0 && botActive) {
+            if(ballYC < padLC - 5) {
+                padLYV = botSpd * -1;
+            } else if(ballYC > padLC + 5) {
+                padLYV = botSpd;
+            } else {
+                padLYV = 0;
+            }
+        } else if(botActive) {
+            padLYV = 0;
+        }
+    }
+
+    /**
+     * Predict where and when the ball will reach each paddle. The path only changes on a paddle hit,
+     * a lobby wall bounce, a kickoff or a reset, so this runs once per change instead of every tick.
+     */
+    private void predict() {
+        predictionValid = true;
+        double minY = ballH/2, maxY = HEIGHT - ballH/2; // the range of the ball's center
+        double t = Trajectory.timeTo(ballX, ballXV, botX);
+        if(t != Double.POSITIVE_INFINITY) {
+            botY = Trajectory.foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+            botArrival = ticks + t;
+        }
+        t = Trajectory.timeTo(ballX + ballW, ballXV, padRX);
+        if(t != Double.POSITIVE_INFINITY) {
+            oldBotY = Trajectory.foldY(ballY + ballH/2, ballYV, t, minY, maxY);
+            oldBotArrival = ticks + t;
+        }
+    }
+
+    /**
+     * Reset the ball and paddles, clear both scores and leave lobby mode.
+     */
+    public void resetGame() {
+        resetBall();
+        resetPaddles();
+        playerRScore = 0;
+        playerLScore = 0;
+        lobbyMode = false;
+        pause = false;
+    }
+
+    /**
+     * Put the ball back in the center; it kicks off half a second later.
+     */
+    public void resetBall() {
+        counter = 0;
+        ballX = WIDTH/2 - ballW/2;
+        ballY = HEIGHT/2 - ballH/2;
+        ballXV = 0;
+        ballYV = 0;
+        ballV = ballSpd;
+        predictionValid = false;
+        prevBallX = ballX; // teleport, don't interpolate across the board
+        prevBallY = ballY;
+    }
+
+    private void resetPaddles() {
+        padLY = (HEIGHT/2) - (padH/2);
+        padRY = padLY;
+        prevPadLY = padLY;
+        prevPadRY = padRY;
+    }
+
+    private void kickoff() {
+        ballYV += random.nextDouble() * ballSpd * 2 - ballSpd;
+        ballXV = ballSpd * vDir;
+        predictionValid = false;
+        rallyStart = ticks;
+        rallyHits = 0;
+        rallyMaxV = ballSpd;
+    }
+
+    /**
+     * Picks an integer to multiply with ballXV
+     * @return either 1 or -1
+     */
+    private int getStartingDirection() {
+        return random.nextBoolean()? 1 : -1;
+    }
+
+    /**
+     * Toggle pause.
+     */
+    public void pause() {
+        pause = !pause;
+    }
+
+    /**
+     * Apply one player input. Call between ticks.
+     *
+     * @param command the command
+     */
+    public void apply(Command command) {
+        switch(command) {
+            case LEFT_UP:
+                moveLeftPaddle(-1);
+                break;
+            case LEFT_DOWN:
+                moveLeftPaddle(1);
+                break;
+            case LEFT_STOP:
+                moveLeftPaddle(0);
+                break;
+            case RIGHT_UP:
+                moveRightPaddle(-1);
+                break;
+            case RIGHT_DOWN:
+                moveRightPaddle(1);
+                break;
+            case RIGHT_STOP:
+                moveRightPaddle(0);
+                break;
+            case START_OR_PAUSE:
+                if(lobbyMode) {
+                    resetGame();
+                } else {
+                    pause();
+                }
+                break;
+            case RESET_GAME:
+                resetGame();
+                break;
+            case RESET_BALL:
+                resetBall();
+                break;
+            case TOGGLE_SMART_BOT:
+                toggleSmartBot();
+                break;
+            case TOGGLE_DUMB_BOT:
+                toggleDumbBot();
+                break;
+            case SMART_BOT_OFF:
+                if(botActive) {
+                    toggleSmartBot();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Move the left paddle; ignored while the smart bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveLeftPaddle(int direction) {
+        if(!botActive) {
+            padLYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * Move the right paddle; ignored while the dumb bot controls it.
+     *
+     * @param direction -1 for up, 1 for down, 0 to stop
+     */
+    public void moveRightPaddle(int direction) {
+        if(!oldBot) {
+            padRYV = padSpd * direction;
+        }
+    }
+
+    /**
+     * Toggle the smart bot (left paddle).
+     */
+    public void toggleSmartBot() {
+        botActive = !botActive;
+        padLYV = 0;
+    }
+
+    /**
+     * Toggle the dumb bot (right paddle).
+     */
+    public void toggleDumbBot() {
+        oldBot = !oldBot;
+        padLYV = 0;
+    }
+
+    /**
+     * Retune both bots.
+     *
+     * @param speed    bot paddle speed as a fraction of a player's (default 0.8)
+     * @param range    how far off center the smart bot lets its target be, as a fraction of half a paddle (default 0.8)
+     * @param deadZone how far off center the dumb bot lets the ball be, as a fraction of a paddle (default 0.3)
+     */
+    public void setBotTuning(double speed, double range, double deadZone) {
+        botSpd = padSpd * speed;
+        botRange = padH/2 * range;
+        this.deadZone = deadZone;
+    }
+
+    /**
+     * Place the ball, e.g. to set up a benchmark. Invalidates the bot's prediction.
+     *
+     * @param x  the x
+     * @param y  the y
+     * @param xv the x velocity per tick
+     * @param yv the y velocity per tick
+     */
+    void setBall(double x, double y, double xv, double yv) {
+        ballX = x;
+        ballY = y;
+        ballXV = xv;
+        ballYV = yv;
+        ballV = Math.abs(xv);
+        ballYC = ballY + ballH/2;
+        ballXC = ballX + ballW/2;
+        predictionValid = false;
+    }
+
+    /**
+     * Place both paddles, e.g. to set up a benchmark.
+     *
+     * @param leftY  the left paddle y
+     * @param rightY the right paddle y
+     */
+    void setPaddles(double leftY, double rightY) {
+        padLY = leftY;
+        padRY = rightY;
+        padLC = padLY + padH/2;
+        padRC = padRY + padH/2;
+    }
+
+    /**
+     * Show a state received from a game running elsewhere, for spectating; nothing is simulated.
+     * The positions shown so far become the start of the next interpolation.
+     *
+     * @param ticks        the other game's tick count
+     * @param playerLScore the left score
+     * @param playerRScore the right score
+     * @param lobbyMode    whether it is in lobby mode
+     * @param pause        whether it is paused
+     * @param botActive    whether the smart bot has the left paddle
+     * @param oldBot       whether the dumb bot has the right paddle
+     * @param ballX        the ball x
+     * @param ballY        the ball y
+     * @param padLY        the left paddle y
+     * @param padRY        the right paddle y
+     * @param botY         the smart bot's predicted ball center y
+     */
+    public void show(long ticks, int playerLScore, int playerRScore, boolean lobbyMode, boolean pause, boolean botActive,
+                     boolean oldBot, double ballX, double ballY, double padLY, double padRY, double botY) {
+        prevBallX = this.ballX;
+        prevBallY = this.ballY;
+        prevPadLY = this.padLY;
+        prevPadRY = this.padRY;
+        this.ticks = ticks;
+        this.playerLScore = playerLScore;
+        this.playerRScore = playerRScore;
+        this.lobbyMode = lobbyMode;
+        this.pause = pause;
+        this.botActive = botActive;
+        this.oldBot = oldBot;
+        this.ballX = ballX;
+        this.ballY = ballY;
+        this.padLY = padLY;
+        this.padRY = padRY;
+        this.botY = botY;
+    }
+
+    /**
+     * Copy what a frame needs to draw this tick into a snapshot, for a simulation running on its own thread.
+     *
+     * @param snapshot the snapshot to overwrite
+     */
+    void capture(FrameSnapshot snapshot) {
+        snapshot.ticks = ticks;
+        snapshot.ballX = ballX;
+        snapshot.ballY = ballY;
+        snapshot.prevBallX = prevBallX;
+        snapshot.prevBallY = prevBallY;
+        snapshot.ballXV = ballXV;
+        snapshot.ballYV = ballYV;
+        snapshot.padLY = padLY;
+        snapshot.padRY = padRY;
+        snapshot.prevPadLY = prevPadLY;
+        snapshot.prevPadRY = prevPadRY;
+        snapshot.padLYV = padLYV;
+        snapshot.padRYV = padRYV;
+        snapshot.botY = botY;
+        snapshot.playerLScore = playerLScore;
+        snapshot.playerRScore = playerRScore;
+        snapshot.lobbyMode = lobbyMode;
+        snapshot.pause = pause;
+        snapshot.botActive = botActive;
+        snapshot.oldBot = oldBot;
+    }
+
+    /**
+     * Show a tick simulated on another thread; nothing is simulated. Unlike {@link #show(long, int, int,
+     * boolean, boolean, boolean, boolean, double, double, double, double, double)} this keeps the
+     * simulation's own previous positions, so frames interpolate the same as a locally ticked engine.
+     *
+     * @param snapshot the tick to show
+     */
+    public void show(FrameSnapshot snapshot) {
+        ticks = snapshot.ticks;
+        ballX = snapshot.ballX;
+        ballY = snapshot.ballY;
+        prevBallX = snapshot.prevBallX;
+        prevBallY = snapshot.prevBallY;
+        ballXV = snapshot.ballXV;
+        ballYV = snapshot.ballYV;
+        padLY = snapshot.padLY;
+        padRY = snapshot.padRY;
+        prevPadLY = snapshot.prevPadLY;
+        prevPadRY = snapshot.prevPadRY;
+        padLYV = snapshot.padLYV;
+        padRYV = snapshot.padRYV;
+        botY = snapshot.botY;
+        playerLScore = snapshot.playerLScore;
+        playerRScore = snapshot.playerRScore;
+        lobbyMode = snapshot.lobbyMode;
+        pause = snapshot.pause;
+        botActive = snapshot.botActive;
+        oldBot = snapshot.oldBot;
+    }
+
+    /**
+     * Copy the game state into a snapshot. The random source is only included when it is a
+     * {@link RewindableRandom}.
+     *
+     * @param state the snapshot to overwrite
+     */
+    public void save(EngineState state) {
+        state.playerLScore = playerLScore;
+        state.playerRScore = playerRScore;
+        state.counter = counter;
+        state.pause = pause;
+        state.lobbyMode = lobbyMode;
+        state.padLY = padLY;
+        state.padRY = padRY;
+        state.padLYV = padLYV;
+        state.padRYV = padRYV;
+        state.ballX = ballX;
+        state.ballY = ballY;
+        state.ballXV = ballXV;
+        state.ballYV = ballYV;
+        state.ballV = ballV;
+        state.vDir = vDir;
+        state.prevBallX = prevBallX;
+        state.prevBallY = prevBallY;
+        state.prevPadLY = prevPadLY;
+        state.prevPadRY = prevPadRY;
+        state.ballXC = ballXC;
+        state.ballYC = ballYC;
+        state.padLC = padLC;
+        state.padRC = padRC;
+        state.botX = botX;
+        state.botY = botY;
+        state.oldBotY = oldBotY;
+        state.botArrival = botArrival;
+        state.oldBotArrival = oldBotArrival;
+        state.predictionValid = predictionValid;
+        state.botActive = botActive;
+        state.oldBot = oldBot;
+        state.ticks = ticks;
+        state.rallyStart = rallyStart;
+        state.rallyHits = rallyHits;
+        state.rallyMaxV = rallyMaxV;
+        if(random instanceof RewindableRandom) {
+            state.randomState = ((RewindableRandom) random).getState();
+        }
+    }
+
+    /**
+     * Put the game back the way it was when a snapshot was saved.
+     *
+     * @param state the snapshot
+     */
+    public void restore(EngineState state) {
+        playerLScore = state.playerLScore;
+        playerRScore = state.playerRScore;
+        counter = state.counter;
+        pause = state.pause;
+        lobbyMode = state.lobbyMode;
+        padLY = state.padLY;
+        padRY = state.padRY;
+        padLYV = state.padLYV;
+        padRYV = state.padRYV;
+        ballX = state.ballX;
+        ballY = state.ballY;
+        ballXV = state.ballXV;
+        ballYV = state.ballYV;
+        ballV = state.ballV;
+        vDir = state.vDir;
+        prevBallX = state.prevBallX;
+        prevBallY = state.prevBallY;
+        prevPadLY = state.prevPadLY;
+        prevPadRY = state.prevPadRY;
+        ballXC = state.ballXC;
+        ballYC = state.ballYC;
+        padLC = state.padLC;
+        padRC = state.padRC;
+        botX = state.botX;
+        botY = state.botY;
+        oldBotY = state.oldBotY;
+        botArrival = state.botArrival;
+        oldBotArrival = state.oldBotArrival;
+        predictionValid = state.predictionValid;
+        botActive = state.botActive;
+        oldBot = state.oldBot;
+        ticks = state.ticks;
+        rallyStart = state.rallyStart;
+        rallyHits = state.rallyHits;
+        rallyMaxV = state.rallyMaxV;
+        if(random instanceof RewindableRandom) {
+            ((RewindableRandom) random).setState(state.randomState);
+        }
+    }
+
+    /**
+     * Sets the probe that receives per-phase tick timings.
+     *
+     * @param probe the probe, or null to stop timing
+     */
+    public void setProbe(PhaseProbe probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * Sets the listener that receives wall, paddle and score events.
+     *
+     * @param listener the listener, or {@link GameListener#NONE}
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Whether a match has been won (lobby mode is also the attract screen before the first match).
+     *
+     * @return true once either score reaches {@link #WIN_CONDITION}
+     */
+    public boolean isMatchOver() {
+        return playerLScore >= WIN_CONDITION || playerRScore >= WIN_CONDITION;
+    }
+
+    public int getRateInMs() {
+        return rateInMs;
+    }
+
+    public int getPlayerLScore() {
+        return playerLScore;
+    }
+
+    public int getPlayerRScore() {
+        return playerRScore;
+    }
+
+    public boolean isPaused() {
+        return pause;
+    }
+
+    public boolean isLobbyMode() {
+        return lobbyMode;
+    }
+
+    public double getBuffer() {
+        return buffer;
+    }
+
+    public double getPadW() {
+        return padW;
+    }
+
+    public double getPadH() {
+        return padH;
+    }
+
+    public double getPadLX() {
+        return padLX;
+    }
+
+    public double getPadLY() {
+        return padLY;
+    }
+
+    public double getPadRX() {
+        return padRX;
+    }
+
+    public double getPadRY() {
+        return padRY;
+    }
+
+    public double getPadLYV() {
+        return padLYV;
+    }
+
+    public double getPadRYV() {
+        return padRYV;
+    }
+
+    public double getBallW() {
+        return ballW;
+    }
+
+    public double getBallH() {
+        return ballH;
+    }
+
+    public double getBallX() {
+        return ballX;
+    }
+
+    public double getBallY() {
+        return ballY;
+    }
+
+    /**
+     * The ball x position between the previous tick and the current one.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getBallX(double alpha) {
+        return prevBallX + (ballX - prevBallX) * alpha;
+    }
+
+    /**
+     * The ball y position between the previous tick and the current one.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getBallY(double alpha) {
+        return prevBallY + (ballY - prevBallY) * alpha;
+    }
+
+    /**
+     * The left paddle y position between the previous tick and the current one.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getPadLY(double alpha) {
+        return prevPadLY + (padLY - prevPadLY) * alpha;
+    }
+
+    /**
+     * The right paddle y position between the previous tick and the current one.
+     *
+     * @param alpha 0 for the previous tick, 1 for the current one
+     * @return the interpolated position
+     */
+    public double getPadRY(double alpha) {
+        return prevPadRY + (padRY - prevPadRY) * alpha;
+    }
+
+    public double getBallXV() {
+        return ballXV;
+    }
+
+    public double getBallYV() {
+        return ballYV;
+    }
+
+    public double getBallV() {
+        return ballV;
+    }
+
+    /**
+     * The fastest a return off a paddle sends the ball.
+     *
+     * @return the speed cap in pixels per tick
+     */
+    public double getMaxBallV() {
+        return maxBallV;
+    }
+
+    /**
+     * Ticks whose ball ran out of bounces before the end of the tick and dropped the rest of its travel.
+     *
+     * @return the count
+     */
+    public long getCutSweeps() {
+        return cutSweeps;
+    }
+
+    public double getBotX() {
+        return botX;
+    }
+
+    public double getBotY() {
+        return botY;
+    }
+
+    /**
+     * The predicted ball center y when it reaches the right paddle face.
+     *
+     * @return the y position
+     */
+    public double getOldBotY() {
+        return oldBotY;
+    }
+
+    /**
+     * How many ticks until the ball reaches the left paddle face, if it is heading there.
+     *
+     * @return the time in ticks, or 0 if it is heading right
+     */
+    public double getBotArrival() {
+        return ballXV < 0 ? Math.max(0, botArrival - ticks) : 0;
+    }
+
+    /**
+     * How many ticks until the ball reaches the right paddle face, if it is heading there.
+     *
+     * @return the time in ticks, or 0 if it is heading left
+     */
+    public double getOldBotArrival() {
+        return ballXV > 0 ? Math.max(0, oldBotArrival - ticks) : 0;
+    }
+
+    public boolean isBotActive() {
+        return botActive;
+    }
+
+    public boolean isOldBot() {
+        return oldBot;
+    }
+
+    /**
+     * The ticks run since construction, never reset.
+     *
+     * @return the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
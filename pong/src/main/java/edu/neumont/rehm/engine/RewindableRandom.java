@@ -0,0 +1,45 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} whose state can be read and put back, so an engine snapshot can include it.
+ * Uses the same generator as Random, so a seed gives the same numbers with either class.
+ * Not thread-safe.
+ */
+public class RewindableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+
+    private long state; // no initializer: Random's constructor sets it through setSeed
+
+    /**
+     * Instantiates a new generator.
+     *
+     * @param seed the seed
+     */
+    public RewindableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,216 @@
+package edu.neumont.rehm.engine;
+
+import edu.neumont.rehm.metrics.LatencyHistogram;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Runs an engine on its own thread at its fixed tick rate, so nothing the drawing thread does
+ * (layout, a window drag, a slow frame) can hold up the game clock. Input comes in through an
+ * {@link InputQueue} written by the drawing thread; after every tick the thread publishes a
+ * {@link FrameSnapshot} through a {@link SnapshotExchange} for the drawing thread to pick up.
+ * Neither side ever waits for the other.
+ * <p>
+ * Engine events are counted into the snapshots instead of being passed on, so sounds can be
+ * played on the drawing thread; only {@link GameListener#rallyEnded} is forwarded, from the
+ * simulation thread. Each tick's lateness against its schedule is kept as the tick jitter.
+ */
+public class SimulationLoop implements GameListener {
+
+    private final PongEngine engine;
+    private final InputQueue input;
+    private final GameListener rallies;
+    private final ObjLongConsumer<Command> recorder;
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private final long stepNanos, maxBehindNanos;
+    private volatile LookaheadBot lookahead;
+    private volatile boolean deciding = false; // set before lookahead is read, so setLookahead can wait out a decide()
+
+    private long tickIndex = 0; // every step, paused or not; what recorded input is keyed by
+    private long wallHits = 0, paddleHits = 0, leftScores = 0, rightScores = 0, inputTime = -1;
+    private final LatencyHistogram jitter = new LatencyHistogram(), tickTime = new LatencyHistogram();
+    private long droppedTicks = 0;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Take over an engine and start ticking it. From here on only the loop's thread may touch the engine,
+     * until {@link #stop()} returns.
+     *
+     * @param engine   the engine; its listener is replaced
+     * @param input    commands from the drawing thread, applied at the start of each tick
+     * @param rallies  receives {@link GameListener#rallyEnded} on the simulation thread
+     * @param recorder receives each command applied and the step index it was applied at, or null
+     * @param maxSteps the most ticks to run back to back after a stall; any further behind is skipped
+     */
+    public SimulationLoop(PongEngine engine, InputQueue input, GameListener rallies, ObjLongConsumer<Command> recorder, int maxSteps) {
+        this.engine = engine;
+        this.input = input;
+        this.rallies = rallies;
+        this.recorder = recorder;
+        stepNanos = engine.getRateInMs() * 1_000_000L;
+        maxBehindNanos = stepNanos * maxSteps;
+        engine.setListener(this);
+        publish();
+        thread = new Thread(this::loop, "simulation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    private void loop() {
+        long next = System.nanoTime() + stepNanos;
+        while(running) {
+            long now = System.nanoTime();
+            if(now < next) {
+                LockSupport.parkNanos(this, next - now);
+                continue;
+            }
+            if(now - next > maxBehindNanos) { // fell too far behind; don't try to catch up
+                droppedTicks += (now - next) / stepNanos;
+                next = now;
+            }
+            jitter.record(now - next);
+            step();
+            tickTime.record(System.nanoTime() - now);
+            next += stepNanos;
+        }
+    }
+
+    private void step() {
+        while(!input.isEmpty()) {
+            Command command = input.peekCommand();
+            long time = input.peekTime();
+            input.remove();
+            apply(command, time);
+        }
+        deciding = true;
+        LookaheadBot bot = lookahead;
+        if(bot != null) {
+            Command command = bot.decide(engine);
+            if(command != null) {
+                apply(command, System.nanoTime());
+            }
+        }
+        deciding = false;
+        engine.tick();
+        tickIndex++;
+        publish();
+    }
+
+    private void apply(Command command, long time) {
+        if(recorder != null) {
+            recorder.accept(command, tickIndex);
+        }
+        double padLYV = engine.getPadLYV(), padRYV = engine.getPadRYV();
+        engine.apply(command);
+        if(command.isPaddleMove() && ((engine.getPadLYV() != padLYV && engine.getPadLYV() != 0) ||
+                                      (engine.getPadRYV() != padRYV && engine.getPadRYV() != 0))) {
+            inputTime = time;
+        }
+    }
+
+    private void publish() {
+        FrameSnapshot snapshot = snapshots.back();
+        engine.capture(snapshot);
+        snapshot.tickIndex = tickIndex;
+        snapshot.wallHits = wallHits;
+        snapshot.paddleHits = paddleHits;
+        snapshot.leftScores = leftScores;
+        snapshot.rightScores = rightScores;
+        snapshot.inputTime = inputTime;
+        snapshot.time = System.nanoTime();
+        snapshots.publish();
+    }
+
+    /**
+     * The newest tick; drawing thread only.
+     *
+     * @return the snapshot, which stays valid until the next call
+     */
+    public FrameSnapshot latest() {
+        return snapshots.latest();
+    }
+
+    /**
+     * Hand the left paddle to a lookahead bot, or take it back; it runs on the simulation thread.
+     * Returns once the simulation thread is done with the previous bot (at most one search budget),
+     * so the caller may read that bot's counters.
+     *
+     * @param lookahead the bot, or null
+     */
+    public void setLookahead(LookaheadBot lookahead) {
+        this.lookahead = lookahead;
+        while(deciding && thread.isAlive()) { // a decide() that read the old bot before the write
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Stop ticking and wait for the thread to finish; the engine is the caller's again.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void wallHit() {
+        wallHits++;
+    }
+
+    @Override
+    public void paddleHit() {
+        paddleHits++;
+    }
+
+    @Override
+    public void leftScored() {
+        leftScores++;
+    }
+
+    @Override
+    public void rightScored() {
+        rightScores++;
+    }
+
+    @Override
+    public void rallyEnded(long ticks, int hits, double maxSpeed, int serveDirection, boolean leftWon, boolean smartBot, boolean dumbBot) {
+        rallies.rallyEnded(ticks, hits, maxSpeed, serveDirection, leftWon, smartBot, dumbBot);
+    }
+
+    /**
+     * Steps run, paused or not; read once stopped.
+     *
+     * @return the step count
+     */
+    public long getTickIndex() {
+        return tickIndex;
+    }
+
+    public LatencyHistogram getJitter() {
+        return jitter;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * Tick jitter and cost, for the console; exact once stopped.
+     *
+     * @return one line
+     */
+    public String summary() {
+        return String.format("simulation thread: %d ticks, jitter p50 %.2f ms  p99 %.2f ms  max %.2f ms, tick p99 %.1f us, %d ticks skipped",
+                tickIndex, jitter.percentile(50) / 1e6, jitter.percentile(99) / 1e6, jitter.getMax() / 1e6,
+                tickTime.percentile(99) / 1e3, droppedTicks);
+    }
+}
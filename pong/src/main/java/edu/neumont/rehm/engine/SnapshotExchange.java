@@ -0,0 +1,70 @@
+package edu.neumont.rehm.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands {@link FrameSnapshot}s from one writer thread to one reader thread without locks or
+ * allocation. Three snapshots rotate: the writer fills its back one and swaps it into the middle,
+ * the reader swaps the middle for its front one when something new is there. Neither ever waits
+ * for the other, the reader always gets the newest complete snapshot, and snapshots the reader
+ * was too slow to see are simply overwritten.
+ */
+public class SnapshotExchange {
+
+    private static final int FRESH = 4; // set in middle when it holds a snapshot the reader hasn't taken
+    private static final int INDEX = 3;
+
+    private final FrameSnapshot[] snapshots = {new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; // the writer's
+    private int front = 2; // the reader's
+    private long published = 0, taken = 0;
+
+    /**
+     * The snapshot to fill next; writer only. It holds stale data, so write every field.
+     *
+     * @return the back snapshot
+     */
+    public FrameSnapshot back() {
+        return snapshots[back];
+    }
+
+    /**
+     * Hand the back snapshot over; writer only.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+        published++;
+    }
+
+    /**
+     * The newest snapshot published; reader only. It stays the reader's until the next call.
+     *
+     * @return the snapshot; one with tick index -1 if nothing has been published
+     */
+    public FrameSnapshot latest() {
+        if((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+            taken++;
+        }
+        return snapshots[front];
+    }
+
+    /**
+     * Snapshots published so far; writer only, or once the writer has stopped.
+     *
+     * @return the count
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Snapshots the reader has taken; reader only.
+     *
+     * @return the count
+     */
+    public long getTaken() {
+        return taken;
+    }
+}
@@ -0,0 +1,47 @@
+package edu.neumont.rehm.engine;
+
+/**
+ * Closed-form ball path prediction between the ceiling and the floor.
+ * Wall bounces are folded with modular reflection, so the cost does not depend on how many there are.
+ */
+public final class Trajectory {
+
+    private Trajectory() {}
+
+    /**
+     * How many ticks until the ball reaches an x position.
+     *
+     * @param x       the ball x now
+     * @param xv      the ball x velocity per tick
+     * @param targetX the x to reach
+     * @return the time in ticks, or infinity if the ball is not heading there
+     */
+    public static double timeTo(double x, double xv, double targetX) {
+        double t = (targetX - x) / xv;
+        return (xv == 0 || t < 0) ? Double.POSITIVE_INFINITY : t;
+    }
+
+    /**
+     * Where the ball will be after some time, bouncing between two y limits.
+     *
+     * @param y    the ball y now
+     * @param yv   the ball y velocity per tick
+     * @param t    the time in ticks
+     * @param minY the smallest y the ball can have (its ceiling)
+     * @param maxY the largest y the ball can have (its floor)
+     * @return the y position after t ticks
+     */
+    public static double foldY(double y, double yv, double t, double minY, double maxY) {
+        double range = maxY - minY;
+        if(range <= 0) {
+            return minY;
+        }
+        double period = range * 2;
+        double unfolded = (y - minY) + yv * t;
+        double m = unfolded % period;
+        if(m < 0) {
+            m += period;
+        }
+        return minY + (m <= range ? m : period - m);
+    }
+}
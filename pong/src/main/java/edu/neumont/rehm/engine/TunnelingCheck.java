@@ -0,0 +1,201 @@
+package edu.neumont.rehm.engine;
+
+import java.util.Random;
+
+/**
+ * Checks that the swept collision solver never lets the ball through a paddle or off the board, at
+ * any speed and tick length, and exits with status 1 if it ever does so a build step can fail on it.
+ * <p>
+ * A pass-through is a step in which the ball's path, folded off the ceiling and floor, crosses a
+ * paddle's face plane within the paddle and no paddle hit is reported. Paths that need more
+ * bounces than a tick allows before they reach the paddle are cut short by design, so they are
+ * only counted.
+ * <p>
+ * Shots: the ball is placed between still paddles at random heights. It is fired at one of them at
+ * 1 to 1,000,000 px per tick, at slopes from steep to nearly flat, and one collision step is run.
+ * Afterwards the ball has to be between the ceiling and the floor and not inside either paddle,
+ * and a ball sent back off a face may not be left faster than the speed cap.
+ * <p>
+ * Matches: bot-vs-bot games, checked for pass-throughs and for the ball leaving the board after
+ * every tick. They are not checked for overlap, since a paddle can move onto a ball that has
+ * already gone past it.
+ */
+public class TunnelingCheck {
+
+    private static final int[] RATES = {5, 20, 50};
+    private static final double HEIGHT = PongEngine.HEIGHT;
+    private static final int MAX_FOLDS = 14; // bounces before the face plane that still leave the solver bounces to spare
+
+    private final Random random;
+    private long shots = 0, faceCrossings = 0, tunnels = 0, offBoard = 0, insidePaddle = 0, overCap = 0, cut = 0;
+    private int paddleHits = 0;
+    private final GameListener counter = new GameListener() {
+        @Override
+        public void paddleHit() {
+            paddleHits++;
+        }
+    };
+
+    private TunnelingCheck(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Fire one ball and check the step.
+     */
+    private void shot(PongEngine engine, EngineState state, double speed) {
+        double ballW = engine.getBallW(), ballH = engine.getBallH(), padW = engine.getPadW(), padH = engine.getPadH();
+        engine.save(state);
+        state.padLY = random.nextDouble() * (HEIGHT - padH);
+        state.padRY = random.nextDouble() * (HEIGHT - padH);
+        state.padLC = state.padLY + padH/2;
+        state.padRC = state.padRY + padH/2;
+        engine.restore(state);
+
+        double faceL = engine.getPadLX() + padW, faceR = engine.getPadRX() - ballW; // ballX touching each face
+        double x = faceL + random.nextDouble() * (faceR - faceL), y = random.nextDouble() * (HEIGHT - ballH);
+        double slope = (random.nextDouble() * 2 - 1) * Math.pow(10, -random.nextInt(7)); // 1 down to 1e-6
+        double xv = random.nextBoolean() ? -speed : speed, yv = speed * slope;
+        engine.setBall(x, y, xv, yv);
+
+        paddleHits = 0;
+        long cutBefore = engine.getCutSweeps();
+        engine.collisionCheck();
+        shots++;
+        cut += engine.getCutSweeps() - cutBefore;
+
+        checkCrossing(engine, speed, x, y, xv, yv, engine.getBallX());
+        checkOnBoard(engine, speed, x, y, xv, yv);
+        if(inside(engine, engine.getPadLX(), engine.getPadLY()) || inside(engine, engine.getPadRX(), engine.getPadRY())) {
+            insidePaddle++;
+            report("ended inside a paddle", engine, speed, x, y, xv, yv);
+        }
+        if(engine.getBallXV() * xv < 0 && engine.getBallV() > engine.getMaxBallV()) { // sent back off a face
+            overCap++;
+            report("returned over the speed cap", engine, speed, x, y, xv, yv);
+        }
+    }
+
+    /**
+     * Play bot-vs-bot matches and check every tick.
+     *
+     * @return the fastest the ball went
+     */
+    private double match(int rateInMs, int ticks) {
+        PongEngine engine = new PongEngine(rateInMs, new Random(random.nextLong()));
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        engine.setListener(counter);
+        double fastest = 0;
+        for(int i = 0; i < ticks; i++) {
+            double x = engine.getBallX(), y = engine.getBallY(), xv = engine.getBallXV(), yv = engine.getBallYV();
+            int scores = engine.getPlayerLScore() + engine.getPlayerRScore();
+            paddleHits = 0;
+            engine.tick();
+            if(engine.getPlayerLScore() + engine.getPlayerRScore() == scores) { // a point resets the ball
+                checkCrossing(engine, Math.abs(xv), x, y, xv, yv, engine.getBallX());
+            }
+            checkOnBoard(engine, Math.abs(xv), x, y, xv, yv);
+            fastest = Math.max(fastest, engine.getBallV());
+            if(engine.isMatchOver()) {
+                engine.resetGame();
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Whether a step from (x, y) at (xv, yv) that ended at endX crossed the face plane of the paddle
+     * it was heading for within the paddle, and if so that it reported a hit. The paddles are where
+     * they were during the step.
+     */
+    private void checkCrossing(PongEngine engine, double speed, double x, double y, double xv, double yv, double endX) {
+        boolean left = xv < 0;
+        double face = left ? engine.getPadLX() + engine.getPadW() : engine.getPadRX() - engine.getBallW();
+        boolean reached = left ? x >= face && (endX < face || paddleHits > 0) : x <= face && (endX > face || paddleHits > 0);
+        double t = (face - x) / xv;
+        if(xv == 0 || !reached || t > 1) {
+            return;
+        }
+        double floor = HEIGHT - engine.getBallH(), u = y + yv * t;
+        long folds = u >= 0 ? (long) Math.floor(u / floor) : (long) Math.floor(-u / floor) + 1;
+        double m = u % (2 * floor);
+        m = m < 0 ? m + 2 * floor : m;
+        double atFace = m <= floor ? m : 2 * floor - m;
+        double padY = left ? engine.getPadLY() : engine.getPadRY();
+        double eps = 1e-6 * (1 + Math.abs(u) / floor); // rounding in the solver's bounce-by-bounce path
+        if(folds <= MAX_FOLDS && atFace > padY - engine.getBallH() + eps && atFace < padY + engine.getPadH() - eps) {
+            faceCrossings++;
+            if(paddleHits == 0) {
+                tunnels++;
+                report("went through a paddle", engine, speed, x, y, xv, yv);
+            }
+        }
+    }
+
+    private void checkOnBoard(PongEngine engine, double speed, double x, double y, double xv, double yv) {
+        double ballY = engine.getBallY();
+        if(!(ballY >= 0 && ballY <= HEIGHT - engine.getBallH())) {
+            offBoard++;
+            report("left the board", engine, speed, x, y, xv, yv);
+        }
+    }
+
+    private static boolean inside(PongEngine engine, double padX, double padY) {
+        double eps = 1e-6;
+        double x = engine.getBallX(), y = engine.getBallY();
+        return x + engine.getBallW() > padX + eps && x < padX + engine.getPadW() - eps &&
+               y + engine.getBallH() > padY + eps && y < padY + engine.getPadH() - eps;
+    }
+
+    private void report(String what, PongEngine engine, double speed, double x, double y, double xv, double yv) {
+        if(tunnels + offBoard + insidePaddle + overCap <= 10) {
+            System.out.printf("  %s: %d ms ticks, %.0f px/tick from (%s, %s) at (%s, %s), paddles %s/%s, ball now (%s, %s)%n",
+                    what, engine.getRateInMs(), speed, x, y, xv, yv, engine.getPadLY(), engine.getPadRY(), engine.getBallX(), engine.getBallY());
+        }
+    }
+
+    private long failures() {
+        return tunnels + offBoard + insidePaddle + overCap;
+    }
+
+    /**
+     * The entry point: shots at every tick length and speed, then a bot match at every tick length.
+     *
+     * @param args optional shots per speed (default 100000), match ticks per tick length (default 200000) and seed (default 1)
+     */
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        TunnelingCheck check = new TunnelingCheck(seed);
+        EngineState state = new EngineState();
+        for(int rateInMs : RATES) {
+            PongEngine engine = new PongEngine(rateInMs, new Random(seed));
+            engine.resetGame();
+            engine.setListener(check.counter);
+            for(double speed = 1; speed <= 1e6; speed *= 10) {
+                long crossings = check.faceCrossings, failures = check.failures(), cut = check.cut;
+                for(int i = 0; i < trials; i++) {
+                    check.shot(engine, state, speed);
+                }
+                System.out.printf("%2d ms ticks, %7.0f px/tick: %6d shots at a paddle, %d failed, %d out of bounces%n",
+                        rateInMs, speed, check.faceCrossings - crossings, check.failures() - failures, check.cut - cut);
+            }
+        }
+        for(int rateInMs : RATES) {
+            long crossings = check.faceCrossings, failures = check.failures();
+            double fastest = check.match(rateInMs, ticks);
+            System.out.printf("%2d ms ticks, bot match: %d ticks, %d at a paddle, fastest %.1f px/tick, %d failed%n",
+                    rateInMs, ticks, check.faceCrossings - crossings, fastest, check.failures() - failures);
+        }
+        System.out.printf("%d through a paddle, %d off the board, %d inside a paddle, %d over the speed cap%n",
+                check.tunnels, check.offBoard, check.insidePaddle, check.overCap);
+        System.out.printf("tunneling check, %d shots: %s%n", check.shots, check.failures() > 0 ? "FAILED" : "ok");
+        if(check.failures() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package edu.neumont.rehm.env;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The trainer's side of {@link EnvServer}, and a random-action trainer that measures steps per
+ * second across processes. A trainer in another language does the same: map the file, write the
+ * actions, bump the request counter and wait for the response counter to match, with a release
+ * fence before the counter write and an acquire fence after the counter read (see {@link EnvLayout}).
+ */
+public class EnvClient {
+
+    private final MappedByteBuffer buffer;
+    private final int envs, observations, rewards, dones;
+    private long request = 0;
+
+    /**
+     * Map a file an {@link EnvServer} is serving.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be mapped or isn't an environment
+     */
+    public EnvClient(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.getInt(0) != EnvLayout.MAGIC || buffer.getInt(4) != EnvLayout.VERSION) {
+            throw new IOException("not a pong environment");
+        }
+        envs = buffer.getInt(EnvLayout.ENVS_OFFSET);
+        observations = EnvLayout.observations(envs);
+        rewards = EnvLayout.rewards(envs);
+        dones = EnvLayout.dones(envs);
+        request = buffer.getLong(EnvLayout.REQUEST_OFFSET);
+    }
+
+    /**
+     * Start every game over and wait for the first observations.
+     *
+     * @param seed the seed
+     */
+    public void reset(long seed) {
+        buffer.putLong(EnvLayout.SEED_OFFSET, seed);
+        send(EnvLayout.RESET);
+    }
+
+    /**
+     * Run one step with the actions already set and wait for the results.
+     */
+    public void step() {
+        send(EnvLayout.STEP);
+    }
+
+    /**
+     * Tell the server to stop and wait for it to acknowledge.
+     */
+    public void close() {
+        send(EnvLayout.CLOSE);
+    }
+
+    private void send(int command) {
+        buffer.putInt(EnvLayout.COMMAND_OFFSET, command);
+        EnvLayout.beforePublish(); // the actions, command and seed are visible before the counter
+        buffer.putLong(EnvLayout.REQUEST_OFFSET, ++request);
+        while(true) {
+            long response = buffer.getLong(EnvLayout.RESPONSE_OFFSET);
+            EnvLayout.afterObserve(); // the results are read after the counter
+            if(response == request) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    public void setAction(int env, int action) {
+        buffer.put(EnvLayout.ACTIONS + env, (byte) action);
+    }
+
+    public float getObservation(int env, int index) {
+        return buffer.getFloat(observations + (env * EnvLayout.OBSERVATION_SIZE + index) * 4);
+    }
+
+    public float getReward(int env) {
+        return buffer.getFloat(rewards + env * 4);
+    }
+
+    public boolean isDone(int env) {
+        return buffer.get(dones + env) != 0;
+    }
+
+    public int size() {
+        return envs;
+    }
+
+    /**
+     * The entry point: drive a running server with random actions and print steps per second.
+     *
+     * @param args the file, then optional seconds (default 10) and seed
+     */
+    public static void main(String[] args) {
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        try {
+            EnvClient client = new EnvClient(Paths.get(args[0]));
+            int envs = client.size();
+            Random random = new Random(seed);
+            client.reset(seed);
+            long steps = 0, points = 0, start = System.nanoTime(), end = start + seconds * 1_000_000_000L, now;
+            do {
+                for(int i = 0; i < envs; i++) {
+                    client.setAction(i, random.nextInt(3) - 1);
+                }
+                client.step();
+                steps++;
+                for(int i = 0; i < envs; i++) {
+                    if(client.getReward(i) != 0) {
+                        points++;
+                    }
+                }
+            } while((now = System.nanoTime()) < end);
+            client.close();
+            double elapsed = (now - start) / 1e9;
+            System.out.printf("%d envs: %.0f env steps/s (%.0f batch steps/s), %d points%n",
+                    envs, steps * envs / elapsed, steps / elapsed, points);
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
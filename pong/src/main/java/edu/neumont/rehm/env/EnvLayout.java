@@ -0,0 +1,89 @@
+package edu.neumont.rehm.env;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+/**
+ * The shared-memory layout {@link PongEnv} reads actions from and writes results to.
+ * Everything is little-endian so a numpy view over the file needs no byte swapping.
+ * <pre>
+ * header (64 bytes): int magic "PENV", int version, int envs, int frameSkip, int agentSide (0 left, 1 right),
+ *                    int command, long seed, long request, long response, long steps, long reserved
+ * actions:      byte per env, -1 up, 0 stay, 1 down
+ * observations: 8 floats per env (see {@link PongEnv})
+ * rewards:      float per env
+ * dones:        byte per env
+ * </pre>
+ * Each section starts on a 64 byte boundary. The request/response counters are only used by
+ * {@link EnvServer} to hand steps back and forth with another process.
+ * <p>
+ * The buffer is read and written with plain accesses, and the two processes share no Java
+ * memory model. So each side fences the counters explicitly: {@link #beforePublish()} right
+ * before writing a counter the other side waits on, {@link #afterObserve()} right after reading
+ * the other side's counter. Then everything written before a counter is seen by whoever sees
+ * that counter, on weakly ordered CPUs (ARM) as well as on x86.
+ */
+final class EnvLayout {
+
+    static final int MAGIC = 0x50454E56; // "PENV"
+    static final int VERSION = 1;
+    static final int HEADER = 64;
+    static final int ENVS_OFFSET = 8, FRAME_SKIP_OFFSET = 12, AGENT_SIDE_OFFSET = 16, COMMAND_OFFSET = 20;
+    static final int SEED_OFFSET = 24, REQUEST_OFFSET = 32, RESPONSE_OFFSET = 40, STEPS_OFFSET = 48;
+    static final int STEP = 0, RESET = 1, CLOSE = 2; // commands
+    static final int OBSERVATION_SIZE = 8; // floats per env
+    static final int ACTIONS = HEADER;
+
+    private static final Unsafe UNSAFE = unsafe(); // loadFence/storeFence; Java 8 has no public fences
+
+    private EnvLayout() {}
+
+    /**
+     * Keep every buffer write so far ahead of the counter written next (a release).
+     */
+    static void beforePublish() {
+        UNSAFE.storeFence();
+    }
+
+    /**
+     * Keep every buffer read from here on behind the counter just read (an acquire). Also stops
+     * the JIT from hoisting the counter read out of a spin loop.
+     */
+    static void afterObserve() {
+        UNSAFE.loadFence();
+    }
+
+    private static Unsafe unsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch(ReflectiveOperationException ex) {
+            throw new IllegalStateException("memory fences need sun.misc.Unsafe", ex);
+        }
+    }
+
+    static int observations(int envs) {
+        return align(ACTIONS + envs);
+    }
+
+    static int rewards(int envs) {
+        return align(observations(envs) + envs * OBSERVATION_SIZE * 4);
+    }
+
+    static int dones(int envs) {
+        return align(rewards(envs) + envs * 4);
+    }
+
+    /**
+     * The bytes a buffer for a number of envs needs.
+     */
+    static int size(int envs) {
+        return align(dones(envs) + envs);
+    }
+
+    private static int align(int offset) {
+        return (offset + 63) & ~63;
+    }
+}
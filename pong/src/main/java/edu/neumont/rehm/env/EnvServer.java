@@ -0,0 +1,92 @@
+package edu.neumont.rehm.env;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves a {@link PongEnv} over a mapped file to a trainer in another process. The trainer writes
+ * its actions (and, for a reset or to stop, the command and seed) into the file, then increments
+ * the request counter; the server runs the step, writes the results and copies the counter into
+ * the response. Nothing is copied or serialized: both sides read and write the same pages.
+ * <p>
+ * The server spins briefly between requests, then yields, then parks, so an idle trainer costs
+ * little CPU while a busy one is answered within microseconds.
+ */
+public class EnvServer {
+
+    private static final int SPINS = 1000, YIELDS = 100; // before parking
+    private static final long PARK_NANOS = 100_000;
+
+    private final PongEnv env;
+    private final ByteBuffer buffer;
+    private long served = 0;
+
+    /**
+     * Instantiates a server over an environment built on a mapped file.
+     *
+     * @param env the environment
+     */
+    public EnvServer(PongEnv env) {
+        this.env = env;
+        this.buffer = env.getBuffer();
+        buffer.putLong(EnvLayout.REQUEST_OFFSET, 0);
+        buffer.putLong(EnvLayout.RESPONSE_OFFSET, 0);
+    }
+
+    /**
+     * Answer requests until the trainer sends the close command.
+     */
+    public void serve() {
+        int idle = 0;
+        while(true) {
+            long request = buffer.getLong(EnvLayout.REQUEST_OFFSET);
+            EnvLayout.afterObserve(); // the command, seed and actions are read after the counter
+            if(request == served) {
+                idle++;
+                if(idle > SPINS + YIELDS) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                } else if(idle > SPINS) {
+                    Thread.yield();
+                }
+                continue;
+            }
+            idle = 0;
+            int command = buffer.getInt(EnvLayout.COMMAND_OFFSET);
+            if(command == EnvLayout.CLOSE) {
+                EnvLayout.beforePublish();
+                buffer.putLong(EnvLayout.RESPONSE_OFFSET, request);
+                return;
+            }
+            if(command == EnvLayout.RESET) {
+                env.reset(buffer.getLong(EnvLayout.SEED_OFFSET));
+            } else {
+                env.step();
+            }
+            served = request;
+            EnvLayout.beforePublish(); // the results are visible before the counter
+            buffer.putLong(EnvLayout.RESPONSE_OFFSET, request);
+        }
+    }
+
+    /**
+     * The entry point: create the file and serve from it.
+     *
+     * @param args the file, then optional env count (default 1024), frame skip (default 4) and side (left or right, default right)
+     */
+    public static void main(String[] args) {
+        Path path = Paths.get(args[0]);
+        int envs = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int frameSkip = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        boolean agentLeft = args.length > 3 && args[3].equals("left");
+        try {
+            EnvServer server = new EnvServer(PongEnv.map(path, envs, frameSkip, agentLeft));
+            System.out.printf("serving %d envs from %s%n", envs, path);
+            server.serve();
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package edu.neumont.rehm.env;
+
+import edu.neumont.rehm.engine.BatchEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A batch of games for training a paddle controller against the built-in bots, in the style of a
+ * gym vector environment: {@link #reset(long)}, then {@link #step()} over and over.
+ * <p>
+ * Actions are read from, and observations, rewards and done flags written to, one buffer laid out as
+ * described in {@link EnvLayout}. The buffer can be a direct buffer in this process or a file mapping
+ * shared with a trainer in another, which then reads the results in place. Per env, the observation is
+ * <pre>
+ * ball x, ball y, ball x velocity, ball y velocity,
+ * agent paddle y, agent paddle y velocity, opponent paddle y, opponent paddle y velocity
+ * </pre>
+ * in pixels and pixels per tick, positions being top-left corners. The reward is +1 for every point the
+ * agent wins during the step and -1 for every point it loses. A match ends at
+ * {@link edu.neumont.rehm.engine.PongEngine#WIN_CONDITION}; that env reports done and is restarted
+ * from a fresh seed in the same step, so its observation is already the new match's first.
+ */
+public class PongEnv {
+
+    private final BatchEngine engine;
+    private final ByteBuffer buffer;
+    private final int envs, frameSkip;
+    private final boolean agentLeft;
+    private final int[] agentScore, opponentScore;
+    private final int observations, rewards, dones;
+    private long nextSeed, steps = 0;
+
+    /**
+     * Instantiates a batch over a buffer of at least {@link #bufferSize(int)} bytes and writes its header.
+     *
+     * @param buffer    the buffer actions and results are exchanged through
+     * @param envs      the number of games
+     * @param frameSkip the ticks each step runs with the same action
+     * @param agentLeft true to play the left paddle against the dumb bot, false to play the right against the smart bot
+     */
+    public PongEnv(ByteBuffer buffer, int envs, int frameSkip, boolean agentLeft) {
+        if(buffer.capacity() < bufferSize(envs)) {
+            throw new IllegalArgumentException("buffer too small for " + envs + " envs");
+        }
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.envs = envs;
+        this.frameSkip = frameSkip;
+        this.agentLeft = agentLeft;
+        engine = new BatchEngine(envs, 5);
+        agentScore = new int[envs];
+        opponentScore = new int[envs];
+        observations = EnvLayout.observations(envs);
+        rewards = EnvLayout.rewards(envs);
+        dones = EnvLayout.dones(envs);
+        buffer.putInt(0, EnvLayout.MAGIC);
+        buffer.putInt(4, EnvLayout.VERSION);
+        buffer.putInt(EnvLayout.ENVS_OFFSET, envs);
+        buffer.putInt(EnvLayout.FRAME_SKIP_OFFSET, frameSkip);
+        buffer.putInt(EnvLayout.AGENT_SIDE_OFFSET, agentLeft ? 0 : 1);
+    }
+
+    /**
+     * Instantiates a batch over a new direct buffer, for a trainer in this process.
+     *
+     * @param envs      the number of games
+     * @param frameSkip the ticks each step runs with the same action
+     * @param agentLeft true to play the left paddle, false to play the right
+     * @return the environment
+     */
+    public static PongEnv allocate(int envs, int frameSkip, boolean agentLeft) {
+        return new PongEnv(ByteBuffer.allocateDirect(bufferSize(envs)), envs, frameSkip, agentLeft);
+    }
+
+    /**
+     * Instantiates a batch over a file mapping (created or overwritten), for a trainer in another process.
+     *
+     * @param path      the file
+     * @param envs      the number of games
+     * @param frameSkip the ticks each step runs with the same action
+     * @param agentLeft true to play the left paddle, false to play the right
+     * @return the environment
+     * @throws IOException if the file can't be created or mapped
+     */
+    public static PongEnv map(Path path, int envs, int frameSkip, boolean agentLeft) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bufferSize(envs));
+            return new PongEnv(buffer, envs, frameSkip, agentLeft);
+        }
+    }
+
+    /**
+     * The bytes the shared buffer needs.
+     *
+     * @param envs the number of games
+     * @return the size in bytes
+     */
+    public static int bufferSize(int envs) {
+        return EnvLayout.size(envs);
+    }
+
+    /**
+     * Start every game over: env i from seed + i, later restarts from seed + envs onwards.
+     * Writes the first observations, clears the rewards, done flags and actions.
+     *
+     * @param seed the seed
+     */
+    public void reset(long seed) {
+        for(int i = 0; i < envs; i++) {
+            resetEnv(i, seed + i);
+            buffer.put(EnvLayout.ACTIONS + i, (byte) 0);
+            buffer.putFloat(rewards + i * 4, 0);
+            buffer.put(dones + i, (byte) 0);
+            observe(i);
+        }
+        nextSeed = seed + envs;
+    }
+
+    private void resetEnv(int i, long seed) {
+        engine.reset(i, seed, !agentLeft, agentLeft);
+        agentScore[i] = 0;
+        opponentScore[i] = 0;
+    }
+
+    /**
+     * Apply every env's action from the buffer, run frameSkip ticks and write the observations,
+     * rewards and done flags back.
+     */
+    public void step() {
+        for(int i = 0; i < envs; i++) {
+            int action = Integer.signum(buffer.get(EnvLayout.ACTIONS + i));
+            if(agentLeft) {
+                engine.moveLeftPaddle(i, action);
+            } else {
+                engine.moveRightPaddle(i, action);
+            }
+        }
+        engine.step(frameSkip);
+        for(int i = 0; i < envs; i++) {
+            int agent = agentLeft ? engine.getPlayerLScore(i) : engine.getPlayerRScore(i);
+            int opponent = agentLeft ? engine.getPlayerRScore(i) : engine.getPlayerLScore(i);
+            buffer.putFloat(rewards + i * 4, (agent - agentScore[i]) - (opponent - opponentScore[i]));
+            agentScore[i] = agent;
+            opponentScore[i] = opponent;
+            boolean done = engine.isDone(i);
+            buffer.put(dones + i, (byte) (done ? 1 : 0));
+            if(done) {
+                resetEnv(i, nextSeed++);
+            }
+            observe(i);
+        }
+        steps++;
+        buffer.putLong(EnvLayout.STEPS_OFFSET, steps * envs);
+    }
+
+    private void observe(int i) {
+        int o = observations + i * EnvLayout.OBSERVATION_SIZE * 4;
+        double agentY = agentLeft ? engine.getPadLY(i) : engine.getPadRY(i);
+        double agentYV = agentLeft ? engine.getPadLYV(i) : engine.getPadRYV(i);
+        double opponentY = agentLeft ? engine.getPadRY(i) : engine.getPadLY(i);
+        double opponentYV = agentLeft ? engine.getPadRYV(i) : engine.getPadLYV(i);
+        buffer.putFloat(o, (float) engine.getBallX(i));
+        buffer.putFloat(o + 4, (float) engine.getBallY(i));
+        buffer.putFloat(o + 8, (float) engine.getBallXV(i));
+        buffer.putFloat(o + 12, (float) engine.getBallYV(i));
+        buffer.putFloat(o + 16, (float) agentY);
+        buffer.putFloat(o + 20, (float) agentYV);
+        buffer.putFloat(o + 24, (float) opponentY);
+        buffer.putFloat(o + 28, (float) opponentYV);
+    }
+
+    /**
+     * Sets an env's action, for a trainer in this process.
+     *
+     * @param env    the env
+     * @param action -1 for up, 1 for down, 0 to stay
+     */
+    public void setAction(int env, int action) {
+        buffer.put(EnvLayout.ACTIONS + env, (byte) action);
+    }
+
+    /**
+     * One value of an env's last observation.
+     *
+     * @param env   the env
+     * @param index the value, 0 to 7 in the order listed above
+     * @return the value
+     */
+    public float getObservation(int env, int index) {
+        return buffer.getFloat(observations + (env * EnvLayout.OBSERVATION_SIZE + index) * 4);
+    }
+
+    public float getReward(int env) {
+        return buffer.getFloat(rewards + env * 4);
+    }
+
+    public boolean isDone(int env) {
+        return buffer.get(dones + env) != 0;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return envs;
+    }
+
+    public int getFrameSkip() {
+        return frameSkip;
+    }
+
+    /**
+     * The env steps run since construction, summed over all envs.
+     *
+     * @return the env steps
+     */
+    public long getSteps() {
+        return steps * envs;
+    }
+
+    /**
+     * The entry point: steps a batch with random actions in this process and prints steps per second.
+     *
+     * @param args optional env count (default 1024), frame skip (default 4), seconds per round (default 5) and seed
+     */
+    public static void main(String[] args) {
+        int envs = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int frameSkip = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        PongEnv env = allocate(envs, frameSkip, false);
+        env.reset(seed);
+        Random random = new Random(seed);
+        long episodes = 0, points = 0;
+        for(int round = 1; round <= 3; round++) { // the first round includes JIT warm-up
+            long start = System.nanoTime(), end = start + seconds * 1_000_000_000L, first = env.getSteps(), now;
+            do {
+                for(int i = 0; i < envs; i++) {
+                    env.setAction(i, random.nextInt(3) - 1);
+                }
+                env.step();
+                for(int i = 0; i < envs; i++) {
+                    if(env.getReward(i) != 0) {
+                        points++;
+                    }
+                    if(env.isDone(i)) {
+                        episodes++;
+                    }
+                }
+            } while((now = System.nanoTime()) < end);
+            double elapsed = (now - start) / 1e9, stepsPerSecond = (env.getSteps() - first) / elapsed;
+            System.out.printf("round %d: %.0f env steps/s (%.0f batch steps/s, %.1f million ticks/s)%n",
+                    round, stepsPerSecond, stepsPerSecond / envs, stepsPerSecond * frameSkip / 1e6);
+        }
+        System.out.printf("%d points, %d matches finished%n", points, episodes);
+    }
+}
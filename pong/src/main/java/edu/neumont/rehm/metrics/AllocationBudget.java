@@ -0,0 +1,217 @@
+package edu.neumont.rehm.metrics;
+
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.InputQueue;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.RasterSurface;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Measures the bytes the game loop allocates per tick, using the JVM's per-thread allocation
+ * counter, and exits with status 1 when any path goes over the budget so a build step can fail on it.
+ * Covers the engine (bots, lobby, player input through the {@link InputQueue}), {@link GameMetrics}
+ * and {@link BoardPainter} drawing onto a {@link RasterSurface}; the JavaFX canvas needs a display.
+ * <p>
+ * The JVM now and then allocates on the measuring thread by itself, outside any tick. So what an
+ * empty loop allocates is measured first and taken off every path. A path is judged on its whole
+ * bytes per tick, rounded, and one that comes out over is measured again before it fails: a real
+ * per-tick allocation shows up every time, a stray one doesn't.
+ */
+public class AllocationBudget {
+
+    private static final int ATTEMPTS = 3; // measurements of a path before it fails
+    private static final Command[] INPUTS = {Command.LEFT_UP, Command.RIGHT_DOWN, Command.LEFT_STOP, Command.RIGHT_UP,
+            Command.LEFT_DOWN, Command.RIGHT_STOP};
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long threadId = Thread.currentThread().getId();
+    private final long budget;
+    private final int ticks;
+    private final StringBuilder report = new StringBuilder();
+    private long baseline = 0; // bytes an empty measurement allocates
+    private boolean over = false;
+
+    /**
+     * Instantiates a new check for the calling thread.
+     *
+     * @param threads the thread bean, with allocation counting supported and enabled
+     * @param budget  the most bytes a tick may allocate on average, rounded to whole bytes
+     * @param ticks   the ticks to measure each path over, after as many again to warm up
+     */
+    public AllocationBudget(com.sun.management.ThreadMXBean threads, long budget, int ticks) {
+        this.threads = threads;
+        this.budget = budget;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Measure an empty path and take what it allocates off every path measured after this.
+     *
+     * @return the bytes allocated by an empty measurement
+     */
+    public long calibrate() {
+        Runnable empty = () -> {};
+        sample(ticks, empty);
+        long bytes = Long.MAX_VALUE;
+        for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            bytes = Math.min(bytes, sample(ticks, empty));
+        }
+        baseline = bytes;
+        report.append(String.format("%-16s %10d bytes  (taken off every path)%n", "empty", bytes));
+        return bytes;
+    }
+
+    /**
+     * Warm a path up so the JIT has compiled it, then measure it.
+     *
+     * @param name the name to report it under
+     * @param tick one tick of the path
+     * @return the bytes allocated per tick
+     */
+    public double measure(String name, Runnable tick) {
+        return measure(name, ticks, tick);
+    }
+
+    /**
+     * Warm a path up so the JIT has compiled it, then measure it over a given number of ticks.
+     *
+     * @param name  the name to report it under
+     * @param count the ticks to warm up and then measure over
+     * @param tick  one tick of the path
+     * @return the bytes allocated per tick
+     */
+    public double measure(String name, int count, Runnable tick) {
+        sample(count, tick);
+        long bytes = Long.MAX_VALUE;
+        int attempts = 0;
+        boolean failed = true;
+        while(failed && attempts < ATTEMPTS) {
+            bytes = Math.min(bytes, Math.max(0, sample(count, tick) - baseline));
+            attempts++;
+            failed = Math.round(bytes / (double) count) > budget;
+        }
+        double perTick = bytes / (double) count;
+        over |= failed;
+        report.append(String.format("%-16s %10d bytes  %8.3f bytes/tick%s%s%n", name, bytes, perTick,
+                attempts > 1 ? "  (measured " + attempts + " times)" : "", failed ? "  OVER" : ""));
+        return perTick;
+    }
+
+    private long sample(int count, Runnable tick) {
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < count; i++) {
+            tick.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /**
+     * Whether any path measured so far went over the budget.
+     *
+     * @return true if one did
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * One line per path measured, then the verdict.
+     *
+     * @return the report
+     */
+    public String summary() {
+        return report + String.format("budget %d bytes/tick: %s", budget, over ? "FAILED" : "ok");
+    }
+
+    /**
+     * The entry point for the build check.
+     *
+     * @param args optional budget in bytes per tick (default 0, or -Dpong.allocBudget) and ticks per path (default 200000; drawing runs a hundredth of that)
+     */
+    public static void main(String[] args) {
+        long budget = args.length > 0 ? Long.parseLong(args[0]) : Long.getLong("pong.allocBudget", 0);
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            System.out.println("Per-thread allocation counting is not supported by this JVM; skipped.");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        AllocationBudget check = new AllocationBudget(threads, budget, ticks);
+
+        check.calibrate();
+
+        PongEngine bots = match(new Random(1));
+        check.measure("engine bots", () -> {
+            bots.tick();
+            if(bots.isMatchOver()) {
+                bots.resetGame();
+            }
+        });
+
+        PongEngine lobby = new PongEngine(5, new Random(2));
+        check.measure("engine lobby", lobby::tick);
+
+        PongEngine players = new PongEngine(5, new Random(3));
+        players.apply(Command.START_OR_PAUSE);
+        InputQueue queue = new InputQueue(64);
+        long[] tick = {0};
+        check.measure("input", () -> {
+            if(tick[0]++ % 50 == 0) {
+                queue.offer(INPUTS[(int) (tick[0] / 50 % INPUTS.length)], System.nanoTime());
+            }
+            while(!queue.isEmpty()) {
+                players.apply(queue.peekCommand());
+                queue.remove();
+            }
+            players.tick();
+            if(players.isMatchOver()) {
+                players.resetGame();
+            }
+        });
+
+        GameMetrics metrics = new GameMetrics();
+        PongEngine probed = match(new Random(4));
+        probed.setProbe(metrics);
+        check.measure("metrics", () -> {
+            long start = System.nanoTime();
+            probed.tick();
+            metrics.tickDone();
+            if(probed.isMatchOver()) {
+                probed.resetGame();
+            }
+            long now = System.nanoTime();
+            metrics.frameDone(now, now - start, 1, 0);
+        });
+
+        BoardPainter painter = new BoardPainter();
+        RasterSurface surface = new RasterSurface((int) PongEngine.WIDTH, (int) PongEngine.HEIGHT);
+        PongEngine drawn = match(new Random(5));
+        check.measure("draw", Math.max(1, ticks / 100), () -> { // a full-board fill per tick; fewer of them
+            drawn.tick();
+            if(drawn.isMatchOver()) {
+                drawn.resetGame();
+            }
+            painter.drawGame(surface, drawn, 0.5, true);
+        });
+
+        System.out.println(check.summary());
+        if(check.isOver()) {
+            System.exit(1);
+        }
+    }
+
+    private static PongEngine match(Random random) {
+        PongEngine engine = new PongEngine(5, random);
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        return engine;
+    }
+}
@@ -0,0 +1,29 @@
+package edu.neumont.rehm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one displayed frame: how many ticks it ran and how long drawing took.
+ */
+@Name("edu.neumont.rehm.Frame")
+@Label("Pong Frame")
+@Category("Pong")
+@StackTrace(false)
+class FrameEvent extends Event {
+
+    @Label("Ticks")
+    int ticks;
+
+    @Label("Draw")
+    @Timespan(Timespan.NANOSECONDS)
+    long draw;
+
+    @Label("Frame")
+    @Timespan(Timespan.NANOSECONDS)
+    long frame;
+}
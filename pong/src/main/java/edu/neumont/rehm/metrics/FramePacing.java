@@ -0,0 +1,179 @@
+package edu.neumont.rehm.metrics;
+
+import edu.neumont.rehm.engine.FixedStepClock;
+import edu.neumont.rehm.engine.FrameSnapshot;
+import edu.neumont.rehm.engine.GameListener;
+import edu.neumont.rehm.engine.InputQueue;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.engine.SimulationLoop;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.RasterSurface;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How evenly frames come and what they show: frames that came late enough to have missed a display
+ * refresh (dropped), frames that showed the same tick as the one before while the game was running
+ * (duplicated), and, when ticks run on the frame thread, how late each tick ran against its schedule.
+ * Single writer, the frame thread.
+ */
+public class FramePacing {
+
+    private final LatencyHistogram intervals = new LatencyHistogram(), tickJitter = new LatencyHistogram();
+    private long last = -1, period = 0, lastTick = -1;
+    private long frames = 0, dropped = 0, duplicated = 0;
+
+    /**
+     * Count a frame.
+     *
+     * @param now       the frame time in nanoseconds
+     * @param shownTick the tick the frame shows
+     * @param moving    whether the game is running, so every frame should show a newer tick
+     */
+    public void frame(long now, long shownTick, boolean moving) {
+        if(last >= 0) {
+            long interval = now - last;
+            intervals.record(interval);
+            if(period == 0) {
+                period = interval;
+            } else if(interval > period * 3 / 2) {
+                dropped++;
+            } else {
+                period += (interval - period) / 16; // follows the display rate, ignoring the misses
+            }
+        }
+        if(moving && shownTick == lastTick) {
+            duplicated++;
+        }
+        last = now;
+        lastTick = shownTick;
+        frames++;
+    }
+
+    /**
+     * Forget the last frame, so a gap made on purpose (idle pacing) isn't counted as a drop.
+     */
+    public void restart() {
+        last = -1;
+        lastTick = -1;
+    }
+
+    /**
+     * Record how late the ticks a frame ran were: each was due one step after the one before, and the
+     * last one was due the clock's leftover time ago.
+     *
+     * @param steps     the ticks run this frame
+     * @param leftover  the time since the last tick was due, in nanoseconds
+     * @param stepNanos the tick length
+     */
+    public void ticksRun(int steps, long leftover, long stepNanos) {
+        for(int k = steps - 1; k >= 0; k--) {
+            tickJitter.record(leftover + k * stepNanos);
+        }
+    }
+
+    public LatencyHistogram getTickJitter() {
+        return tickJitter;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    /**
+     * Frames, drops, duplicates and the tick jitter if ticks ran on the frame thread.
+     *
+     * @return one or two lines
+     */
+    public String summary() {
+        String out = String.format("frame pacing: %d frames, %d dropped (%.2f%%), %d duplicated (%.2f%%), interval p99 %.1f ms  max %.1f ms",
+                frames, dropped, frames == 0 ? 0 : dropped * 100.0 / frames, duplicated, frames == 0 ? 0 : duplicated * 100.0 / frames,
+                intervals.percentile(99) / 1e6, intervals.getMax() / 1e6);
+        if(tickJitter.getCount() > 0) {
+            out += String.format("%nframe-thread ticks: jitter p50 %.2f ms  p99 %.2f ms  max %.2f ms", tickJitter.percentile(50) / 1e6,
+                    tickJitter.percentile(99) / 1e6, tickJitter.getMax() / 1e6);
+        }
+        return out;
+    }
+
+    /**
+     * The entry point: a bot match drawn headless at 60 frames a second on a frame thread that
+     * blocks now and then (standing in for layout passes and window drags), once with the ticks run
+     * on the frame thread and once on a simulation thread, printing the pacing of each.
+     *
+     * @param args optional seconds per run (default 10), stall length in ms (default 40) and frames between stalls (default 60)
+     */
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 10;
+        long stall = (args.length > 1 ? Long.parseLong(args[1]) : 40) * 1_000_000;
+        int every = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        run(1, stall, every, false); // JIT warm-up
+        run(1, stall, every, true);
+        System.out.printf("ticks on the frame thread:%n%s%n", run(seconds, stall, every, false));
+        System.out.printf("ticks on a simulation thread:%n%s%n", run(seconds, stall, every, true));
+    }
+
+    private static String run(double seconds, long stall, int every, boolean thread) {
+        long refresh = 1_000_000_000L / 60;
+        PongEngine engine = newMatch(), display = newMatch();
+        FixedStepClock clock = new FixedStepClock(5, 50);
+        SimulationLoop loop = thread ? new SimulationLoop(engine, new InputQueue(64), GameListener.NONE, null, 50) : null;
+        RasterSurface surface = new RasterSurface((int) PongEngine.WIDTH, (int) PongEngine.HEIGHT);
+        BoardPainter painter = new BoardPainter();
+        FramePacing pacing = new FramePacing();
+
+        long start = System.nanoTime(), end = start + (long) (seconds * 1e9), next = start;
+        for(int frame = 1; System.nanoTime() < end; frame++) {
+            long now = System.nanoTime();
+            if(now < next) {
+                LockSupport.parkNanos(next - now);
+                now = System.nanoTime();
+            }
+            next += Math.max(1, (now - next) / refresh + 1) * refresh; // the next refresh after this one
+            double alpha;
+            long shown;
+            if(loop != null) {
+                FrameSnapshot snapshot = loop.latest();
+                display.show(snapshot);
+                alpha = Math.max(0, Math.min(1, (now - snapshot.getTime()) / (double) clock.getStepNanos()));
+                shown = snapshot.getTickIndex();
+            } else {
+                int steps = clock.advance(now);
+                for(int i = 0; i < steps; i++) {
+                    engine.tick();
+                    if(engine.isMatchOver()) {
+                        engine.resetGame();
+                    }
+                }
+                pacing.ticksRun(steps, (long) (clock.getAlpha() * clock.getStepNanos()), clock.getStepNanos());
+                display = engine;
+                alpha = clock.getAlpha();
+                shown = engine.getTicks();
+            }
+            painter.drawGame(surface, display, alpha, true);
+            pacing.frame(now, shown, true);
+            if(frame % every == 0) {
+                LockSupport.parkNanos(stall); // the frame thread is busy elsewhere
+            }
+        }
+        if(loop != null) {
+            loop.stop();
+            return pacing.summary() + "\n" + loop.summary();
+        }
+        return pacing.summary();
+    }
+
+    private static PongEngine newMatch() {
+        PongEngine engine = new PongEngine(5, new Random(1));
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        return engine;
+    }
+}
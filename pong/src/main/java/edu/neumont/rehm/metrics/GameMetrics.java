@@ -0,0 +1,212 @@
+package edu.neumont.rehm.metrics;
+
+import jdk.jfr.EventType;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-phase tick and frame timings kept in allocation-free histograms, exposed over JMX as
+ * {@code edu.neumont.rehm:type=GameMetrics} and emitted as Flight Recorder events.
+ * Recording happens on the game loop thread. The histograms roll over every second and readers
+ * (JMX, the overlay) see the last complete second.
+ */
+public class GameMetrics implements PhaseProbe, GameMetricsMBean {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length], lastPhases = new LatencyHistogram[PHASES.length];
+    private final LatencyHistogram ticks = new LatencyHistogram(), lastTicks = new LatencyHistogram();
+    private final LatencyHistogram frames = new LatencyHistogram(), lastFrames = new LatencyHistogram();
+    private final long[] tickPhases = new long[PHASES.length]; // the phases of the tick in progress
+    private long windowStart = -1, ticksBehind = 0, lastSoundPlays = 0;
+    private double soundPlaysPerSecond = 0;
+    private LongSupplier soundPlays = () -> 0;
+    private EventType tickEvent, frameEvent; // null until enableEvents(); Flight Recorder is slow to start up
+
+    /**
+     * Instantiates a new, empty set of metrics.
+     */
+    public GameMetrics() {
+        for(int i = 0; i < PHASES.length; i++) {
+            phases[i] = new LatencyHistogram();
+            lastPhases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Start emitting Flight Recorder events, which looking up the event types makes possible.
+     * Call it once the game is up; until then no events are emitted.
+     */
+    public void enableEvents() {
+        tickEvent = EventType.getEventType(TickEvent.class);
+        frameEvent = EventType.getEventType(FrameEvent.class);
+    }
+
+    /**
+     * Register with the platform MBean server; failures are printed and otherwise ignored.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("edu.neumont.rehm:type=GameMetrics"));
+        } catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public void record(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+        tickPhases[phase.ordinal()] = nanos;
+    }
+
+    /**
+     * Close the tick in progress: record its total time and emit a Flight Recorder event.
+     */
+    public void tickDone() {
+        long input = tickPhases[Phase.INPUT.ordinal()], movement = tickPhases[Phase.MOVEMENT.ordinal()];
+        long collision = tickPhases[Phase.COLLISION.ordinal()], condition = tickPhases[Phase.CONDITION.ordinal()];
+        long bot = tickPhases[Phase.BOT.ordinal()];
+        ticks.record(input + movement + collision + condition + bot);
+        if(tickEvent != null && tickEvent.isEnabled()) {
+            TickEvent event = new TickEvent();
+            event.input = input;
+            event.movement = movement;
+            event.collision = collision;
+            event.condition = condition;
+            event.bot = bot;
+            event.commit();
+        }
+        tickPhases[Phase.INPUT.ordinal()] = 0;
+    }
+
+    /**
+     * Close a displayed frame and roll the one-second window over when it is up.
+     *
+     * @param now        the frame timestamp in nanoseconds
+     * @param frameNanos how long the whole frame (ticks and drawing) took
+     * @param steps      how many ticks it ran
+     * @param behind     how many ticks the clock dropped this frame because it fell behind
+     */
+    public void frameDone(long now, long frameNanos, int steps, long behind) {
+        frames.record(frameNanos);
+        ticksBehind += behind;
+        if(frameEvent != null && frameEvent.isEnabled()) {
+            FrameEvent event = new FrameEvent();
+            event.ticks = steps;
+            event.draw = tickPhases[Phase.DRAW.ordinal()];
+            event.frame = frameNanos;
+            event.commit();
+        }
+        if(windowStart < 0) {
+            windowStart = now;
+        } else if(now - windowStart >= WINDOW_NANOS) {
+            long plays = soundPlays.getAsLong();
+            soundPlaysPerSecond = (plays - lastSoundPlays) * 1e9 / (now - windowStart);
+            lastSoundPlays = plays;
+            for(int i = 0; i < PHASES.length; i++) {
+                lastPhases[i].copyFrom(phases[i]);
+                phases[i].reset();
+            }
+            lastTicks.copyFrom(ticks);
+            ticks.reset();
+            lastFrames.copyFrom(frames);
+            frames.reset();
+            windowStart = now;
+        }
+    }
+
+    /**
+     * Sets where the sound play count comes from.
+     *
+     * @param soundPlays the total number of sounds played so far
+     */
+    public void setSoundPlays(LongSupplier soundPlays) {
+        this.soundPlays = soundPlays;
+    }
+
+    /**
+     * The last second's numbers, for the overlay and the console.
+     *
+     * @return one line per measurement
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("tick   p50 %7.1f us  p99 %7.1f us%n", getTickP50Micros(), getTickP99Micros()));
+        sb.append(String.format("frame  p50 %7.1f us  p99 %7.1f us%n", getFrameP50Micros(), getFrameP99Micros()));
+        for(int i = 0; i < PHASES.length; i++) {
+            sb.append(String.format("%-10s p50 %6.1f us  p99 %6.1f us%n", PHASES[i].name().toLowerCase(),
+                    micros(lastPhases[i].percentile(50)), micros(lastPhases[i].percentile(99))));
+        }
+        sb.append(String.format("behind %d ticks  sound %.1f/s", ticksBehind, soundPlaysPerSecond));
+        return sb.toString();
+    }
+
+    @Override
+    public double getTickP50Micros() {
+        return micros(lastTicks.percentile(50));
+    }
+
+    @Override
+    public double getTickP99Micros() {
+        return micros(lastTicks.percentile(99));
+    }
+
+    @Override
+    public double getFrameP50Micros() {
+        return micros(lastFrames.percentile(50));
+    }
+
+    @Override
+    public double getFrameP99Micros() {
+        return micros(lastFrames.percentile(99));
+    }
+
+    @Override
+    public long getTicksBehind() {
+        return ticksBehind;
+    }
+
+    @Override
+    public double getSoundPlaysPerSecond() {
+        return soundPlaysPerSecond;
+    }
+
+    @Override
+    public long getTimeToFirstFrameMillis() {
+        return Startup.getTimeToFirstFrameMillis();
+    }
+
+    @Override
+    public String[] getPhaseNames() {
+        String[] names = new String[PHASES.length];
+        for(int i = 0; i < PHASES.length; i++) {
+            names[i] = PHASES[i].name();
+        }
+        return names;
+    }
+
+    @Override
+    public double[] getPhaseP50Micros() {
+        return phasePercentiles(50);
+    }
+
+    @Override
+    public double[] getPhaseP99Micros() {
+        return phasePercentiles(99);
+    }
+
+    private double[] phasePercentiles(double percentile) {
+        double[] values = new double[PHASES.length];
+        for(int i = 0; i < PHASES.length; i++) {
+            values[i] = micros(lastPhases[i].percentile(percentile));
+        }
+        return values;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
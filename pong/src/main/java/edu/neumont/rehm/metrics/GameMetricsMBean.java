@@ -0,0 +1,37 @@
+package edu.neumont.rehm.metrics;
+
+/**
+ * The JMX view of {@link GameMetrics}. Percentiles cover the last complete one-second window.
+ */
+public interface GameMetricsMBean {
+
+    double getTickP50Micros();
+
+    double getTickP99Micros();
+
+    double getFrameP50Micros();
+
+    double getFrameP99Micros();
+
+    /**
+     * Ticks the fixed-step clock gave up on because it fell too far behind.
+     *
+     * @return the total since start
+     */
+    long getTicksBehind();
+
+    double getSoundPlaysPerSecond();
+
+    /**
+     * The time from JVM start until the first frame was drawn.
+     *
+     * @return the time in milliseconds
+     */
+    long getTimeToFirstFrameMillis();
+
+    String[] getPhaseNames();
+
+    double[] getPhaseP50Micros();
+
+    double[] getPhaseP99Micros();
+}
@@ -0,0 +1,115 @@
+package edu.neumont.rehm.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size log-linear histogram of nanosecond durations: every power of two is split into
+ * eight linear buckets, so percentiles are within about 12% and recording never allocates.
+ * Single writer; readers on other threads may see a slightly stale view.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3, SUB = 1 << SUB_BITS;
+    private final long[] counts = new long[64 * SUB];
+    private long count = 0, total = 0, max = 0;
+
+    /**
+     * Record one duration.
+     *
+     * @param nanos the duration; negative values count as zero
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts[index(v)]++;
+        count++;
+        total += v;
+        if(v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * The duration below which a given share of the recorded values fall.
+     *
+     * @param percentile from 0 to 100
+     * @return the upper edge of the bucket holding that percentile, in nanoseconds, or 0 if empty
+     */
+    public long percentile(double percentile) {
+        if(count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(max, lowerBound(i + 1) - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Replace this histogram's contents with another's.
+     *
+     * @param other the histogram to copy
+     */
+    public void copyFrom(LatencyHistogram other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        count = other.count;
+        total = other.total;
+        max = other.max;
+    }
+
+    /**
+     * Add another histogram's contents to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    private static int index(long v) {
+        if(v < SUB) {
+            return (int) v;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(v); // >= SUB_BITS
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+        return SUB + (exp - SUB_BITS) * SUB + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if(index < SUB) {
+            return index;
+        }
+        int k = index - SUB;
+        int exp = k / SUB + SUB_BITS;
+        long sub = k % SUB;
+        return (SUB + sub) << (exp - SUB_BITS);
+    }
+}
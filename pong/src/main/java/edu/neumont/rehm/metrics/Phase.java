@@ -0,0 +1,13 @@
+package edu.neumont.rehm.metrics;
+
+/**
+ * The parts of a game loop iteration that are timed separately.
+ */
+public enum Phase {
+    INPUT,
+    MOVEMENT,
+    COLLISION,
+    CONDITION,
+    BOT,
+    DRAW
+}
@@ -0,0 +1,15 @@
+package edu.neumont.rehm.metrics;
+
+/**
+ * Receives how long each phase of a tick or frame took.
+ */
+public interface PhaseProbe {
+
+    /**
+     * Record one phase duration.
+     *
+     * @param phase the phase
+     * @param nanos how long it took
+     */
+    void record(Phase phase, long nanos);
+}
@@ -0,0 +1,66 @@
+package edu.neumont.rehm.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wall-clock marks from JVM start to the first frame on screen, for measuring cold starts.
+ * The JVM start time is only looked up when asked for, since loading the management classes
+ * is itself part of what a fast start avoids.
+ */
+public final class Startup {
+
+    private static long main = -1, stage = -1, firstFrame = -1; // System.currentTimeMillis() at each mark
+    private static long jvmStart = -1;
+
+    private Startup() {}
+
+    /**
+     * Mark entering main.
+     */
+    public static void markMain() {
+        main = System.currentTimeMillis();
+    }
+
+    /**
+     * Mark the toolkit handing over the stage.
+     */
+    public static void markStage() {
+        stage = System.currentTimeMillis();
+    }
+
+    /**
+     * Mark the first frame being drawn; later calls are ignored.
+     */
+    public static void markFirstFrame() {
+        if(firstFrame < 0) {
+            firstFrame = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The time from JVM start to the first frame.
+     *
+     * @return the time in milliseconds, or -1 before the first frame
+     */
+    public static long getTimeToFirstFrameMillis() {
+        return firstFrame < 0 ? -1 : firstFrame - getJvmStart();
+    }
+
+    private static long getJvmStart() {
+        if(jvmStart < 0) {
+            jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        }
+        return jvmStart;
+    }
+
+    /**
+     * The marks so far, for the console.
+     *
+     * @return one line
+     */
+    public static String summary() {
+        long start = getJvmStart();
+        return String.format("first frame %d ms after JVM start (JVM to main %d ms, main to stage %d ms, stage to first frame %d ms)",
+                getTimeToFirstFrameMillis(), main - start, stage - main, firstFrame - stage);
+    }
+}
@@ -0,0 +1,38 @@
+package edu.neumont.rehm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one engine tick, with the time spent in each phase.
+ */
+@Name("edu.neumont.rehm.Tick")
+@Label("Pong Tick")
+@Category("Pong")
+@StackTrace(false)
+class TickEvent extends Event {
+
+    @Label("Input")
+    @Timespan(Timespan.NANOSECONDS)
+    long input;
+
+    @Label("Movement")
+    @Timespan(Timespan.NANOSECONDS)
+    long movement;
+
+    @Label("Collision")
+    @Timespan(Timespan.NANOSECONDS)
+    long collision;
+
+    @Label("Condition Check")
+    @Timespan(Timespan.NANOSECONDS)
+    long condition;
+
+    @Label("Bot")
+    @Timespan(Timespan.NANOSECONDS)
+    long bot;
+}
@@ -0,0 +1,51 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.Command;
+
+import java.util.Arrays;
+
+/**
+ * One player's commands in the order they were issued, each with the tick it applies before.
+ * Ticks never decrease. Grows by doubling; a match only adds a few thousand entries.
+ */
+class CommandLog {
+
+    private long[] ticks = new long[256];
+    private Command[] commands = new Command[256];
+    private int size = 0;
+
+    void add(long tick, Command command) {
+        if(size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            commands = Arrays.copyOf(commands, size * 2);
+        }
+        ticks[size] = tick;
+        commands[size++] = command;
+    }
+
+    /**
+     * The index of the first command applied at or after a tick.
+     *
+     * @param tick the tick
+     * @return the index, or size() if there is none
+     */
+    int indexOf(long tick) {
+        int i = size;
+        while(i > 0 && ticks[i - 1] >= tick) { // the ticks searched for are always recent
+            i--;
+        }
+        return i;
+    }
+
+    long tickAt(int index) {
+        return ticks[index];
+    }
+
+    Command commandAt(int index) {
+        return commands[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
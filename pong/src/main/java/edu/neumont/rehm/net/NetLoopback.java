@@ -0,0 +1,139 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.engine.RewindableRandom;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+/**
+ * Plays two sessions against each other over loopback in real time, with scripted random paddle
+ * input, injected latency and loss, then checks both sides ended up in the same state. Junk
+ * datagrams are thrown at both sides along the way, from a stranger's port and from each other's
+ * port (corrupt command ordinals and random bytes); they all have to be rejected without a desync.
+ */
+public class NetLoopback {
+
+    private static final int RATE_IN_MS = 5;
+
+    /**
+     * The entry point.
+     *
+     * @param args optional seconds (default 20), one-way latency in ms (default 60), loss (default 0.1), junk packets per second (default 20)
+     * @throws Exception if a socket can't be opened or the wait is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        double loss = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        int junkPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        long seed = 1;
+
+        DatagramChannel channelA = open(), channelB = open(), stranger = open();
+        ByteBuffer junk = ByteBuffer.allocate(64);
+        Random junkRandom = new Random(6);
+        long junkSent = 0;
+        NetSession a = new NetSession(new PongEngine(RATE_IN_MS, new RewindableRandom(seed)), true, channelA, channelB.getLocalAddress());
+        NetSession b = new NetSession(new PongEngine(RATE_IN_MS, new RewindableRandom(seed)), false, channelB, channelA.getLocalAddress());
+        a.impair(latencyMs, loss, 2);
+        b.impair(latencyMs, loss, 3);
+        a.local(Command.START_OR_PAUSE);
+        Random scriptA = new Random(4), scriptB = new Random(5);
+
+        long start = System.nanoTime(), playNanos = seconds * 1_000_000_000L, lastFlush = start, lastJunk = start;
+        long dueTicks = 0;
+        while(true) {
+            long now = System.nanoTime();
+            boolean playing = now - start < playNanos;
+            if(playing) {
+                dueTicks = (now - start) / (RATE_IN_MS * 1_000_000L);
+            }
+            while(a.getTick() < dueTicks) {
+                if(playing) {
+                    press(a, scriptA);
+                }
+                if(!a.tick()) {
+                    break;
+                }
+            }
+            while(b.getTick() < dueTicks) {
+                if(playing) {
+                    press(b, scriptB);
+                }
+                if(!b.tick()) {
+                    break;
+                }
+            }
+            if(now - lastFlush >= 16_000_000L) { // about one packet per 60 Hz frame
+                a.flush();
+                b.flush();
+                lastFlush = now;
+            }
+            if(playing && junkPerSecond > 0 && now - lastJunk >= 1_000_000_000L / junkPerSecond) {
+                sendJunk(junk, junkRandom, stranger, channelB, a.getTick(), channelA.getLocalAddress());
+                sendJunk(junk, junkRandom, stranger, channelA, b.getTick(), channelB.getLocalAddress());
+                junkSent += 2;
+                lastJunk = now;
+            }
+            a.poll();
+            b.poll();
+            if(!playing && a.getTick() == dueTicks && b.getTick() == dueTicks &&
+                    a.getConfirmedRemote() == dueTicks && b.getConfirmedRemote() == dueTicks) {
+                break;
+            }
+            Thread.sleep(1);
+        }
+
+        System.out.printf("%d ticks each, %d ms one-way latency, %.0f%% loss, %d junk packets sent, %d rejected%n",
+                dueTicks, latencyMs, loss * 100, junkSent, a.getPacketsRejected() + b.getPacketsRejected());
+        System.out.println("left:  " + a.summary());
+        System.out.println("right: " + b.summary());
+        PongEngine ea = a.getEngine(), eb = b.getEngine();
+        boolean same = ea.getPlayerLScore() == eb.getPlayerLScore() && ea.getPlayerRScore() == eb.getPlayerRScore() &&
+                ea.getBallX() == eb.getBallX() && ea.getBallY() == eb.getBallY() &&
+                ea.getBallXV() == eb.getBallXV() && ea.getBallYV() == eb.getBallYV() &&
+                ea.getPadLY() == eb.getPadLY() && ea.getPadRY() == eb.getPadRY();
+        System.out.printf("score %d - %d / %d - %d, %s%n", ea.getPlayerLScore(), ea.getPlayerRScore(),
+                eb.getPlayerLScore(), eb.getPlayerRScore(), same ? "in sync" : "DESYNC");
+        a.close();
+        b.close();
+        stranger.close();
+    }
+
+    /**
+     * Send one junk packet to a session, from a stranger or from its peer's own port: random bytes,
+     * or a well-formed header around a command with an ordinal that doesn't exist.
+     */
+    private static void sendJunk(ByteBuffer junk, Random random, DatagramChannel stranger, DatagramChannel peer, long tick,
+                                 SocketAddress target) throws IOException {
+        junk.clear();
+        if(random.nextBoolean()) {
+            while(junk.position() < 17 + 5 * random.nextInt(8)) {
+                junk.put((byte) random.nextInt());
+            }
+        } else {
+            junk.putInt((int) tick).putInt(1 << 20).putInt(0).putInt(0).put((byte) 1);
+            junk.putInt((int) tick).put((byte) (random.nextBoolean() ? -1 : Command.values().length));
+        }
+        junk.flip();
+        (random.nextBoolean() ? stranger : peer).send(junk, target);
+    }
+
+    private static DatagramChannel open() throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        return channel;
+    }
+
+    private static void press(NetSession session, Random script) {
+        if(script.nextInt(40) == 0) { // a key change every 200 ms or so
+            int key = script.nextInt(3);
+            session.local(key == 0 ? Command.LEFT_UP : key == 1 ? Command.LEFT_DOWN : Command.LEFT_STOP);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.EngineState;
+import edu.neumont.rehm.engine.GameListener;
+import edu.neumont.rehm.engine.LatencyStats;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.PhaseProbe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+/**
+ * One side of a two-player game over UDP with rollback. Each instance runs the whole game;
+ * only commands travel, each tagged with the tick it applies before. Local commands are applied
+ * immediately. The remote paddle is predicted to keep doing what it last did, and when a remote
+ * command turns up for a tick that has already run, the engine is restored to the snapshot from
+ * that tick and re-simulated with it. Within a tick the left player's commands always go first,
+ * so both sides end up with the same state.
+ * <p>
+ * Each packet carries every local command the other side hasn't acknowledged yet, so a lost packet
+ * costs nothing but a later correction. Both engines need the same seed and a {@link edu.neumont.rehm.engine.RewindableRandom}.
+ * <p>
+ * Packets from anywhere but the other side's address, and packets the other side could not have
+ * sent (unknown commands, counts, acknowledgements or ticks out of range), are dropped whole and
+ * counted as rejected, so a stray or forged datagram can neither crash the game nor rewrite it.
+ */
+public class NetSession implements Closeable {
+
+    /**
+     * Ticks of snapshots kept, and so the furthest a late command can rewind; a side stalls rather than get further ahead.
+     */
+    public static final int WINDOW = 128;
+    private static final int MAX_COMMANDS = 64, HEADER = 17; // per packet; tick, total, ack, first, count
+    private static final Command[] COMMANDS = Command.values();
+
+    private final PongEngine engine;
+    private final boolean localLeft;
+    private final DatagramChannel channel;
+    private final SocketAddress remote;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(HEADER + MAX_COMMANDS * 5), in = ByteBuffer.allocateDirect(2048);
+    private final EngineState[] snapshots = new EngineState[WINDOW]; // the state before the commands of tick t, at t % WINDOW
+    private final CommandLog local = new CommandLog(), remoteLog = new CommandLog();
+    private long tick = 0, confirmedRemote = 0, rollbackFrom = Long.MAX_VALUE; // remote commands before confirmedRemote are all here
+    private int remoteApplied = 0, localAcked = 0;
+    private GameListener listener = GameListener.NONE;
+    private PhaseProbe probe;
+
+    private long delayNanos = 0; // injected one-way latency
+    private double loss = 0; // injected packet loss, 0 to 1
+    private Random impairment;
+    private final ByteBuffer[] delayed = new ByteBuffer[256];
+    private final long[] releaseAt = new long[256];
+    private int delayedHead = 0, delayedCount = 0;
+
+    private long rollbacks = 0, resimulatedTicks = 0, stalls = 0, frameResimNanos = 0;
+    private long bytesSent = 0, bytesReceived = 0, packetsSent = 0, packetsReceived = 0, packetsDropped = 0, packetsRejected = 0;
+    private int maxDepth = 0;
+    private final LatencyStats resimPerFrame = new LatencyStats();
+
+    /**
+     * Instantiates a new session.
+     *
+     * @param engine    the engine this side runs
+     * @param localLeft whether the local player has the left paddle
+     * @param channel   a bound channel; it is made non-blocking
+     * @param remote    the other side's address
+     * @throws IOException if the channel can't be configured
+     */
+    public NetSession(PongEngine engine, boolean localLeft, DatagramChannel channel, SocketAddress remote) throws IOException {
+        this.engine = engine;
+        this.localLeft = localLeft;
+        this.channel = channel;
+        this.remote = remote;
+        channel.configureBlocking(false);
+        for(int i = 0; i < WINDOW; i++) {
+            snapshots[i] = new EngineState();
+        }
+        for(int i = 0; i < delayed.length; i++) {
+            delayed[i] = ByteBuffer.allocateDirect(out.capacity());
+        }
+        engine.save(snapshots[0]);
+    }
+
+    /**
+     * Open a session on a local UDP port.
+     *
+     * @param engine    the engine this side runs
+     * @param localLeft whether the local player has the left paddle
+     * @param port      the local port
+     * @param remote    the other side's address
+     * @return the session
+     * @throws IOException if the port can't be bound
+     */
+    public static NetSession open(PongEngine engine, boolean localLeft, int port, SocketAddress remote) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        return new NetSession(engine, localLeft, channel, remote);
+    }
+
+    /**
+     * Apply a local command now and queue it for the other side. Paddle commands move the local
+     * player's paddle whichever side they name.
+     *
+     * @param command the command
+     */
+    public void local(Command command) {
+        command = toLocalSide(command);
+        local.add(tick, command);
+        engine.apply(command);
+        if(remoteApplied > 0 && remoteLog.tickAt(remoteApplied - 1) == tick) {
+            rollbackFrom = Math.min(rollbackFrom, tick); // went in after a remote command for this tick
+        }
+    }
+
+    private Command toLocalSide(Command command) {
+        switch(command) {
+            case LEFT_UP:
+            case RIGHT_UP:
+                return localLeft ? Command.LEFT_UP : Command.RIGHT_UP;
+            case LEFT_DOWN:
+            case RIGHT_DOWN:
+                return localLeft ? Command.LEFT_DOWN : Command.RIGHT_DOWN;
+            case LEFT_STOP:
+            case RIGHT_STOP:
+                return localLeft ? Command.LEFT_STOP : Command.RIGHT_STOP;
+            default:
+                return command;
+        }
+    }
+
+    /**
+     * Take in whatever has arrived, roll back for any of it that is late, then run one tick.
+     *
+     * @return false if this side is so far ahead of the other that it has to wait
+     */
+    public boolean tick() {
+        poll();
+        if(tick - confirmedRemote >= WINDOW - 2) {
+            stalls++;
+            return false;
+        }
+        engine.tick();
+        tick++;
+        engine.save(snapshots[(int) (tick % WINDOW)]);
+        return true;
+    }
+
+    /**
+     * Send pending packets and received commands to where they belong without running a tick.
+     */
+    public void poll() {
+        pump();
+        receive();
+        int remoteNext = remoteApplied < remoteLog.size() && remoteLog.tickAt(remoteApplied) == tick ? remoteApplied : -1;
+        if(remoteNext >= 0 && local.size() > 0 && local.tickAt(local.size() - 1) == tick) {
+            rollbackFrom = Math.min(rollbackFrom, tick); // both sides acted this tick; redo it in side order
+        }
+        if(rollbackFrom <= tick) {
+            resimulate(rollbackFrom);
+        } else {
+            while(remoteApplied < remoteLog.size() && remoteLog.tickAt(remoteApplied) <= tick) {
+                engine.apply(remoteLog.commandAt(remoteApplied++));
+            }
+        }
+        rollbackFrom = Long.MAX_VALUE;
+    }
+
+    /**
+     * Restore the snapshot from a past tick and run forward to the current one with every command known now.
+     */
+    private void resimulate(long from) {
+        long start = System.nanoTime();
+        int depth = (int) (tick - from);
+        engine.setListener(GameListener.NONE); // sounds already played the first time through
+        engine.setProbe(null);
+        engine.restore(snapshots[(int) (from % WINDOW)]);
+        CommandLog left = localLeft ? local : remoteLog, right = localLeft ? remoteLog : local;
+        int li = left.indexOf(from), ri = right.indexOf(from);
+        for(long k = from; ; k++) {
+            while(li < left.size() && left.tickAt(li) == k) {
+                engine.apply(left.commandAt(li++));
+            }
+            while(ri < right.size() && right.tickAt(ri) == k) {
+                engine.apply(right.commandAt(ri++));
+            }
+            if(k == tick) {
+                break;
+            }
+            engine.tick();
+            engine.save(snapshots[(int) ((k + 1) % WINDOW)]);
+        }
+        remoteApplied = localLeft ? ri : li;
+        engine.setListener(listener);
+        engine.setProbe(probe);
+        if(depth > 0) {
+            rollbacks++;
+            resimulatedTicks += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        frameResimNanos += System.nanoTime() - start;
+    }
+
+    private void receive() {
+        try {
+            while(true) {
+                in.clear();
+                SocketAddress from = channel.receive(in);
+                if(from == null) {
+                    return;
+                }
+                in.flip();
+                packetsReceived++;
+                bytesReceived += in.remaining();
+                if(!remote.equals(from) || in.remaining() < HEADER || !read(in)) {
+                    packetsRejected++;
+                }
+            }
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Take in one packet, if the other side could have sent it: every field in range, and the
+     * commands in tick order and no later than the sender's tick, the new ones no earlier than what
+     * is already confirmed. Nothing is changed unless the whole packet checks out.
+     *
+     * @return false if the packet was rejected
+     */
+    private boolean read(ByteBuffer packet) {
+        long senderTick = packet.getInt();
+        int senderTotal = packet.getInt(), ack = packet.getInt(), first = packet.getInt(), count = packet.get() & 0xFF;
+        if(senderTick < 0 || senderTick > tick + WINDOW || ack < 0 || ack > local.size() || count > MAX_COMMANDS ||
+                first < 0 || first > remoteLog.size() || senderTotal < first + count || packet.remaining() < count * 5) {
+            return false;
+        }
+        long previous = first > 0 ? remoteLog.tickAt(first - 1) : 0;
+        for(int i = 0, at = packet.position(); i < count; i++, at += 5) {
+            long t = packet.getInt(at);
+            int ordinal = packet.get(at + 4);
+            boolean unseen = first + i >= remoteLog.size(); // resent ones may be older than what is confirmed
+            if(ordinal < 0 || ordinal >= COMMANDS.length || t < previous || t > senderTick || (unseen && t < confirmedRemote)) {
+                return false;
+            }
+            previous = t;
+        }
+        localAcked = Math.max(localAcked, ack);
+        for(int i = 0; i < count; i++) {
+            long t = packet.getInt();
+            Command command = COMMANDS[packet.get()];
+            if(first + i == remoteLog.size()) { // anything past a gap comes again in a later packet
+                remoteLog.add(t, command);
+                if(t < tick) {
+                    rollbackFrom = Math.min(rollbackFrom, t);
+                }
+            }
+        }
+        if(remoteLog.size() == senderTotal) {
+            confirmedRemote = Math.max(confirmedRemote, senderTick);
+        }
+        return true;
+    }
+
+    /**
+     * Send the other side this side's tick, acknowledgement and unacknowledged commands. Call once per frame.
+     */
+    public void flush() {
+        resimPerFrame.record(frameResimNanos);
+        frameResimNanos = 0;
+        int first = localAcked, count = Math.min(local.size() - first, MAX_COMMANDS);
+        out.clear();
+        out.putInt((int) tick);
+        out.putInt(local.size());
+        out.putInt(remoteLog.size());
+        out.putInt(first);
+        out.put((byte) count);
+        for(int i = first; i < first + count; i++) {
+            out.putInt((int) local.tickAt(i));
+            out.put((byte) local.commandAt(i).ordinal());
+        }
+        out.flip();
+        packetsSent++;
+        bytesSent += out.remaining();
+        if(impairment != null && impairment.nextDouble() < loss) {
+            packetsDropped++;
+        } else if(delayNanos > 0 && delayedCount < delayed.length) {
+            int slot = (delayedHead + delayedCount++) % delayed.length;
+            delayed[slot].clear();
+            delayed[slot].put(out);
+            delayed[slot].flip();
+            releaseAt[slot] = System.nanoTime() + delayNanos;
+        } else {
+            send(out);
+        }
+        pump();
+    }
+
+    /**
+     * Send the delayed packets whose time has come.
+     */
+    private void pump() {
+        long now = System.nanoTime();
+        while(delayedCount > 0 && releaseAt[delayedHead] <= now) {
+            send(delayed[delayedHead]);
+            delayedHead = (delayedHead + 1) % delayed.length;
+            delayedCount--;
+        }
+    }
+
+    private void send(ByteBuffer packet) {
+        try {
+            channel.send(packet, remote);
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Make outgoing packets arrive late or not at all, for testing.
+     *
+     * @param delayMs the one-way latency to add
+     * @param loss    the fraction of packets to drop, 0 to 1
+     * @param seed    the seed for choosing which
+     */
+    public void impair(int delayMs, double loss, long seed) {
+        this.delayNanos = delayMs * 1_000_000L;
+        this.loss = loss;
+        this.impairment = new Random(seed);
+    }
+
+    /**
+     * Sets the listener given to the engine, kept off while re-simulating.
+     *
+     * @param listener the listener
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+        engine.setListener(listener);
+    }
+
+    /**
+     * Sets the probe given to the engine, kept off while re-simulating.
+     *
+     * @param probe the probe, or null
+     */
+    public void setProbe(PhaseProbe probe) {
+        this.probe = probe;
+        engine.setProbe(probe);
+    }
+
+    public PongEngine getEngine() {
+        return engine;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getConfirmedRemote() {
+        return confirmedRemote;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public int getMaxRollbackDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * The average number of ticks a rollback re-ran.
+     *
+     * @return the depth in ticks
+     */
+    public double getAverageRollbackDepth() {
+        return rollbacks == 0 ? 0 : resimulatedTicks / (double) rollbacks;
+    }
+
+    /**
+     * The time spent restoring and re-simulating in each frame (each {@link #flush()}).
+     *
+     * @return the stats
+     */
+    public LatencyStats getResimPerFrame() {
+        return resimPerFrame;
+    }
+
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Packets dropped on arrival for coming from the wrong address or failing the range checks.
+     *
+     * @return the count
+     */
+    public long getPacketsRejected() {
+        return packetsRejected;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Everything measured so far, for the console.
+     *
+     * @return one line per measurement
+     */
+    public String summary() {
+        return String.format("rollbacks %d (avg depth %.1f, max %d ticks), stalls %d%n" +
+                        "re-simulation per frame: %s%n" +
+                        "sent %d packets / %d bytes, received %d packets / %d bytes, dropped %d, rejected %d",
+                rollbacks, getAverageRollbackDepth(), maxDepth, stalls, resimPerFrame,
+                packetsSent, bytesSent, packetsReceived, bytesReceived, packetsDropped, packetsRejected);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
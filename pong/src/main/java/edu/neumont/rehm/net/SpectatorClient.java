@@ -0,0 +1,109 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.PongEngine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Watches a game streamed by a {@link SpectatorServer}. There is no simulation on this side: each
+ * frame received is shown as it is with {@link PongEngine#show}, so the regular view draws it.
+ */
+public class SpectatorClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(4096);
+    private final int[] values = new int[SpectatorCodec.VALUES], key = new int[SpectatorCodec.VALUES];
+    private final long[] keyTicks = {-1};
+    private long ticks = -1, frames = 0;
+
+    /**
+     * Instantiates a client over a connected channel.
+     *
+     * @param channel the channel; it is made non-blocking
+     * @throws IOException if the channel can't be configured
+     */
+    public SpectatorClient(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param server the server's address
+     * @return the client
+     * @throws IOException if it can't connect
+     */
+    public static SpectatorClient open(SocketAddress server) throws IOException {
+        return new SpectatorClient(SocketChannel.open(server));
+    }
+
+    /**
+     * Read whatever has arrived and decode every whole frame in it.
+     *
+     * @return the number of frames decoded
+     * @throws IOException if the server went away
+     */
+    public int read() throws IOException {
+        if(channel.read(in) < 0) {
+            throw new EOFException("spectator stream closed");
+        }
+        in.flip();
+        int decoded = 0;
+        while(in.remaining() >= 2 && in.remaining() >= 2 + in.getShort(in.position())) {
+            int length = in.getShort();
+            int end = in.position() + length;
+            long t = SpectatorCodec.read(in, values, key, keyTicks);
+            in.position(end);
+            if(t >= 0) {
+                ticks = t;
+                frames++;
+                decoded++;
+            }
+        }
+        in.compact();
+        return decoded;
+    }
+
+    /**
+     * Read what has arrived and show the newest frame on an engine.
+     *
+     * @param engine the engine the view draws
+     * @return whether there was a new frame
+     * @throws IOException if the server went away
+     */
+    public boolean poll(PongEngine engine) throws IOException {
+        if(read() == 0) {
+            return false;
+        }
+        SpectatorCodec.show(values, ticks, engine);
+        return true;
+    }
+
+    /**
+     * The tick of the newest frame.
+     *
+     * @return the server game's ticks, or -1 before the first keyframe
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,127 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.PongEngine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The spectator stream format shared by {@link SpectatorServer} and {@link SpectatorClient}.
+ * <pre>
+ * frame:    short length of the rest, byte type
+ * keyframe: long ticks, int value * VALUES
+ * delta:    varint ticks since the keyframe, short mask of the values that differ from the keyframe,
+ *           then a zigzag varint difference for each of them
+ * </pre>
+ * Values are the scores, a flag byte and the positions in 1/16 pixels. A delta is always against
+ * the last keyframe sent before it, so a spectator only ever needs one keyframe to decode anything.
+ */
+final class SpectatorCodec {
+
+    static final byte KEYFRAME = 1, DELTA = 2;
+    static final int VALUES = 8;
+    static final int MAX_FRAME = 2 + 1 + 10 + 2 + VALUES * 5; // a delta at its largest
+    private static final int SCORE_L = 0, SCORE_R = 1, FLAGS = 2, BALL_X = 3, BALL_Y = 4, PAD_LY = 5, PAD_RY = 6, BOT_Y = 7;
+    private static final int LOBBY = 1, PAUSE = 2, BOT_ACTIVE = 4, OLD_BOT = 8;
+    private static final double SCALE = 16;
+
+    private SpectatorCodec() {}
+
+    static void capture(PongEngine engine, int[] values) {
+        values[SCORE_L] = engine.getPlayerLScore();
+        values[SCORE_R] = engine.getPlayerRScore();
+        values[FLAGS] = (engine.isLobbyMode() ? LOBBY : 0) | (engine.isPaused() ? PAUSE : 0) |
+                (engine.isBotActive() ? BOT_ACTIVE : 0) | (engine.isOldBot() ? OLD_BOT : 0);
+        values[BALL_X] = (int) Math.round(engine.getBallX() * SCALE);
+        values[BALL_Y] = (int) Math.round(engine.getBallY() * SCALE);
+        values[PAD_LY] = (int) Math.round(engine.getPadLY() * SCALE);
+        values[PAD_RY] = (int) Math.round(engine.getPadRY() * SCALE);
+        values[BOT_Y] = (int) Math.round(engine.getBotY() * SCALE);
+    }
+
+    static void show(int[] values, long ticks, PongEngine engine) {
+        int flags = values[FLAGS];
+        engine.show(ticks, values[SCORE_L], values[SCORE_R], (flags & LOBBY) != 0, (flags & PAUSE) != 0,
+                (flags & BOT_ACTIVE) != 0, (flags & OLD_BOT) != 0, values[BALL_X] / SCALE, values[BALL_Y] / SCALE,
+                values[PAD_LY] / SCALE, values[PAD_RY] / SCALE, values[BOT_Y] / SCALE);
+    }
+
+    static void writeKeyframe(ByteBuffer out, long ticks, int[] values) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(KEYFRAME);
+        out.putLong(ticks);
+        for(int i = 0; i < VALUES; i++) {
+            out.putInt(values[i]);
+        }
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    static void writeDelta(ByteBuffer out, long ticks, int[] values, long keyTicks, int[] key) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(DELTA);
+        writeVarLong(out, ticks - keyTicks);
+        int mask = 0;
+        for(int i = 0; i < VALUES; i++) {
+            if(values[i] != key[i]) {
+                mask |= 1 << i;
+            }
+        }
+        out.putShort((short) mask);
+        for(int i = 0; i < VALUES; i++) {
+            if(values[i] != key[i]) {
+                int d = values[i] - key[i];
+                writeVarLong(out, ((d << 1) ^ (d >> 31)) & 0xFFFFFFFFL);
+            }
+        }
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    /**
+     * Decode one frame body (after its length) into values, keeping the keyframe up to date.
+     *
+     * @return the frame's ticks, or -1 for a delta that arrived before any keyframe
+     */
+    static long read(ByteBuffer in, int[] values, int[] key, long[] keyTicks) {
+        byte type = in.get();
+        if(type == KEYFRAME) {
+            keyTicks[0] = in.getLong();
+            for(int i = 0; i < VALUES; i++) {
+                key[i] = in.getInt();
+                values[i] = key[i];
+            }
+            return keyTicks[0];
+        }
+        long ticks = keyTicks[0] + readVarLong(in);
+        int mask = in.getShort() & 0xFFFF;
+        for(int i = 0; i < VALUES; i++) {
+            if((mask & (1 << i)) != 0) {
+                int z = (int) readVarLong(in);
+                values[i] = key[i] + ((z >>> 1) ^ -(z & 1));
+            } else {
+                values[i] = key[i];
+            }
+        }
+        return keyTicks[0] < 0 ? -1 : ticks;
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+}
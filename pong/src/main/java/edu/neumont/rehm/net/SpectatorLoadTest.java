@@ -0,0 +1,175 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Broadcasts a lobby-mode game at 60 frames a second to many spectators on loopback, plus a few
+ * that never read, and reports the fan-out latency and the server's CPU time per spectator.
+ * <p>
+ * The spectators run in child JVMs ({@value #PER_PROCESS} each, every one read by a single selector
+ * thread) since one process can't hold both ends of ten thousand connections under the usual
+ * file descriptor limits. Each child reports the delivery spread: how long after the first of its
+ * spectators decoded a frame the others did.
+ */
+public class SpectatorLoadTest {
+
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+    private static final int PER_PROCESS = 5000;
+    private static final int WARM_UP = 2; // seconds before anything is measured
+    private static final int HISTORY = 4096; // frames remembered by tick
+
+    /**
+     * The entry point.
+     *
+     * @param args optional spectators (default 10000), seconds (default 20) and spectators that never read (default 4);
+     *             or "watch", a port, a count and seconds for a child
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && args[0].equals("watch")) {
+            watch(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int stalled = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        broadcast(count, seconds, stalled);
+    }
+
+    private static void broadcast(int count, int seconds, int stalled) throws Exception {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        int port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        SpectatorServer server = new SpectatorServer(channel);
+        PongEngine engine = new PongEngine(5, new Random(1)); // starts in lobby mode, bouncing off all four walls
+
+        long start = System.nanoTime();
+        List<Process> children = new ArrayList<>();
+        List<BufferedReader> outputs = new ArrayList<>();
+        String java = System.getProperty("java.home") + "/bin/java";
+        for(int left = count; left > 0; left -= PER_PROCESS) {
+            Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), SpectatorLoadTest.class.getName(),
+                    "watch", String.valueOf(port), String.valueOf(Math.min(left, PER_PROCESS)), String.valueOf(seconds + WARM_UP))
+                    .redirectErrorStream(true).start();
+            children.add(child);
+            outputs.add(new BufferedReader(new InputStreamReader(child.getInputStream())));
+        }
+        for(BufferedReader output : outputs) {
+            System.out.println(output.readLine()); // "connected ..."
+        }
+        List<SocketChannel> stalledChannels = new ArrayList<>();
+        for(int i = 0; i < stalled; i++) {
+            SocketChannel c = SocketChannel.open();
+            c.setOption(StandardSocketOptions.SO_RCVBUF, 1024);
+            c.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            stalledChannels.add(c);
+        }
+        System.out.printf("%d spectators (+%d that never read) connected in %.2f s%n", count, stalled,
+                (System.nanoTime() - start) / 1e9);
+
+        long cpuStart = 0, framesStart = 0;
+        long next = System.nanoTime();
+        for(long frame = 0; frame < (seconds + WARM_UP) * 60L; frame++) {
+            if(frame == WARM_UP * 60L) {
+                cpuStart = server.getCpuNanos();
+                framesStart = server.getFrames();
+                start = System.nanoTime();
+            }
+            for(int i = 0; i < 3; i++) {
+                engine.tick();
+            }
+            server.publish(engine);
+            next += FRAME_NANOS;
+            long sleep = next - System.nanoTime();
+            if(sleep > 0) {
+                Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long cpu = server.getCpuNanos() - cpuStart, frames = server.getFrames() - framesStart;
+        server.close();
+
+        System.out.println(server.summary());
+        System.out.printf("server CPU %.1f%% of a core, %.2f us per spectator per second, %.0f ns per spectator per frame%n",
+                cpu / elapsed / 1e7, cpu / 1e3 / elapsed / count, cpu / (double) Math.max(1, frames) / count);
+        for(int i = 0; i < children.size(); i++) {
+            for(String line; (line = outputs.get(i).readLine()) != null; ) {
+                System.out.println(line);
+            }
+            children.get(i).waitFor();
+        }
+        for(SocketChannel c : stalledChannels) {
+            c.close();
+        }
+    }
+
+    /**
+     * A child: connect spectators and read them all from one selector until the server closes or time is up.
+     */
+    private static void watch(int port, int count, int seconds) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        Selector selector = Selector.open();
+        List<SpectatorClient> clients = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            SpectatorClient client = SpectatorClient.open(address);
+            client.getChannel().register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+        }
+        System.out.println("connected " + count + " spectators");
+        System.out.flush();
+
+        LatencyHistogram spread = new LatencyHistogram();
+        long[] firstTick = new long[HISTORY], firstSeen = new long[HISTORY];
+        long start = System.nanoTime(), measureFrom = start + WARM_UP * 1_000_000_000L, end = start + (seconds + 5) * 1_000_000_000L;
+        int open = count;
+        while(open > 0 && System.nanoTime() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                SpectatorClient client = (SpectatorClient) key.attachment();
+                try {
+                    if(client.read() == 0) {
+                        continue;
+                    }
+                } catch(IOException ex) {
+                    key.cancel();
+                    open--;
+                    continue;
+                }
+                long now = System.nanoTime(), tick = client.getTicks();
+                int slot = (int) (tick % HISTORY);
+                if(firstTick[slot] != tick) {
+                    firstTick[slot] = tick;
+                    firstSeen[slot] = now;
+                } else if(now >= measureFrom) {
+                    spread.record(now - firstSeen[slot]);
+                }
+            }
+        }
+        long frames = 0;
+        for(SpectatorClient client : clients) {
+            frames += client.getFrames();
+            client.close();
+        }
+        System.out.printf("%d spectators decoded %d frames; delivery spread p50 %.2f ms  p99 %.2f ms  max %.2f ms%n",
+                count, frames, spread.percentile(50) / 1e6, spread.percentile(99) / 1e6, spread.getMax() / 1e6);
+        selector.close();
+    }
+}
@@ -0,0 +1,463 @@
+package edu.neumont.rehm.net;
+
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.LatencyHistogram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams a game to read-only spectators over TCP. The game thread calls {@link #publish(PongEngine)}
+ * once per frame; the state is encoded there, once, as a delta against the last keyframe (a full
+ * keyframe every {@link #KEYFRAME_INTERVAL} frames). A single selector thread then writes that same
+ * buffer to every spectator and accepts new ones, starting each with the last keyframe. If the
+ * selector thread falls behind the game, it skips straight to the newest frame.
+ * <p>
+ * Frames are encoded into a fixed ring of direct buffers. The selector thread counts who still
+ * holds each one (the newest keyframe, spectator queues) and hands it back once nobody does; only
+ * if the whole ring is held does the game thread allocate a frame outside it.
+ * <p>
+ * A spectator whose socket can't keep up gets its frames queued, up to {@link #MAX_QUEUED}; past
+ * that it is disconnected rather than buffered for without limit.
+ */
+public class SpectatorServer implements Closeable {
+
+    /**
+     * Frames between keyframes.
+     */
+    public static final int KEYFRAME_INTERVAL = 64;
+    /**
+     * Frames a spectator may fall behind before it is dropped.
+     */
+    public static final int MAX_QUEUED = 32;
+    private static final int SEND_BUFFER = 8 * 1024; // per spectator socket; keeps a stalled spectator from hiding in kernel memory
+    private static final int FRAMES = 2 * MAX_QUEUED; // queues only hold frames from the last MAX_QUEUED fan-outs, plus the keyframe
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final SelectionKey acceptKey;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Frame> published = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    // the game thread's
+    private final int[] values = new int[SpectatorCodec.VALUES], key = new int[SpectatorCodec.VALUES];
+    private final Frame[] ring = new Frame[FRAMES];
+    private long keyTicks = 0, spilled = 0;
+    private int sinceKey = 0, next = 0;
+
+    // the selector thread's
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final ByteBuffer discard = ByteBuffer.allocateDirect(256);
+    private Frame keyframe;
+    private final LatencyHistogram fanOut = new LatencyHistogram();
+    private long frames = 0, coalesced = 0, bytesSent = 0, accepted = 0, dropped = 0;
+
+    /**
+     * Instantiates a server and starts its selector thread.
+     *
+     * @param server a bound server channel; it is made non-blocking
+     * @throws IOException if the selector can't be opened
+     */
+    public SpectatorServer(ServerSocketChannel server) throws IOException {
+        this.server = server;
+        for(int i = 0; i < ring.length; i++) {
+            ring[i] = new Frame();
+        }
+        selector = Selector.open();
+        server.configureBlocking(false);
+        acceptKey = server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::loop, "spectator-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Listen on a port on all interfaces.
+     *
+     * @param port the port
+     * @return the server
+     * @throws IOException if the port can't be bound
+     */
+    public static SpectatorServer open(int port) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        return new SpectatorServer(server);
+    }
+
+    /**
+     * Encode the engine's current state and hand it to the selector thread. Call from the game thread.
+     *
+     * @param engine the engine
+     */
+    public void publish(PongEngine engine) {
+        SpectatorCodec.capture(engine, values);
+        Frame frame = take();
+        ByteBuffer data = frame.data;
+        data.clear();
+        boolean isKeyframe = sinceKey == 0;
+        if(isKeyframe) {
+            System.arraycopy(values, 0, key, 0, values.length);
+            keyTicks = engine.getTicks();
+            SpectatorCodec.writeKeyframe(data, keyTicks, key);
+        } else {
+            SpectatorCodec.writeDelta(data, engine.getTicks(), values, keyTicks, key);
+        }
+        sinceKey = (sinceKey + 1) % KEYFRAME_INTERVAL;
+        data.flip();
+        frame.keyframe = isKeyframe;
+        frame.holds = 1; // until the selector thread has fanned it out or skipped it
+        frame.publishedAt = System.nanoTime();
+        published.add(frame);
+        selector.wakeup();
+    }
+
+    /**
+     * The next free frame in the ring, or a new one if every frame is still held.
+     */
+    private Frame take() {
+        for(int i = 0; i < ring.length; i++) {
+            Frame frame = ring[next];
+            next = (next + 1) % ring.length;
+            if(frame.free) {
+                frame.free = false;
+                return frame;
+            }
+        }
+        spilled++;
+        Frame frame = new Frame();
+        frame.free = false;
+        return frame;
+    }
+
+    private void loop() {
+        while(running) {
+            try {
+                selector.select();
+            } catch(IOException ex) {
+                ex.printStackTrace();
+                return;
+            }
+            drainPublished();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if(!key.isValid()) {
+                    continue;
+                }
+                if(key.isAcceptable()) {
+                    accept();
+                } else {
+                    Spectator spectator = (Spectator) key.attachment();
+                    if(key.isReadable()) {
+                        readClosed(spectator);
+                    }
+                    if(key.isValid() && key.isWritable()) {
+                        flush(spectator);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fan out what the game thread has published. When more than one frame is waiting (the writes
+     * fell behind), only the newest matters: every delta is against the last keyframe, so that keyframe
+     * and the newest frame are all a spectator needs.
+     */
+    private void drainPublished() {
+        Frame newest = null, newestKeyframe = null;
+        for(Frame frame; (frame = published.poll()) != null; ) {
+            if(newest != null) {
+                coalesced++;
+                if(newest != newestKeyframe) {
+                    release(newest);
+                }
+            }
+            if(frame.keyframe) {
+                if(newestKeyframe != null) {
+                    release(newestKeyframe);
+                }
+                newestKeyframe = frame;
+            }
+            newest = frame;
+        }
+        if(newestKeyframe != null && newestKeyframe != newest) {
+            coalesced--; // sent after all
+            fanOut(newestKeyframe);
+            release(newestKeyframe);
+        }
+        if(newest != null) {
+            fanOut(newest);
+            release(newest);
+        }
+    }
+
+    /**
+     * Write one frame to every spectator: straight to the socket when nothing is queued ahead of it
+     * (the common case, which shares one view of the frame), onto the spectator's queue otherwise.
+     */
+    private void fanOut(Frame frame) {
+        if(frame.keyframe) {
+            if(keyframe != null) {
+                release(keyframe);
+            }
+            keyframe = frame;
+            frame.holds++;
+        }
+        ByteBuffer view = frame.data.duplicate();
+        int length = view.remaining();
+        for(int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator spectator = spectators.get(i);
+            if(spectator.count > 0) {
+                if(spectator.count == MAX_QUEUED) {
+                    drop(i);
+                } else {
+                    spectator.enqueue(frame, frame.data.duplicate());
+                }
+                continue;
+            }
+            view.position(0);
+            try {
+                bytesSent += spectator.channel.write(view);
+            } catch(IOException ex) {
+                drop(i);
+                continue;
+            }
+            if(view.hasRemaining()) {
+                spectator.enqueue(frame, view.duplicate());
+                spectator.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+        frames++;
+        fanOut.record(System.nanoTime() - frame.publishedAt);
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+                Spectator spectator = new Spectator(channel);
+                spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+                spectators.add(spectator);
+                accepted++;
+                if(keyframe != null) {
+                    spectator.enqueue(keyframe, keyframe.data.duplicate());
+                    flush(spectator);
+                }
+            }
+        } catch(IOException ex) { // typically out of file descriptors; stop accepting until a spectator leaves
+            ex.printStackTrace();
+            acceptKey.interestOps(0);
+        }
+    }
+
+    private void flush(Spectator spectator) {
+        try {
+            while(spectator.count > 0) {
+                ByteBuffer head = spectator.queue[spectator.head];
+                bytesSent += spectator.channel.write(head);
+                if(head.hasRemaining()) {
+                    break;
+                }
+                spectator.queue[spectator.head] = null;
+                release(spectator.frames[spectator.head]);
+                spectator.frames[spectator.head] = null;
+                spectator.head = (spectator.head + 1) % MAX_QUEUED;
+                spectator.count--;
+            }
+            spectator.key.interestOps(spectator.count > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch(IOException ex) {
+            drop(spectators.indexOf(spectator));
+        }
+    }
+
+    /**
+     * Spectators send nothing, so a readable socket means it was closed.
+     */
+    private void readClosed(Spectator spectator) {
+        try {
+            discard.clear();
+            if(spectator.channel.read(discard) >= 0) {
+                return;
+            }
+        } catch(IOException ex) {
+            // closed either way
+        }
+        drop(spectators.indexOf(spectator));
+    }
+
+    private void drop(int index) {
+        if(index < 0) {
+            return;
+        }
+        Spectator spectator = spectators.get(index);
+        spectators.set(index, spectators.get(spectators.size() - 1)); // order doesn't matter
+        spectators.remove(spectators.size() - 1);
+        spectator.key.cancel();
+        for(; spectator.count > 0; spectator.count--) {
+            release(spectator.frames[spectator.head]);
+            spectator.frames[spectator.head] = null;
+            spectator.queue[spectator.head] = null;
+            spectator.head = (spectator.head + 1) % MAX_QUEUED;
+        }
+        acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        try {
+            spectator.channel.close();
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+        dropped++;
+    }
+
+    /**
+     * Let go of one hold on a frame; the last one gives it back to the game thread.
+     */
+    private void release(Frame frame) {
+        if(--frame.holds == 0) {
+            frame.free = true;
+        }
+    }
+
+    /**
+     * How long the selector thread has spent on the CPU.
+     *
+     * @return the CPU time in nanoseconds, or -1 if the JVM can't measure it
+     */
+    public long getCpuNanos() {
+        return ManagementFactory.getThreadMXBean().getThreadCpuTime(thread.getId());
+    }
+
+    /**
+     * The time from {@link #publish(PongEngine)} until the frame had been written or queued for every spectator.
+     *
+     * @return the fan-out latencies; read after {@link #close()} for an exact view
+     */
+    public LatencyHistogram getFanOut() {
+        return fanOut;
+    }
+
+    public int getSpectators() {
+        return spectators.size();
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Spectators disconnected for falling too far behind or closing their end.
+     *
+     * @return the number dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Frames skipped because a newer one was published before they went out.
+     *
+     * @return the number skipped
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Frames allocated because every frame in the ring was still held by a slow spectator or the keyframe.
+     *
+     * @return the number allocated outside the ring
+     */
+    public long getSpilled() {
+        return spilled;
+    }
+
+    /**
+     * The broadcast measurements, for the console.
+     *
+     * @return one line per measurement
+     */
+    public String summary() {
+        return String.format("%d spectators (%d accepted, %d dropped), %d frames (%d skipped for newer ones, %d outside the ring), %d bytes sent%n" +
+                        "fan-out p50 %.1f us  p99 %.1f us  max %.1f us",
+                spectators.size(), accepted, dropped, frames, coalesced, spilled, bytesSent,
+                fanOut.percentile(50) / 1e3, fanOut.percentile(99) / 1e3, fanOut.getMax() / 1e3);
+    }
+
+    /**
+     * Stop the selector thread and disconnect every spectator.
+     *
+     * @throws IOException if the server socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for(Spectator spectator : spectators) {
+            spectator.channel.close();
+        }
+        selector.close();
+        server.close();
+    }
+
+    /**
+     * A reusable encoded frame. The game thread fills it while it is not free; after that only the
+     * selector thread touches it, counting holds, until the last one sets it free again.
+     */
+    private static final class Frame {
+        final ByteBuffer data = ByteBuffer.allocateDirect(SpectatorCodec.MAX_FRAME);
+        boolean keyframe;
+        long publishedAt;
+        int holds;
+        volatile boolean free = true;
+    }
+
+    private static final class Spectator {
+        final SocketChannel channel;
+        final ByteBuffer[] queue = new ByteBuffer[MAX_QUEUED];
+        final Frame[] frames = new Frame[MAX_QUEUED]; // what each queued view is of
+        SelectionKey key;
+        int head = 0, count = 0;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void enqueue(Frame frame, ByteBuffer view) {
+            int tail = (head + count) % MAX_QUEUED;
+            queue[tail] = view;
+            frames[tail] = frame;
+            frame.holds++;
+            count++;
+        }
+    }
+}
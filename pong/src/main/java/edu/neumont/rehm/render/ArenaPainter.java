@@ -0,0 +1,194 @@
+package edu.neumont.rehm.render;
+
+import edu.neumont.rehm.engine.BatchEngine;
+import edu.neumont.rehm.engine.PongEngine;
+
+import java.util.Arrays;
+
+/**
+ * Draws many matches of a {@link BatchEngine} as a grid of small boards on one framebuffer, in
+ * one pass. Every tile is the same board drawn through a {@link ScaledSurface}, so what never
+ * changes is drawn once and shared: the tile backgrounds and nets are rasterized into one image
+ * that starts every frame, and the digits are rasterized once at tile size and copied in. What
+ * does change is batched across tiles: all the balls are one fillRects call, and so are all the
+ * left paddles and all the right ones. Tiles leave out the ball border and the control indicators,
+ * which would be less than a pixel, and a ball that has gone past a paddle is held at the tile's edge.
+ */
+public class ArenaPainter {
+
+    private static final int GAP = 1; // pixels between tiles
+    private static final int OUTSIDE = 0xFF000000; // the gaps and the margin around the grid
+
+    private final double WIDTH = PongEngine.WIDTH, HEIGHT = PongEngine.HEIGHT;
+    private final BoardPainter painter = new BoardPainter();
+    private final int matches, columns, rows;
+    private final double scale;
+    private final int[] originX, originY;
+    private final int[] board; // every tile's background and net
+    private final RasterSurface frame;
+    private final ScaledSurface tiles;
+    private final double[] xs, ys;
+
+    /**
+     * Lay out a grid of tiles, as big as they fit, and render the shared images.
+     *
+     * @param width   the framebuffer width
+     * @param height  the framebuffer height
+     * @param matches the number of tiles
+     * @throws IllegalArgumentException if the tiles would be too small to draw
+     */
+    public ArenaPainter(int width, int height, int matches) {
+        this.matches = matches;
+        int bestColumns = 1;
+        double best = 0;
+        for(int c = 1; c <= matches; c++) {
+            int r = (matches + c - 1) / c;
+            double fit = Math.min(width / (c * WIDTH), height / (r * HEIGHT));
+            if(fit > best) {
+                best = fit;
+                bestColumns = c;
+            }
+        }
+        columns = bestColumns;
+        rows = (matches + columns - 1) / columns;
+        int pitchX = (int) (WIDTH * best), pitchY = (int) (HEIGHT * best); // whole pixels, so every tile looks the same
+        scale = Math.min((pitchX - GAP) / WIDTH, (pitchY - GAP) / HEIGHT);
+        if(scale * HEIGHT < 16) {
+            throw new IllegalArgumentException(matches + " matches don't fit in " + width + "x" + height);
+        }
+        int left = (width - columns * pitchX) / 2, top = (height - rows * pitchY) / 2;
+        originX = new int[matches];
+        originY = new int[matches];
+        for(int i = 0; i < matches; i++) {
+            originX[i] = left + (i % columns) * pitchX;
+            originY[i] = top + (i / columns) * pitchY;
+        }
+
+        RasterSurface background = new RasterSurface(width, height);
+        background.setFill(OUTSIDE);
+        background.fillRect(0, 0, width, height);
+        ScaledSurface tile = new ScaledSurface(background, scale);
+        for(int i = 0; i < matches; i++) {
+            tile.setOrigin(originX[i], originY[i]);
+            painter.resetBoard(tile);
+            painter.drawSplit(tile);
+        }
+        board = background.getPixels();
+
+        int glyphWidth = (int) Math.ceil(painter.getTextWidth() * scale), glyphHeight = (int) Math.ceil(painter.getTextHeight() * scale);
+        int[][] glyphs = new int[10][];
+        for(int i = 0; i < glyphs.length; i++) {
+            RasterSurface glyph = new RasterSurface(glyphWidth, glyphHeight);
+            glyph.setFill(BoardPainter.BACKGROUND); // the digit may not reach the rounded-up edge
+            glyph.fillRect(0, 0, glyphWidth, glyphHeight);
+            painter.drawNumber(new ScaledSurface(glyph, scale), 0, 0, i);
+            glyphs[i] = glyph.getPixels();
+        }
+        frame = new RasterSurface(width, height);
+        frame.setGlyphs(glyphs, glyphWidth, glyphHeight);
+        tiles = new ScaledSurface(frame, scale);
+        xs = new double[matches];
+        ys = new double[matches];
+    }
+
+    /**
+     * Draw every match as it is now. Allocates nothing.
+     *
+     * @param batch the matches, one per lane; at least as many lanes as tiles
+     * @return the framebuffer, reused by the next call
+     */
+    public RasterSurface draw(BatchEngine batch) {
+        System.arraycopy(board, 0, frame.getPixels(), 0, board.length);
+        for(int i = 0; i < matches; i++) {
+            tiles.setOrigin(originX[i], originY[i]);
+            painter.drawScore(tiles, batch.getPlayerLScore(i), batch.getPlayerRScore(i));
+        }
+        frame.setFill(BoardPainter.GAME_COLOR);
+        double ballMaxX = WIDTH - batch.getBallW();
+        for(int i = 0; i < matches; i++) {
+            xs[i] = originX[i] + Math.max(0, Math.min(ballMaxX, batch.getBallX(i))) * scale; // a scoring ball stops at the edge instead of running into the next tile
+            ys[i] = originY[i] + batch.getBallY(i) * scale;
+        }
+        frame.fillRects(xs, ys, matches, tiles.scaled(batch.getBallW()), tiles.scaled(batch.getBallH()));
+        for(int i = 0; i < matches; i++) {
+            xs[i] = originX[i] + batch.getPadLX() * scale;
+            ys[i] = originY[i] + batch.getPadLY(i) * scale;
+        }
+        frame.fillRects(xs, ys, matches, tiles.scaled(batch.getPadW()), tiles.scaled(batch.getPadH()));
+        for(int i = 0; i < matches; i++) {
+            xs[i] = originX[i] + batch.getPadRX() * scale;
+            ys[i] = originY[i] + batch.getPadRY(i) * scale;
+        }
+        frame.fillRects(xs, ys, matches, tiles.scaled(batch.getPadW()), tiles.scaled(batch.getPadH()));
+        return frame;
+    }
+
+    public RasterSurface getFrame() {
+        return frame;
+    }
+
+    public int getMatches() {
+        return matches;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * The entry point: steps and draws bot-vs-bot arenas of a few sizes headless, as the arena
+     * view does each 60 Hz frame, and prints what a frame costs before it goes to the screen.
+     *
+     * @param args optional match counts separated by commas (default 64,256,1024), width (default 1600), height (default 900) and frames (default 1200)
+     */
+    public static void main(String[] args) {
+        String[] counts = (args.length > 0 ? args[0] : "64,256,1024").split(",");
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 1600;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 900;
+        int frames = args.length > 3 ? Integer.parseInt(args[3]) : 1200;
+        int rateInMs = 5;
+        double ticksPerFrame = 1000.0 / 60 / rateInMs;
+
+        for(String count : counts) {
+            int matches = Integer.parseInt(count.trim());
+            ArenaPainter arena = new ArenaPainter(width, height, matches);
+            BatchEngine batch = new BatchEngine(matches, rateInMs);
+            long seed = 1;
+            for(int i = 0; i < matches; i++) {
+                batch.reset(i, seed++, true, true);
+            }
+            long[] step = new long[frames], draw = new long[frames];
+            double owed = 0;
+            for(int round = 0; round < 2; round++) { // the first round is JIT warm-up
+                for(int f = 0; f < frames; f++) {
+                    long start = System.nanoTime();
+                    owed += ticksPerFrame;
+                    batch.step((int) owed);
+                    owed -= (int) owed;
+                    for(int i = 0; i < matches; i++) {
+                        if(batch.isDone(i)) {
+                            batch.reset(i, seed++, true, true);
+                        }
+                    }
+                    long stepped = System.nanoTime();
+                    arena.draw(batch);
+                    step[f] = stepped - start;
+                    draw[f] = System.nanoTime() - stepped;
+                }
+            }
+            Arrays.sort(step);
+            Arrays.sort(draw);
+            System.out.printf("%5d matches, %dx%d tiles at %.3f: step p50 %.3f ms  p99 %.3f ms, draw p50 %.3f ms  p99 %.3f ms (%dx%d frame)%n",
+                    matches, arena.getColumns(), arena.getRows(), arena.getScale(), step[frames / 2] / 1e6, step[frames * 99 / 100] / 1e6,
+                    draw[frames / 2] / 1e6, draw[frames * 99 / 100] / 1e6, width, height);
+        }
+    }
+}
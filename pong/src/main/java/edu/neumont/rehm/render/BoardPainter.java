@@ -0,0 +1,320 @@
+package edu.neumont.rehm.render;
+
+import edu.neumont.rehm.engine.ChaosEngine;
+import edu.neumont.rehm.engine.PongEngine;
+
+/**
+ * Draws the board, ball, paddles, score and overlays onto any {@link Surface}.
+ * Holds no game state; callers pass in the positions to draw.
+ */
+public class BoardPainter {
+
+    /**
+     * The foreground color (light gray).
+     */
+    public static final int GAME_COLOR = 0xFFD3D3D3; // white, limegreen; beige, black; steelblue, cadetblue
+    /**
+     * The board color.
+     */
+    public static final int BACKGROUND = 0xFF12121A; // color(0.07, 0.07, 0.1)
+    private static final int ACTIVE = 0xFFFF0000, INACTIVE = 0xFF0000FF; // red; palevioletred, limegreen, blue
+
+    private final double WIDTH = PongEngine.WIDTH, HEIGHT = PongEngine.HEIGHT;
+    private double buffer = 20, textBuffer = 27, textPadding = 15; // 20, 27, 15
+    private double textWidth = 40, textHeight = 65; // 15 + 10 + 15 (40), 15 + 10 + 15 + 10 + 15 (65)
+
+    /**
+     * Draw a whole frame of a game, the way the view does without its caches and overlays.
+     *
+     * @param s          the surface
+     * @param engine     the game
+     * @param alpha      how far between the previous tick and the current one to draw the ball and paddles
+     * @param indicators whether to draw the control indicators
+     */
+    public void drawGame(Surface s, PongEngine engine, double alpha, boolean indicators) {
+        resetBoard(s);
+        drawScore(s, engine.getPlayerLScore(), engine.getPlayerRScore());
+        drawSplit(s);
+        drawBall(s, engine.getBallX(alpha), engine.getBallY(alpha), engine.getBallW(), engine.getBallH());
+        if(!engine.isLobbyMode()) {
+            drawPaddle(s, engine.getPadLX(), engine.getPadLY(alpha), engine.getPadW(), engine.getPadH());
+            drawPaddle(s, engine.getPadRX(), engine.getPadRY(alpha), engine.getPadW(), engine.getPadH());
+            if(indicators) {
+                drawIndicators(s, engine.isBotActive(), engine.isOldBot());
+            }
+        }
+    }
+
+    /**
+     * Draw a whole chaos mode frame: the board, both paddles and every ball.
+     *
+     * @param s     the surface
+     * @param chaos the chaos game
+     */
+    public void drawChaos(Surface s, ChaosEngine chaos) {
+        resetBoard(s);
+        drawScore(s, chaos.getPlayerLScore(), chaos.getPlayerRScore());
+        drawSplit(s);
+        drawPaddle(s, chaos.getPadLX(), chaos.getPadLY(), chaos.getPadW(), chaos.getPadH());
+        drawPaddle(s, chaos.getPadRX(), chaos.getPadRY(), chaos.getPadW(), chaos.getPadH());
+        drawBalls(s, chaos.getXs(), chaos.getYs(), chaos.getCount(), chaos.getSize());
+    }
+
+    /**
+     * Fill the whole board with the background color.
+     *
+     * @param s the surface
+     */
+    public void resetBoard(Surface s) {
+        s.setFill(BACKGROUND);
+        s.fillRect(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Draw the dashed net down the middle.
+     *
+     * @param s the surface
+     */
+    public void drawSplit(Surface s) {
+        s.setFill(GAME_COLOR);
+        double lineWidth = 3; // def 10; fav 3
+        double margin = 4; // def 15; fav 10, 8
+        int numOfLines = 80; // def 16; fav 40, 80
+        double lineLength = (HEIGHT + margin) / numOfLines - margin; // def 23.4375
+
+        for (int i = 0; i < numOfLines; i++) {
+            s.fillRect(WIDTH/2 - lineWidth/2,i*lineLength + i*margin, lineWidth, lineLength);
+        }
+    }
+
+    /**
+     * Draw both scores at the top of the board.
+     *
+     * @param s      the surface
+     * @param scoreL the left player's score
+     * @param scoreR the right player's score
+     */
+    public void drawScore(Surface s, int scoreL, int scoreR) {
+        drawPlayerLScore(s, scoreL);
+        drawPlayerRScore(s, scoreR);
+    }
+
+    private void drawPlayerLScore(Surface s, int score) {
+        int length = digitCount(score);
+        for(int i = 0; i < length; i++) {
+            double x = WIDTH/2 - ((textWidth+textPadding)*length) + textPadding - textBuffer;
+            double y = buffer;
+            x += i*(textWidth+textPadding);
+            drawDigit(s, x, y, digitAt(score, length, i));
+        }
+    }
+
+    private void drawPlayerRScore(Surface s, int score) {
+        int length = digitCount(score);
+        for(int i = 0; i < length; i++) {
+            double x = WIDTH/2 + textBuffer;
+            x -= digitAt(score, length, 0) == 1 ? 25 : 0;
+            double y = buffer;
+            x += i*(textWidth+textPadding);
+            drawDigit(s, x, y, digitAt(score, length, i));
+        }
+    }
+
+    private static int digitCount(int num) {
+        int length = 1;
+        for(int n = num / 10; n > 0; n /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * One decimal digit of a number, counting from the most significant; drawing a score this way allocates nothing.
+     */
+    private static int digitAt(int num, int length, int i) {
+        for(int k = length - 1; k > i; k--) {
+            num /= 10;
+        }
+        return num % 10;
+    }
+
+    private void drawDigit(Surface s, double x, double y, int number) {
+        if(!s.drawGlyph(number, x, y)) {
+            drawNumber(s, x, y, number);
+        }
+    }
+
+    /**
+     * Draw one digit rect by rect: a solid block with background cut-outs.
+     *
+     * @param s      the surface
+     * @param x      the x
+     * @param y      the y
+     * @param number the digit, 0 to 9
+     */
+    public void drawNumber(Surface s, double x, double y, int number) {
+        s.setFill(GAME_COLOR);
+        s.fillRect(x, y, textWidth, textHeight);
+        s.setFill(BACKGROUND);
+        switch (number) {
+            case 0:
+                s.fillRect(x + 15, y + 15, 10, 35);
+                break;
+            case 1:
+                s.fillRect(x + 0, y + 0, 25, 65);
+                break;
+            case 2:
+                s.fillRect(x + 0, y + 15, 25, 10);
+                s.fillRect(x + 15, y + 40, 25, 10);
+                break;
+            case 3:
+                s.fillRect(x + 0, y + 15, 25, 10);
+                s.fillRect(x + 0, y + 40, 25, 10);
+                break;
+            case 4:
+                s.fillRect(x + 15, y + 0, 10, 25);
+                s.fillRect(x + 0, y + 40, 25, 25);
+                break;
+            case 5:
+                s.fillRect(x + 15, y + 15, 25, 10);
+                s.fillRect(x + 0, y + 40, 25, 10);
+                break;
+            case 6:
+                s.fillRect(x + 15, y + 0, 25, 25);
+                s.fillRect(x + 15, y + 40, 10, 10);
+                break;
+            case 7:
+                s.fillRect(x + 0, y + 15, 25, 50);
+                break;
+            case 8:
+                s.fillRect(x + 15, y + 15, 10, 10);
+                s.fillRect(x + 15, y + 40, 10, 10);
+                break;
+            case 9:
+                s.fillRect(x + 15, y + 15, 10, 10);
+                s.fillRect(x + 0, y + 40, 25, 25);
+                break;
+        }
+    }
+
+    /**
+     * Draw the ball with a background-colored border so it reads over the net.
+     *
+     * @param s the surface
+     * @param x the ball x
+     * @param y the ball y
+     * @param w the ball width
+     * @param h the ball height
+     */
+    public void drawBall(Surface s, double x, double y, double w, double h) {
+        s.setFill(BACKGROUND);
+        int stroke = getBallStroke();
+        s.fillRect(x-stroke, y-stroke, w+(stroke*2), h+(stroke*2));
+        s.setFill(GAME_COLOR);
+        s.fillRect(x, y, w, h);
+    }
+
+    /**
+     * Draw many balls in one pass: one fill color and one batched fill, and no border (they would
+     * only cut into each other).
+     *
+     * @param s     the surface
+     * @param xs    the ball x positions
+     * @param ys    the ball y positions
+     * @param count the number of balls
+     * @param size  the ball width and height
+     */
+    public void drawBalls(Surface s, double[] xs, double[] ys, int count, double size) {
+        s.setFill(GAME_COLOR);
+        s.fillRects(xs, ys, count, size, size);
+    }
+
+    /**
+     * Draw a paddle.
+     *
+     * @param s the surface
+     * @param x the paddle x
+     * @param y the paddle y
+     * @param w the paddle width
+     * @param h the paddle height
+     */
+    public void drawPaddle(Surface s, double x, double y, double w, double h) {
+        s.setFill(GAME_COLOR);
+        s.fillRect(x, y, w, h);
+    }
+
+    /**
+     * Draw the control indicators in the top corners: red for a bot, blue for a player.
+     *
+     * @param s         the surface
+     * @param botActive whether the smart bot has the left paddle
+     * @param oldBot    whether the dumb bot has the right paddle
+     */
+    public void drawIndicators(Surface s, boolean botActive, boolean oldBot) {
+        int diameter = 6;
+        int border = 5;
+        s.setFill(botActive? ACTIVE : INACTIVE);
+        s.fillRect(border, border, diameter, diameter);
+        s.setFill(oldBot? ACTIVE : INACTIVE);
+        s.fillRect(WIDTH - (border + diameter), border, diameter, diameter);
+        s.setFill(GAME_COLOR);
+    }
+
+    /**
+     * Draw the bot's predicted ball position.
+     *
+     * @param s the surface
+     * @param x the x
+     * @param y the y
+     */
+    public void drawDot(Surface s, double x, double y) {
+        double f = 2;
+        double b = getDotBorder();
+        s.setFill(BACKGROUND);
+        s.fillRect(x-(f/2)-b, y-(f/2)-b, b+f+b, b+f+b);
+        s.setFill(GAME_COLOR);
+        s.fillRect(x-(f/2), y-(f/2), f, f);
+    }
+
+    /**
+     * Split a score into its decimal digits.
+     *
+     * @param num the score, zero or more
+     * @return the digits, most significant first
+     */
+    public int[] splitInts(int num) {
+        int length = digitCount(num);
+        int[] ints = new int[length];
+        for(int i = length - 1; i >= 0; i--) {
+            ints[i] = num % 10;
+            num /= 10;
+        }
+        return ints;
+    }
+
+    /**
+     * The width of the background border drawBall puts around the ball.
+     *
+     * @return the border in pixels
+     */
+    public int getBallStroke() {
+        return 3;
+    }
+
+    /**
+     * The half-size of the area drawDot covers, past the dot itself.
+     *
+     * @return the border in pixels
+     */
+    public double getDotBorder() {
+        return 1;
+    }
+
+    public double getTextWidth() {
+        return textWidth;
+    }
+
+    public double getTextHeight() {
+        return textHeight;
+    }
+}
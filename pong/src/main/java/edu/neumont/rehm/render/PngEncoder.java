@@ -0,0 +1,95 @@
+package edu.neumont.rehm.render;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes ARGB framebuffers as 8-bit RGB PNGs. Pong frames are a few flat colors, so the fastest
+ * deflate level still compresses them well and encoding costs a fraction of what the general
+ * ImageIO writer does. Keeps its buffers between images; one per thread.
+ */
+public class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private byte[] row = new byte[0], compressed = new byte[64 * 1024];
+    private final byte[] header = new byte[13], word = new byte[4];
+
+    /**
+     * Encode one image.
+     *
+     * @param pixels the pixels, row by row from the top left; alpha is ignored
+     * @param width  the width
+     * @param height the height
+     * @param out    where to write the PNG
+     * @throws IOException if writing fails
+     */
+    public void write(int[] pixels, int width, int height, OutputStream out) throws IOException {
+        out.write(SIGNATURE);
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // bits per channel
+        header[9] = 2; // truecolor
+        header[10] = 0;
+        header[11] = 0;
+        header[12] = 0;
+        chunk(out, "IHDR", header, header.length);
+
+        if(row.length != 1 + width * 3) {
+            row = new byte[1 + width * 3]; // filter type 0 (none), then RGB
+        }
+        deflater.reset();
+        int length = 0;
+        for(int y = 0; y < height; y++) {
+            for(int x = 0, i = 1, p = y * width; x < width; x++, p++) {
+                int argb = pixels[p];
+                row[i++] = (byte) (argb >> 16);
+                row[i++] = (byte) (argb >> 8);
+                row[i++] = (byte) argb;
+            }
+            deflater.setInput(row);
+            while(!deflater.needsInput()) {
+                length = deflate(length);
+            }
+        }
+        deflater.finish();
+        while(!deflater.finished()) {
+            length = deflate(length);
+        }
+        chunk(out, "IDAT", compressed, length);
+        chunk(out, "IEND", compressed, 0);
+    }
+
+    private int deflate(int length) {
+        if(length == compressed.length) {
+            byte[] bigger = new byte[compressed.length * 2];
+            System.arraycopy(compressed, 0, bigger, 0, length);
+            compressed = bigger;
+        }
+        return length + deflater.deflate(compressed, length, compressed.length - length);
+    }
+
+    private void chunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        putInt(word, 0, length);
+        out.write(word);
+        byte[] typeBytes = {(byte) type.charAt(0), (byte) type.charAt(1), (byte) type.charAt(2), (byte) type.charAt(3)};
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        out.write(word);
+    }
+
+    private static void putInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,146 @@
+package edu.neumont.rehm.render;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Surface} that fills rectangles straight into an ARGB framebuffer, with no display or
+ * toolkit involved. Rectangle edges are rounded to whole pixels, which for the sizes Pong uses
+ * gives the same shapes the canvas draws (without the antialiased fringe).
+ */
+public class RasterSurface implements Surface {
+
+    private final int width, height;
+    private final int[] pixels;
+    private int fill = 0xFF000000;
+    private int[][] glyphs;
+    private int glyphWidth, glyphHeight;
+
+    /**
+     * Instantiates a new surface, cleared to transparent black.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     */
+    public RasterSurface(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    /**
+     * Instantiates a surface over an existing framebuffer, e.g. a BufferedImage's, so nothing has to be copied out.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @param pixels width * height ARGB pixels, row by row from the top left
+     */
+    public RasterSurface(int width, int height, int[] pixels) {
+        if(pixels.length < width * height) {
+            throw new IllegalArgumentException("framebuffer smaller than " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    @Override
+    public void setFill(int argb) {
+        fill = argb;
+    }
+
+    @Override
+    public void fillRect(double x, double y, double w, double h) {
+        int x0 = Math.max(0, (int) Math.round(x)), x1 = Math.min(width, (int) Math.round(x + w));
+        int y0 = Math.max(0, (int) Math.round(y)), y1 = Math.min(height, (int) Math.round(y + h));
+        if(x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        int alpha = fill >>> 24;
+        if(alpha == 0xFF) {
+            for(int row = y0; row < y1; row++) {
+                Arrays.fill(pixels, row * width + x0, row * width + x1, fill);
+            }
+        } else if(alpha != 0) {
+            for(int row = y0; row < y1; row++) {
+                for(int i = row * width + x0, end = row * width + x1; i < end; i++) {
+                    pixels[i] = blend(pixels[i], fill, alpha);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the rectangles in one loop, writing the pixels directly when the fill is opaque; small
+     * rectangles, like the chaos mode balls, cost a few stores each instead of a fillRect call.
+     */
+    @Override
+    public void fillRects(double[] xs, double[] ys, int count, double w, double h) {
+        if(fill >>> 24 != 0xFF) {
+            Surface.super.fillRects(xs, ys, count, w, h);
+            return;
+        }
+        int[] pixels = this.pixels;
+        int width = this.width, height = this.height, fill = this.fill;
+        for(int i = 0; i < count; i++) {
+            int x0 = Math.max(0, (int) Math.round(xs[i])), x1 = Math.min(width, (int) Math.round(xs[i] + w));
+            int y0 = Math.max(0, (int) Math.round(ys[i])), y1 = Math.min(height, (int) Math.round(ys[i] + h));
+            for(int row = y0; row < y1; row++) {
+                for(int p = row * width + x0, end = row * width + x1; p < end; p++) {
+                    pixels[p] = fill;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean drawGlyph(int digit, double x, double y) {
+        if(glyphs == null) {
+            return false;
+        }
+        int[] glyph = glyphs[digit];
+        int x0 = (int) Math.round(x), y0 = (int) Math.round(y);
+        int from = Math.max(0, -x0), to = Math.min(glyphWidth, width - x0);
+        for(int row = Math.max(0, -y0), end = Math.min(glyphHeight, height - y0); row < end && from < to; row++) {
+            System.arraycopy(glyph, row * glyphWidth + from, pixels, (y0 + row) * width + x0 + from, to - from);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the digit images drawGlyph copies in, or null to draw digits rect by rect. They are
+     * copied as they are, background and all.
+     *
+     * @param glyphs ten ARGB images, one per digit, row by row from the top left
+     * @param width  the width of each
+     * @param height the height of each
+     */
+    public void setGlyphs(int[][] glyphs, int width, int height) {
+        this.glyphs = glyphs;
+        glyphWidth = width;
+        glyphHeight = height;
+    }
+
+    private static int blend(int under, int over, int alpha) {
+        int inverse = 255 - alpha;
+        int r = (((over >> 16) & 0xFF) * alpha + ((under >> 16) & 0xFF) * inverse) / 255;
+        int g = (((over >> 8) & 0xFF) * alpha + ((under >> 8) & 0xFF) * inverse) / 255;
+        int b = ((over & 0xFF) * alpha + (under & 0xFF) * inverse) / 255;
+        int a = Math.min(255, alpha + (under >>> 24) * inverse / 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * The framebuffer, row by row from the top left, one 0xAARRGGBB int per pixel. Live, not a copy.
+     *
+     * @return the pixels
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
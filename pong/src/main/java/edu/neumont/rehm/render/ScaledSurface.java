@@ -0,0 +1,66 @@
+package edu.neumont.rehm.render;
+
+/**
+ * A {@link Surface} that scales and moves everything drawn on it before passing it to another
+ * surface, so a whole board can be drawn into a tile of a bigger one. Rectangles that would
+ * scale to less than a pixel across are kept one pixel wide, so the net and the ball stay
+ * visible on small tiles. Glyphs are passed on at the scaled position; the surface underneath
+ * has to hold glyphs made at the same scale.
+ */
+public class ScaledSurface implements Surface {
+
+    private final Surface target;
+    private final double scale;
+    private double originX = 0, originY = 0;
+
+    /**
+     * Instantiates a new surface.
+     *
+     * @param target the surface to draw on
+     * @param scale  the target pixels per board pixel
+     */
+    public ScaledSurface(Surface target, double scale) {
+        this.target = target;
+        this.scale = scale;
+    }
+
+    /**
+     * Move the board's top left corner.
+     *
+     * @param x the x on the target
+     * @param y the y on the target
+     */
+    public void setOrigin(double x, double y) {
+        originX = x;
+        originY = y;
+    }
+
+    @Override
+    public void setFill(int argb) {
+        target.setFill(argb);
+    }
+
+    @Override
+    public void fillRect(double x, double y, double w, double h) {
+        target.fillRect(originX + x * scale, originY + y * scale, scaled(w), scaled(h));
+    }
+
+    @Override
+    public boolean drawGlyph(int digit, double x, double y) {
+        return target.drawGlyph(digit, originX + x * scale, originY + y * scale);
+    }
+
+    /**
+     * A length on the target, at least a pixel if it is anything at all.
+     *
+     * @param length the length on the board
+     * @return the length on the target
+     */
+    public double scaled(double length) {
+        return length > 0 ? Math.max(1, length * scale) : length * scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+}
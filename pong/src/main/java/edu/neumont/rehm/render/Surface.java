@@ -0,0 +1,53 @@
+package edu.neumont.rehm.render;
+
+/**
+ * Something the board can be drawn on. Everything in Pong is an axis-aligned rectangle,
+ * so a fill color and a rectangle fill are all a backend has to provide.
+ */
+public interface Surface {
+
+    /**
+     * Sets the color for the following fills.
+     *
+     * @param argb the color as 0xAARRGGBB
+     */
+    void setFill(int argb);
+
+    /**
+     * Fill a rectangle with the current fill color.
+     *
+     * @param x the x
+     * @param y the y
+     * @param w the width
+     * @param h the height
+     */
+    void fillRect(double x, double y, double w, double h);
+
+    /**
+     * Fill many same-sized rectangles with the current fill color in one call. Backends that can
+     * draw them faster together than one fillRect at a time override this.
+     *
+     * @param xs    the x of each rectangle
+     * @param ys    the y of each rectangle
+     * @param count how many of the entries to fill
+     * @param w     the width of every rectangle
+     * @param h     the height of every rectangle
+     */
+    default void fillRects(double[] xs, double[] ys, int count, double w, double h) {
+        for(int i = 0; i < count; i++) {
+            fillRect(xs[i], ys[i], w, h);
+        }
+    }
+
+    /**
+     * Draw a score digit from a cached image, if the surface has one.
+     *
+     * @param digit the digit, 0 to 9
+     * @param x     the x
+     * @param y     the y
+     * @return false if the digit should be drawn rect by rect instead
+     */
+    default boolean drawGlyph(int digit, double x, double y) {
+        return false;
+    }
+}
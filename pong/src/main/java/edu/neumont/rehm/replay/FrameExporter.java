@@ -0,0 +1,195 @@
+package edu.neumont.rehm.replay;
+
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.PngEncoder;
+import edu.neumont.rehm.render.RasterSurface;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders an input log to image files without a display: each frame is replayed, drawn by
+ * {@link BoardPainter} into a {@link RasterSurface}, and written as a PNG or appended to a raw video
+ * file. Frames are handed out in chunks to worker threads, each with its own replay that only ever
+ * seeks forward, so the work spreads over every core.
+ */
+public class FrameExporter {
+
+    /**
+     * The output format.
+     */
+    public enum Format {
+        /**
+         * One frameNNNNNN.png per frame in a directory.
+         */
+        PNG,
+        /**
+         * One file of frames back to back, 4 bytes per pixel in B, G, R, A order (ffmpeg's bgra).
+         */
+        RAW
+    }
+
+    private static final int CHUNK = 60; // frames per hand-out
+
+    private final Path log, out;
+    private final Format format;
+    private final int fps, width = (int) PongEngine.WIDTH, height = (int) PongEngine.HEIGHT;
+    private final double ticksPerFrame;
+    private final long frameCount;
+
+    /**
+     * Instantiates an exporter.
+     *
+     * @param log    the input log
+     * @param out    the directory for PNGs, or the file for raw frames
+     * @param format the format
+     * @param fps    frames per second of play
+     * @throws IOException if the log can't be read
+     */
+    public FrameExporter(Path log, Path out, Format format, int fps) throws IOException {
+        this.log = log;
+        this.out = out;
+        this.format = format;
+        this.fps = fps;
+        Replay replay = Replay.open(log);
+        ticksPerFrame = 1000.0 / fps / replay.getRateInMs();
+        frameCount = (long) (replay.getTotalTicks() / ticksPerFrame) + 1;
+    }
+
+    /**
+     * Render a range of frames.
+     *
+     * @param from    the first frame
+     * @param to      the frame to stop before, clamped to the recording
+     * @param threads the worker threads
+     * @return the number of frames written
+     * @throws IOException if the output can't be written
+     */
+    public long export(long from, long to, int threads) throws IOException {
+        long end = Math.min(to, frameCount);
+        if(from >= end) {
+            return 0;
+        }
+        FileChannel raw = null;
+        if(format == Format.PNG) {
+            Files.createDirectories(out);
+        } else {
+            raw = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        AtomicLong next = new AtomicLong(from);
+        List<Thread> workers = new ArrayList<>();
+        List<IOException> failures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            FileChannel channel = raw;
+            Thread worker = new Thread(() -> {
+                try {
+                    work(next, from, end, channel);
+                } catch(IOException ex) {
+                    synchronized(failures) {
+                        failures.add(ex);
+                    }
+                }
+            }, "export-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        try {
+            for(Thread worker : workers) {
+                worker.join();
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if(raw != null) {
+            raw.close();
+        }
+        if(!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+        return end - from;
+    }
+
+    private void work(AtomicLong next, long from, long end, FileChannel raw) throws IOException {
+        Replay replay = Replay.open(log);
+        BoardPainter painter = new BoardPainter();
+        RasterSurface surface = new RasterSurface(width, height);
+        PngEncoder png = new PngEncoder();
+        ByteBuffer bytes = raw == null ? null : ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        long start;
+        while((start = next.getAndAdd(CHUNK)) < end) {
+            for(long frame = start; frame < Math.min(start + CHUNK, end); frame++) {
+                replay.seek(Math.round(frame * ticksPerFrame));
+                painter.drawGame(surface, replay.getEngine(), 1, true);
+                if(raw == null) {
+                    Path file = out.resolve(String.format("frame%06d.png", frame));
+                    try(OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                        png.write(surface.getPixels(), width, height, stream);
+                    }
+                } else {
+                    bytes.clear();
+                    bytes.asIntBuffer().put(surface.getPixels());
+                    long position = (frame - from) * bytes.capacity();
+                    while(bytes.hasRemaining()) {
+                        position += raw.write(bytes, position);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The frames the whole recording makes at this frame rate.
+     *
+     * @return the frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /**
+     * The entry point.
+     *
+     * @param args the log, the output (directory for png, file for raw), then optional format (png or raw, default png),
+     *             fps (default 60), first and last second (default the whole log) and threads (default one per core)
+     * @throws IOException if the log can't be read or the frames can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("usage: FrameExporter <input log> <output> [png|raw] [fps] [from s] [to s] [threads]");
+            return;
+        }
+        Format format = args.length > 2 ? Format.valueOf(args[2].toUpperCase()) : Format.PNG;
+        int fps = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        double fromSeconds = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        double toSeconds = args.length > 5 ? Double.parseDouble(args[5]) : Double.MAX_VALUE;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        FrameExporter exporter = new FrameExporter(Paths.get(args[0]), Paths.get(args[1]), format, fps);
+        long from = (long) (fromSeconds * fps), to = (long) Math.min(exporter.getFrameCount(), toSeconds * fps);
+        long start = System.nanoTime();
+        long frames = exporter.export(from, to, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames (%.1f s of play) on %d threads in %.2f s (%.0f frames/s, %.1fx real time)%n",
+                frames, frames / (double) fps, threads, seconds, frames / seconds, frames / (double) fps / seconds);
+        if(format == Format.RAW) {
+            System.out.printf("ffmpeg -f rawvideo -pix_fmt bgra -s %dx%d -r %d -i %s clip.mp4%n",
+                    (int) PongEngine.WIDTH, (int) PongEngine.HEIGHT, fps, args[1]);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package edu.neumont.rehm.replay;
+
+import edu.neumont.rehm.engine.Command;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary layout shared by {@link InputRecorder} and {@link Replay}.
+ * <pre>
+ * header (32 bytes): int magic "PONG", short version, short rateInMs, long seed, long totalTicks, int dataLength, int reserved
+ * data: one varint per command, (ticks since the previous command &lt;&lt; 4) | command ordinal
+ * </pre>
+ * A typical point is a handful of key presses, so a whole match takes a few kilobytes.
+ */
+final class InputLog {
+
+    static final int MAGIC = 0x504F4E47; // "PONG"
+    static final short VERSION = 1;
+    static final int HEADER = 32;
+    static final int TOTAL_TICKS_OFFSET = 16, DATA_LENGTH_OFFSET = 24;
+    static final int COMMAND_BITS = 4;
+    static final Command[] COMMANDS = Command.values();
+
+    private InputLog() {}
+
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.neumont.rehm.replay;
+
+import edu.neumont.rehm.engine.Command;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the seed and every command applied to the engine, with the tick it was applied on,
+ * to a memory-mapped file. Recording a command is a few buffer writes; the mapping grows by
+ * doubling when it fills up.
+ * <p>
+ * The header's tick count and data length are kept current as the log is written, not just on
+ * close: the mapping is the file's page cache, so a session that crashes or is killed still
+ * leaves a log that replays up to its last command, or its last tick if the caller keeps
+ * {@link #setTotalTicks(long)} up to date.
+ */
+public class InputRecorder implements Closeable {
+
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long lastTick = 0, totalTicks = 0;
+
+    /**
+     * Create (or overwrite) a log.
+     *
+     * @param path     the file
+     * @param seed     the engine's random seed
+     * @param rateInMs the engine tick length
+     * @throws IOException if the file can't be created or mapped
+     */
+    public InputRecorder(Path path, long seed, int rateInMs) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+        buffer.putInt(InputLog.MAGIC);
+        buffer.putShort(InputLog.VERSION);
+        buffer.putShort((short) rateInMs);
+        buffer.putLong(seed);
+        buffer.putLong(0); // total ticks, kept current
+        buffer.putInt(0); // data length, kept current
+        buffer.putInt(0);
+    }
+
+    /**
+     * Record a command applied before the given tick.
+     *
+     * @param tick    the index of the tick it was applied before, counting every tick call from 0
+     * @param command the command
+     */
+    public void record(long tick, Command command) {
+        if(buffer.remaining() < 16) {
+            grow();
+        }
+        InputLog.writeVarLong(buffer, ((tick - lastTick) << InputLog.COMMAND_BITS) | command.ordinal());
+        lastTick = tick;
+        buffer.putInt(InputLog.DATA_LENGTH_OFFSET, buffer.position() - InputLog.HEADER);
+        if(totalTicks <= tick) {
+            setTotalTicks(tick + 1); // so the command is replayed even if no later total comes in
+        }
+    }
+
+    /**
+     * Sets how many ticks the recording covers, so a replay knows where it ends. Written to the
+     * header straight away; cheap enough to call every tick.
+     *
+     * @param ticks the number of ticks run so far
+     */
+    public void setTotalTicks(long ticks) {
+        totalTicks = ticks;
+        buffer.putLong(InputLog.TOTAL_TICKS_OFFSET, ticks);
+    }
+
+    private void grow() {
+        try {
+            int position = buffer.position();
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) buffer.capacity() * 2);
+            buffer.position(position);
+        } catch(IOException ex) {
+            throw new IllegalStateException("could not grow the input log", ex);
+        }
+    }
+
+    /**
+     * Flush and trim the file to its contents.
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        int length = buffer.position();
+        buffer.force();
+        try {
+            channel.truncate(length);
+        } catch(IOException ex) {
+            // some platforms refuse to truncate a mapped file; the header's data length is authoritative
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,196 @@
+package edu.neumont.rehm.replay;
+
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.GameListener;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.PhaseProbe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Plays an {@link InputRecorder} log back into a fresh engine built from the recorded seed.
+ * The engine only depends on its seed and the commands it is given, so every tick comes out
+ * the same as it did live. Seeking backwards rebuilds the engine and re-runs from the start.
+ */
+public class Replay {
+
+    private final ByteBuffer data;
+    private final long seed, totalTicks;
+    private final int rateInMs;
+    private PongEngine engine;
+    private GameListener listener = GameListener.NONE;
+    private PhaseProbe probe;
+    private long tick, nextTick;
+    private Command nextCommand;
+
+    private Replay(ByteBuffer log) throws IOException {
+        if(log.getInt() != InputLog.MAGIC || log.getShort() != InputLog.VERSION) {
+            throw new IOException("not a pong input log");
+        }
+        rateInMs = log.getShort();
+        seed = log.getLong();
+        totalTicks = log.getLong();
+        int length = log.getInt();
+        log.getInt();
+        log.limit(InputLog.HEADER + length);
+        data = log.slice();
+        rewind();
+    }
+
+    /**
+     * Map a log file and position the replay at its first tick.
+     *
+     * @param path the file
+     * @return the replay
+     * @throws IOException if the file can't be read or isn't a log
+     */
+    public static Replay open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private void rewind() {
+        engine = new PongEngine(rateInMs, new Random(seed));
+        engine.setListener(listener);
+        engine.setProbe(probe);
+        data.rewind();
+        tick = 0;
+        nextTick = 0;
+        readNext();
+    }
+
+    private void readNext() {
+        if(!data.hasRemaining()) {
+            nextCommand = null;
+            return;
+        }
+        long packed = InputLog.readVarLong(data);
+        nextTick += packed >>> InputLog.COMMAND_BITS;
+        nextCommand = InputLog.COMMANDS[(int) (packed & ((1 << InputLog.COMMAND_BITS) - 1))];
+    }
+
+    /**
+     * Apply the commands recorded for the current tick and run it.
+     *
+     * @return false once the recording is over
+     */
+    public boolean step() {
+        if(isFinished()) {
+            return false;
+        }
+        while(nextCommand != null && nextTick == tick) {
+            engine.apply(nextCommand);
+            readNext();
+        }
+        engine.tick();
+        tick++;
+        return true;
+    }
+
+    /**
+     * Move to a tick as fast as possible, without listener callbacks or timings on the way.
+     *
+     * @param target the tick to stop before, clamped to the recording
+     */
+    public void seek(long target) {
+        target = Math.max(0, Math.min(target, totalTicks));
+        if(target < tick) {
+            rewind();
+        }
+        engine.setListener(GameListener.NONE);
+        engine.setProbe(null);
+        while(tick < target) {
+            step();
+        }
+        engine.setListener(listener);
+        engine.setProbe(probe);
+    }
+
+    /**
+     * Run the rest of the recording at full speed.
+     */
+    public void runToEnd() {
+        seek(totalTicks);
+    }
+
+    /**
+     * Sets the listener given to this replay's engine, including the ones seeking backwards creates.
+     *
+     * @param listener the listener
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+        engine.setListener(listener);
+    }
+
+    /**
+     * Sets the probe given to this replay's engine, including the ones seeking backwards creates.
+     *
+     * @param probe the probe, or null
+     */
+    public void setProbe(PhaseProbe probe) {
+        this.probe = probe;
+        engine.setProbe(probe);
+    }
+
+    /**
+     * The engine being replayed into; seeking backwards replaces it.
+     *
+     * @return the engine
+     */
+    public PongEngine getEngine() {
+        return engine;
+    }
+
+    public boolean isFinished() {
+        return tick >= totalTicks;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRateInMs() {
+        return rateInMs;
+    }
+
+    /**
+     * The entry point for max-speed replays, e.g. to check a physics change against a recorded game.
+     *
+     * @param args the log file
+     * @throws IOException if the log can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("usage: Replay <input log>");
+            return;
+        }
+        Replay replay = open(Paths.get(args[0]));
+        long start = System.nanoTime();
+        replay.runToEnd();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        PongEngine engine = replay.getEngine();
+        double played = replay.getTotalTicks() * replay.getRateInMs() / 1000.0;
+        System.out.printf("%d ticks (%.1f s of play) in %.3f s (%.0fx real time)%n",
+                replay.getTotalTicks(), played, seconds, played / seconds);
+        System.out.printf("seed %d  score %d - %d  ball %.6f, %.6f  paddles %.6f, %.6f%n", replay.getSeed(),
+                engine.getPlayerLScore(), engine.getPlayerRScore(), engine.getBallX(), engine.getBallY(),
+                engine.getPadLY(), engine.getPadRY());
+    }
+}
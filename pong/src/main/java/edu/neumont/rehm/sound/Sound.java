@@ -0,0 +1,26 @@
+package edu.neumont.rehm.sound;
+
+/**
+ * The sounds the game plays, with how many copies of each may overlap.
+ */
+public enum Sound {
+    BLIP("blip.mp3", 4),
+    SCORE("score.mp3", 1),
+    OPPONENT_SCORE("opponent_score.mp3", 1);
+
+    private final String resource;
+    private final int polyphony;
+
+    Sound(String resource, int polyphony) {
+        this.resource = resource;
+        this.polyphony = polyphony;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public int getPolyphony() {
+        return polyphony;
+    }
+}
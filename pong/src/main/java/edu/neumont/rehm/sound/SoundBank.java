@@ -0,0 +1,242 @@
+package edu.neumont.rehm.sound;
+
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
+import javafx.scene.media.MediaPlayer;
+
+import java.net.URL;
+
+/**
+ * Every sound decoded once and played from a fixed pool of MediaPlayer voices.
+ * A play request with no free voice is dropped rather than allocating a new player. A voice is
+ * freed however its play ends (end of media, an outside stop, an error or a halt), and a voice
+ * whose player failed gets a new player for the same media, up to {@link #MAX_REOPENS} times in a
+ * row without a play getting through; after that the voice is given up on and never picked again.
+ * All methods must be called on the JavaFX application thread.
+ */
+public class SoundBank {
+
+    /**
+     * Players a voice replaces in a row, none of them reaching PLAYING, before it gives up.
+     */
+    public static final int MAX_REOPENS = 3;
+
+    private final Voice[][] voices = new Voice[Sound.values().length][];
+    private final int maxVoices;
+    private boolean muted = false;
+
+    private int activeVoices = 0;
+    private long plays = 0, dropped = 0, failures = 0;
+    private int lostVoices = 0;
+    private long latencyCount = 0, latencyTotalNanos = 0, latencyMaxNanos = 0, lastLatencyNanos = 0;
+
+    /**
+     * Instantiates a new sound bank.
+     *
+     * @param maxVoices the most voices that may play at once, across all sounds
+     */
+    public SoundBank(int maxVoices) {
+        this.maxVoices = maxVoices;
+    }
+
+    /**
+     * Decode every {@link Sound} and create its voices.
+     */
+    public void load() {
+        for(Sound sound : Sound.values()) {
+            URL url = this.getClass().getClassLoader().getResource(sound.getResource());
+            Media media = new Media(url.toString());
+            Voice[] pool = new Voice[sound.getPolyphony()];
+            for(int i = 0; i < pool.length; i++) {
+                pool[i] = new Voice(media);
+            }
+            voices[sound.ordinal()] = pool;
+        }
+    }
+
+    /**
+     * Play a sound on a free voice. Skipped entirely while muted; counted as dropped if no voice is free.
+     *
+     * @param sound the sound to play
+     */
+    public void play(Sound sound) {
+        if(muted) {
+            return;
+        }
+        Voice[] pool = voices[sound.ordinal()];
+        if(pool == null) {
+            return; // not loaded yet
+        }
+        if(activeVoices < maxVoices) {
+            for(Voice voice : pool) {
+                if(!voice.playing && voice.player != null) {
+                    voice.start();
+                    plays++;
+                    return;
+                }
+            }
+        }
+        dropped++;
+    }
+
+    /**
+     * Toggle mute.
+     */
+    public void toggleMute() {
+        muted = !muted;
+    }
+
+    public boolean isMuted() {
+        return muted;
+    }
+
+    public int getActiveVoices() {
+        return activeVoices;
+    }
+
+    public long getPlays() {
+        return plays;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * The players that reported an error or halted and were replaced.
+     *
+     * @return the failure count
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Voices given up on after {@link #MAX_REOPENS} failed players in a row; their plays are dropped.
+     *
+     * @return the number of voices lost
+     */
+    public int getLostVoices() {
+        return lostVoices;
+    }
+
+    /**
+     * The time between the most recent play request and its player reporting PLAYING.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return latencyMaxNanos;
+    }
+
+    public long getAverageLatencyNanos() {
+        return latencyCount == 0 ? 0 : latencyTotalNanos / latencyCount;
+    }
+
+    /**
+     * One reusable player; it is stopped (rewound) when it finishes so the next start plays from the top.
+     * Every way a play can end goes through {@link #release()}, which frees the voice once per start.
+     */
+    private class Voice {
+        private final Media media;
+        private MediaPlayer player; // null once the voice has given up
+        private boolean playing = false;
+        private int reopens = 0; // since a player last reached PLAYING
+        private boolean stopping = false; // finished() stopped the player and its STOPPED is still to come
+        private long requestedAt = 0;
+
+        Voice(Media media) {
+            this.media = media;
+            open();
+        }
+
+        private void open() {
+            MediaPlayer player = new MediaPlayer(media);
+            player.setOnPlaying(this::started);
+            player.setOnEndOfMedia(this::finished);
+            player.setOnStopped(this::stopped);
+            player.setOnError(() -> failed(player));
+            player.setOnHalted(() -> failed(player));
+            this.player = player;
+            stopping = false;
+        }
+
+        void start() {
+            playing = true;
+            activeVoices++;
+            requestedAt = System.nanoTime();
+            player.play();
+        }
+
+        private void started() {
+            reopens = 0;
+            if(requestedAt != 0) {
+                lastLatencyNanos = System.nanoTime() - requestedAt;
+                latencyMaxNanos = Math.max(latencyMaxNanos, lastLatencyNanos);
+                latencyTotalNanos += lastLatencyNanos;
+                latencyCount++;
+                requestedAt = 0;
+            }
+        }
+
+        private void finished() {
+            stopping = true;
+            player.stop();
+            release();
+        }
+
+        /**
+         * STOPPED from the rewind in finished() is expected, and the voice may already be playing
+         * again by the time it arrives; any other stop ends the current play.
+         */
+        private void stopped() {
+            if(stopping) {
+                stopping = false;
+            } else {
+                release();
+            }
+        }
+
+        /**
+         * An error or a halt. A halted player can't play again, so it is swapped for a new one; an
+         * error is usually followed by a halt, and whichever of the two comes second is ignored.
+         * A media file or audio device that is gone for good fails every new player too, so after
+         * {@link #MAX_REOPENS} replacements with no play in between the voice stays empty.
+         */
+        private void failed(MediaPlayer failed) {
+            if(failed != player) {
+                return;
+            }
+            MediaException error = failed.getError();
+            if(error != null) {
+                error.printStackTrace();
+            }
+            release();
+            failures++;
+            failed.dispose();
+            player = null;
+            if(reopens < MAX_REOPENS) {
+                reopens++;
+                try {
+                    open();
+                    return;
+                } catch(MediaException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            lostVoices++;
+        }
+
+        private void release() {
+            if(playing) {
+                playing = false;
+                activeVoices--;
+                requestedAt = 0;
+            }
+        }
+    }
+}
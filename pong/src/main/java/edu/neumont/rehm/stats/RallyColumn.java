@@ -0,0 +1,79 @@
+package edu.neumont.rehm.stats;
+
+/**
+ * The columns of the rally store. Each one is its own file of fixed-width big-endian values,
+ * one per rally, so a query only touches the columns it reads.
+ */
+public enum RallyColumn {
+    /**
+     * When the point was scored, in milliseconds since the epoch.
+     */
+    TIME(8),
+    /**
+     * Ticks from the serve to the point.
+     */
+    TICKS(4),
+    /**
+     * Paddle hits.
+     */
+    HITS(4),
+    /**
+     * The fastest the ball crossed the board, in pixels per tick (a float).
+     */
+    SPEED(4),
+    /**
+     * The serve direction: 1 to the right, -1 to the left.
+     */
+    SERVE(1),
+    /**
+     * 1 if the left player won the point, else 0.
+     */
+    LEFT_WON(1),
+    /**
+     * Who had the paddles: {@link #SMART_BOT} and {@link #DUMB_BOT} bits.
+     */
+    BOTS(1);
+
+    /**
+     * The BOTS bit for the smart bot on the left paddle.
+     */
+    public static final int SMART_BOT = 1;
+    /**
+     * The BOTS bit for the dumb bot on the right paddle.
+     */
+    public static final int DUMB_BOT = 2;
+
+    private final int width;
+
+    RallyColumn(int width) {
+        this.width = width;
+    }
+
+    /**
+     * The bytes each rally takes in this column.
+     *
+     * @return the width
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * The name of the column's file in the store directory.
+     *
+     * @return the file name
+     */
+    public String fileName() {
+        return name().toLowerCase() + ".col";
+    }
+
+    /**
+     * A readable name for a BOTS value.
+     *
+     * @param bots the SMART_BOT and DUMB_BOT bits
+     * @return who had the left and right paddles
+     */
+    public static String botsName(int bots) {
+        return ((bots & SMART_BOT) != 0 ? "smart bot" : "player") + " vs " + ((bots & DUMB_BOT) != 0 ? "dumb bot" : "player");
+    }
+}
@@ -0,0 +1,34 @@
+package edu.neumont.rehm.stats;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * The rally store's files: a small meta file holding the row count, and one file per {@link RallyColumn}.
+ * The count is only raised after the rows it covers are written, so a reader (or a store reopened
+ * after a crash) never sees a half-written row.
+ */
+final class RallyLayout {
+
+    static final String META = "rallies.meta";
+    static final int MAGIC = 0x52414C59; // "RALY"
+    static final short VERSION = 1;
+    static final int META_SIZE = 64;
+    static final int COUNT = 8; // long: rows written
+    static final RallyColumn[] COLUMNS = RallyColumn.values();
+
+    private RallyLayout() {
+    }
+
+    /**
+     * Read the row count from a mapped meta file, checking it is one.
+     *
+     * @param meta the meta file
+     * @return the row count
+     */
+    static long count(MappedByteBuffer meta) {
+        if(meta.getInt(0) != MAGIC || meta.getShort(4) != VERSION) {
+            throw new IllegalStateException("not a rally store, or a different version");
+        }
+        return meta.getLong(COUNT);
+    }
+}
@@ -0,0 +1,269 @@
+package edu.neumont.rehm.stats;
+
+import edu.neumont.rehm.engine.GameListener;
+import edu.neumont.rehm.engine.PongEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends one row per rally to a columnar store on disk: a directory with one memory-mapped file
+ * per {@link RallyColumn}, read back by {@link RallyTable}.
+ * <p>
+ * The game thread never touches the files. {@link #append} copies the rally into a preallocated ring
+ * and returns; a writer thread moves rows from the ring into the mapped columns, grows the files when
+ * they fill and raises the row count last. If the writer ever falls a whole ring behind, rallies are
+ * dropped (and counted) rather than making the game wait. As a {@link GameListener} it records
+ * every rally of the engine it is set on.
+ */
+public class RallyStore implements GameListener, Closeable {
+
+    private static final int RING = 1 << 16; // rallies the writer may fall behind by
+    private static final int INITIAL_ROWS = 1 << 16;
+    private static final long IDLE_NANOS = 5_000_000; // how long the writer sleeps when there is nothing to write
+
+    // the ring: the game thread writes rows at tail, the writer thread reads them at head
+    private final long[] times = new long[RING];
+    private final int[] ticks = new int[RING], hits = new int[RING];
+    private final float[] speeds = new float[RING];
+    private final byte[] serves = new byte[RING], leftWon = new byte[RING], bots = new byte[RING];
+    private volatile long head = 0, tail = 0;
+    private long dropped = 0;
+
+    // the writer thread's
+    private final FileChannel metaChannel;
+    private final MappedByteBuffer meta;
+    private final FileChannel[] channels = new FileChannel[RallyLayout.COLUMNS.length];
+    private final MappedByteBuffer[] columns = new MappedByteBuffer[RallyLayout.COLUMNS.length];
+    private long count, capacity;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Open a store, creating it if the directory has none, and start its writer thread.
+     * New rallies are added after the ones already there.
+     *
+     * @param dir the store directory
+     * @throws IOException if the files can't be created or mapped
+     */
+    public RallyStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        metaChannel = FileChannel.open(dir.resolve(RallyLayout.META), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = metaChannel.size() == 0;
+        meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, RallyLayout.META_SIZE);
+        if(created) {
+            meta.putInt(0, RallyLayout.MAGIC);
+            meta.putShort(4, RallyLayout.VERSION);
+            meta.putLong(RallyLayout.COUNT, 0);
+        }
+        count = RallyLayout.count(meta);
+        capacity = Math.max(INITIAL_ROWS, Long.highestOneBit(Math.max(1, count)) << 1);
+        for(int c = 0; c < columns.length; c++) {
+            channels[c] = FileChannel.open(dir.resolve(RallyLayout.COLUMNS[c].fileName()), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        map();
+        thread = new Thread(this::loop, "rally-store");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Open (or create) the store in a directory.
+     *
+     * @param dir the directory
+     * @return the store
+     * @throws IOException if the files can't be created or mapped
+     */
+    public static RallyStore open(Path dir) throws IOException {
+        return new RallyStore(dir);
+    }
+
+    /**
+     * Queue one rally for writing. Call from the game thread; it never blocks.
+     *
+     * @param ticks          ticks from the serve to the point
+     * @param hits           paddle hits
+     * @param maxSpeed       the fastest the ball crossed the board, in pixels per tick
+     * @param serveDirection 1 to the right, -1 to the left
+     * @param leftWon        whether the left player won the point
+     * @param bots           the {@link RallyColumn#SMART_BOT} and {@link RallyColumn#DUMB_BOT} bits
+     * @return false if the writer is a whole ring behind and the rally was dropped
+     */
+    public boolean append(long ticks, int hits, double maxSpeed, int serveDirection, boolean leftWon, int bots) {
+        long t = tail;
+        if(t - head >= RING) {
+            dropped++;
+            return false;
+        }
+        int i = (int) (t & (RING - 1));
+        times[i] = System.currentTimeMillis();
+        this.ticks[i] = (int) Math.min(Integer.MAX_VALUE, ticks);
+        this.hits[i] = hits;
+        speeds[i] = (float) maxSpeed;
+        serves[i] = (byte) serveDirection;
+        this.leftWon[i] = (byte) (leftWon ? 1 : 0);
+        this.bots[i] = (byte) bots;
+        tail = t + 1; // publishes the row to the writer
+        return true;
+    }
+
+    @Override
+    public void rallyEnded(long ticks, int hits, double maxSpeed, int serveDirection, boolean leftWon, boolean smartBot, boolean dumbBot) {
+        append(ticks, hits, maxSpeed, serveDirection, leftWon, (smartBot ? RallyColumn.SMART_BOT : 0) | (dumbBot ? RallyColumn.DUMB_BOT : 0));
+    }
+
+    private void loop() {
+        while(running) {
+            if(!drain()) {
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Write every row queued so far to the columns, then raise the count.
+     *
+     * @return false if there was nothing to write
+     */
+    private boolean drain() {
+        long h = head, t = tail;
+        if(h == t) {
+            return false;
+        }
+        try {
+            if(count + (t - h) > capacity) {
+                capacity = Long.highestOneBit(count + (t - h)) << 1;
+                map();
+            }
+        } catch(IOException ex) {
+            ex.printStackTrace();
+            running = false;
+            return false;
+        }
+        for(long r = h; r < t; r++, count++) {
+            int i = (int) (r & (RING - 1));
+            int row = (int) count;
+            columns[RallyColumn.TIME.ordinal()].putLong(row * 8, times[i]);
+            columns[RallyColumn.TICKS.ordinal()].putInt(row * 4, ticks[i]);
+            columns[RallyColumn.HITS.ordinal()].putInt(row * 4, hits[i]);
+            columns[RallyColumn.SPEED.ordinal()].putFloat(row * 4, speeds[i]);
+            columns[RallyColumn.SERVE.ordinal()].put(row, serves[i]);
+            columns[RallyColumn.LEFT_WON.ordinal()].put(row, leftWon[i]);
+            columns[RallyColumn.BOTS.ordinal()].put(row, bots[i]);
+        }
+        meta.putLong(RallyLayout.COUNT, count);
+        head = t; // frees the ring slots
+        return true;
+    }
+
+    /**
+     * Map every column at the current capacity; the files grow to fit.
+     */
+    private void map() throws IOException {
+        if(capacity * RallyColumn.TIME.width() > Integer.MAX_VALUE) {
+            throw new IOException("rally store full");
+        }
+        for(int c = 0; c < columns.length; c++) {
+            columns[c] = channels[c].map(FileChannel.MapMode.READ_WRITE, 0, capacity * RallyLayout.COLUMNS[c].width());
+        }
+    }
+
+    /**
+     * Rallies dropped because the writer fell a whole ring behind.
+     *
+     * @return the number dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * The rallies on disk, not counting any still in the ring.
+     *
+     * @return the row count
+     */
+    public long getCount() {
+        return meta.getLong(RallyLayout.COUNT);
+    }
+
+    /**
+     * The store's size, for the console.
+     *
+     * @return one line
+     */
+    public String summary() {
+        return String.format("rally store: %d rallies on disk, %d dropped", getCount(), dropped);
+    }
+
+    /**
+     * Write out everything queued, flush the files and stop the writer thread.
+     *
+     * @throws IOException if the files can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for(int c = 0; c < columns.length; c++) {
+            columns[c].force();
+            channels[c].close();
+        }
+        meta.force();
+        metaChannel.close();
+    }
+
+    /**
+     * The entry point: fill a store with bot matches, cycling through the four bot setups.
+     *
+     * @param args the store directory, then optional rally count (default 300000) and seed
+     * @throws IOException if the store can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "rallies");
+        long rallies = args.length > 1 ? Long.parseLong(args[1]) : 300_000;
+        Random random = new Random(args.length > 2 ? Long.parseLong(args[2]) : 1);
+
+        RallyStore store = RallyStore.open(dir);
+        try {
+            long start = System.nanoTime(), ticks = 0, target = store.getCount() + rallies;
+            for(int match = 0; store.getCount() + (store.tail - store.head) < target; match++) {
+                PongEngine engine = new PongEngine(5, random);
+                engine.setListener(store);
+                if((match & RallyColumn.SMART_BOT) != 0) {
+                    engine.toggleSmartBot();
+                }
+                if((match & RallyColumn.DUMB_BOT) != 0) {
+                    engine.toggleDumbBot();
+                }
+                engine.resetGame();
+                for(long t = 0; !engine.isMatchOver() && t < 10_000_000; t++) {
+                    engine.tick();
+                }
+                ticks += engine.getTicks();
+                while(store.tail - store.head > RING / 2) {
+                    Thread.yield(); // a bulk load may wait for the writer; the game never does
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d rallies (%d ticks) simulated and appended in %.1f s%n", rallies, ticks, seconds);
+        } finally {
+            store.close();
+        }
+        System.out.println(store.summary());
+    }
+}
@@ -0,0 +1,263 @@
+package edu.neumont.rehm.stats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+/**
+ * A read-only view of a rally store, for aggregate queries. The columns are mapped, not loaded:
+ * a query scans only the columns it needs straight out of the page cache, so millions of rallies
+ * cost no heap. The row count is read when the table is opened; rallies appended later are not seen.
+ */
+public class RallyTable implements Closeable {
+
+    private final FileChannel[] channels = new FileChannel[RallyLayout.COLUMNS.length];
+    private final MappedByteBuffer[] columns = new MappedByteBuffer[RallyLayout.COLUMNS.length];
+    private final int count;
+
+    /**
+     * Map a store's columns.
+     *
+     * @param dir the store directory
+     * @throws IOException if the store can't be read or is not a rally store
+     */
+    public RallyTable(Path dir) throws IOException {
+        try(FileChannel meta = FileChannel.open(dir.resolve(RallyLayout.META), StandardOpenOption.READ)) {
+            count = (int) RallyLayout.count(meta.map(FileChannel.MapMode.READ_ONLY, 0, RallyLayout.META_SIZE));
+        } catch(IllegalStateException ex) {
+            throw new IOException(dir + ": " + ex.getMessage());
+        }
+        for(int c = 0; c < columns.length; c++) {
+            channels[c] = FileChannel.open(dir.resolve(RallyLayout.COLUMNS[c].fileName()), StandardOpenOption.READ);
+            columns[c] = channels[c].map(FileChannel.MapMode.READ_ONLY, 0, (long) count * RallyLayout.COLUMNS[c].width());
+        }
+    }
+
+    /**
+     * Open a store for reading.
+     *
+     * @param dir the store directory
+     * @return the table
+     * @throws IOException if the store can't be read
+     */
+    public static RallyTable open(Path dir) throws IOException {
+        return new RallyTable(dir);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTime(int row) {
+        return columns[RallyColumn.TIME.ordinal()].getLong(row * 8);
+    }
+
+    public int getTicks(int row) {
+        return columns[RallyColumn.TICKS.ordinal()].getInt(row * 4);
+    }
+
+    public int getHits(int row) {
+        return columns[RallyColumn.HITS.ordinal()].getInt(row * 4);
+    }
+
+    public float getSpeed(int row) {
+        return columns[RallyColumn.SPEED.ordinal()].getFloat(row * 4);
+    }
+
+    public int getServe(int row) {
+        return columns[RallyColumn.SERVE.ordinal()].get(row);
+    }
+
+    public boolean isLeftWon(int row) {
+        return columns[RallyColumn.LEFT_WON.ordinal()].get(row) != 0;
+    }
+
+    public int getBots(int row) {
+        return columns[RallyColumn.BOTS.ordinal()].get(row);
+    }
+
+    /**
+     * Rallies and left-player wins for each bot setup, reading two byte columns.
+     *
+     * @return for each BOTS value 0 to 3, {rallies, left wins}
+     */
+    public long[][] winsByBots() {
+        MappedByteBuffer bots = columns[RallyColumn.BOTS.ordinal()], leftWon = columns[RallyColumn.LEFT_WON.ordinal()];
+        long[][] wins = new long[4][2];
+        for(int row = 0; row < count; row++) {
+            long[] w = wins[bots.get(row) & 3];
+            w[0]++;
+            w[1] += leftWon.get(row);
+        }
+        return wins;
+    }
+
+    /**
+     * Rally lengths in equal buckets, reading the ticks column.
+     *
+     * @param bucketTicks the width of each bucket in ticks
+     * @param buckets     the number of buckets; the last one also holds every longer rally
+     * @return the number of rallies in each bucket
+     */
+    public long[] lengthHistogram(int bucketTicks, int buckets) {
+        MappedByteBuffer ticks = columns[RallyColumn.TICKS.ordinal()];
+        long[] histogram = new long[buckets];
+        for(int row = 0; row < count; row++) {
+            histogram[Math.min(buckets - 1, ticks.getInt(row * 4) / bucketTicks)]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * The rows with the highest values in a numeric column, reading only that column. A min-heap of
+     * n rows keeps it one pass with no per-row allocation.
+     *
+     * @param column TIME, TICKS, HITS or SPEED
+     * @param n      how many rows
+     * @return the rows, highest first
+     */
+    public int[] top(RallyColumn column, int n) {
+        int size = 0;
+        int[] heap = new int[Math.min(n, count)];
+        double[] keys = new double[heap.length];
+        for(int row = 0; row < count && heap.length > 0; row++) {
+            double value = value(column, row);
+            if(size < heap.length) {
+                heap[size] = row;
+                keys[size] = value;
+                siftUp(heap, keys, size++);
+            } else if(value > keys[0]) {
+                heap[0] = row;
+                keys[0] = value;
+                siftDown(heap, keys, size);
+            }
+        }
+        int[] rows = new int[size];
+        for(int i = size - 1; i >= 0; i--) { // pop the smallest into the back
+            rows[i] = heap[0];
+            heap[0] = heap[i];
+            keys[0] = keys[i];
+            siftDown(heap, keys, i);
+        }
+        return rows;
+    }
+
+    private double value(RallyColumn column, int row) {
+        switch(column) {
+            case TIME:
+                return getTime(row);
+            case TICKS:
+                return getTicks(row);
+            case HITS:
+                return getHits(row);
+            case SPEED:
+                return getSpeed(row);
+            default:
+                throw new IllegalArgumentException(column + " is not a ranking column");
+        }
+    }
+
+    private static void siftUp(int[] heap, double[] keys, int i) {
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(keys[parent] <= keys[i]) {
+                return;
+            }
+            swap(heap, keys, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] keys, int size) {
+        for(int i = 0; ; ) {
+            int left = i * 2 + 1, right = left + 1, smallest = i;
+            if(left < size && keys[left] < keys[smallest]) {
+                smallest = left;
+            }
+            if(right < size && keys[right] < keys[smallest]) {
+                smallest = right;
+            }
+            if(smallest == i) {
+                return;
+            }
+            swap(heap, keys, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, double[] keys, int a, int b) {
+        int row = heap[a];
+        heap[a] = heap[b];
+        heap[b] = row;
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+    }
+
+    /**
+     * Unmap the columns (once the buffers are collected) and close the files.
+     *
+     * @throws IOException if a file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for(FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    /**
+     * The entry point: win rates per bot setup, a rally-length histogram and the longest and fastest
+     * rallies, each with how long it took.
+     *
+     * @param args the store directory, then an optional leaderboard size (default 10)
+     * @throws IOException if the store can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "rallies");
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        try(RallyTable table = RallyTable.open(dir)) {
+            System.out.printf("%d rallies%n", table.getCount());
+            for(int round = 0; round < 2; round++) { // the first round pages the columns in and warms up the JIT
+                boolean print = round == 1;
+                long start = System.nanoTime();
+                long[][] wins = table.winsByBots();
+                long t1 = System.nanoTime();
+                long[] histogram = table.lengthHistogram(200, 10); // a second per bucket
+                long t2 = System.nanoTime();
+                int[] longest = table.top(RallyColumn.TICKS, n);
+                long t3 = System.nanoTime();
+                int[] fastest = table.top(RallyColumn.SPEED, n);
+                long t4 = System.nanoTime();
+                if(!print) {
+                    continue;
+                }
+                System.out.printf("%nwin rate by bot setup (%.1f ms)%n", (t1 - start) / 1e6);
+                for(int bots = 0; bots < wins.length; bots++) {
+                    System.out.printf("  %-22s %9d rallies, left wins %5.1f%%%n", RallyColumn.botsName(bots), wins[bots][0],
+                            wins[bots][0] == 0 ? 0 : wins[bots][1] * 100.0 / wins[bots][0]);
+                }
+                System.out.printf("%nrally length, 200 ticks a bucket (%.1f ms)%n", (t2 - t1) / 1e6);
+                for(int b = 0; b < histogram.length; b++) {
+                    System.out.printf("  %5d%s ticks %9d%n", b * 200, b == histogram.length - 1 ? "+" : " ", histogram[b]);
+                }
+                System.out.printf("%nlongest rallies (%.1f ms)%n", (t3 - t2) / 1e6);
+                for(int row : longest) {
+                    System.out.printf("  %7d ticks %5d hits  %-22s %s%n", table.getTicks(row), table.getHits(row),
+                            RallyColumn.botsName(table.getBots(row)), new Date(table.getTime(row)));
+                }
+                System.out.printf("%nfastest rallies (%.1f ms)%n", (t4 - t3) / 1e6);
+                for(int row : fastest) {
+                    System.out.printf("  %7.2f px/tick %5d hits  %-22s %s%n", table.getSpeed(row), table.getHits(row),
+                            RallyColumn.botsName(table.getBots(row)), new Date(table.getTime(row)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package edu.neumont.rehm.tournament;
+
+import edu.neumont.rehm.engine.PongEngine;
+
+/**
+ * One point in the bot parameter grid; see {@link PongEngine#setBotTuning(double, double, double)}.
+ */
+public final class BotTuning {
+
+    private final double speed, range, deadZone;
+
+    /**
+     * Instantiates a new tuning.
+     *
+     * @param speed    bot paddle speed as a fraction of a player's
+     * @param range    the smart bot's target range as a fraction of half a paddle
+     * @param deadZone the dumb bot's dead zone as a fraction of a paddle
+     */
+    public BotTuning(double speed, double range, double deadZone) {
+        this.speed = speed;
+        this.range = range;
+        this.deadZone = deadZone;
+    }
+
+    /**
+     * Apply this tuning to an engine.
+     *
+     * @param engine the engine
+     */
+    public void applyTo(PongEngine engine) {
+        engine.setBotTuning(speed, range, deadZone);
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getRange() {
+        return range;
+    }
+
+    public double getDeadZone() {
+        return deadZone;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("speed %.2f range %.2f dead zone %.2f", speed, range, deadZone);
+    }
+}
@@ -0,0 +1,186 @@
+package edu.neumont.rehm.tournament;
+
+import edu.neumont.rehm.engine.PongEngine;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays smart bot (left) against dumb bot (right) over a grid of bot tunings, spread across a
+ * fork-join pool. Every match builds its own engine from a seed derived from its tuning and
+ * index, so tasks share nothing and the results don't depend on the thread count.
+ */
+public class Tournament {
+
+    private static final long MAX_TICKS = 10_000_000; // guard against a match that never ends
+    /**
+     * Paddle hits in one point after which a match is abandoned as a stalemate; some tunings return everything forever.
+     */
+    static final int RALLY_LIMIT = 500;
+    private static final int MATCHES_PER_TASK = 8;
+
+    private final int rateInMs;
+    private final long seed;
+
+    /**
+     * Instantiates a new tournament.
+     *
+     * @param rateInMs the engine tick length
+     * @param seed     the seed every match seed is derived from
+     */
+    public Tournament(int rateInMs, long seed) {
+        this.rateInMs = rateInMs;
+        this.seed = seed;
+    }
+
+    /**
+     * Play a number of matches at each tuning.
+     *
+     * @param pool     the pool to run on
+     * @param tunings  the grid
+     * @param matches  matches per tuning
+     * @return the results, in the same order as the tunings
+     */
+    public TournamentStats[] run(ForkJoinPool pool, BotTuning[] tunings, int matches) {
+        return pool.invoke(new GridTask(tunings, matches));
+    }
+
+    /**
+     * Play one match to {@link PongEngine#WIN_CONDITION}, or until a rally looks endless.
+     *
+     * @param tuning the bot tuning
+     * @param cell   the tuning's index, for the seed
+     * @param match  the match's index, for the seed
+     * @param stats  where to count it
+     */
+    void playMatch(BotTuning tuning, int cell, int match, TournamentStats stats) {
+        PongEngine engine = new PongEngine(rateInMs, new Random(seed ^ ((long) cell << 32 | match) * 0x9E3779B97F4A7C15L));
+        tuning.applyTo(engine);
+        engine.setListener(stats);
+        engine.toggleSmartBot();
+        engine.toggleDumbBot();
+        engine.resetGame();
+        long matchTicks = 0;
+        while(!engine.isMatchOver() && matchTicks < MAX_TICKS && stats.getRally() < RALLY_LIMIT) {
+            engine.tick();
+            matchTicks++;
+        }
+        stats.matchOver(engine.getPlayerLScore(), engine.getPlayerRScore(), engine.isMatchOver(), matchTicks);
+    }
+
+    /**
+     * Forks one task per tuning and collects them.
+     */
+    private class GridTask extends RecursiveTask<TournamentStats[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BotTuning[] tunings;
+        private final int matches;
+
+        GridTask(BotTuning[] tunings, int matches) {
+            this.tunings = tunings;
+            this.matches = matches;
+        }
+
+        @Override
+        protected TournamentStats[] compute() {
+            MatchTask[] tasks = new MatchTask[tunings.length];
+            for(int i = 0; i < tunings.length; i++) {
+                tasks[i] = new MatchTask(tunings[i], i, 0, matches);
+                tasks[i].fork();
+            }
+            TournamentStats[] results = new TournamentStats[tunings.length];
+            for(int i = 0; i < tunings.length; i++) {
+                results[i] = tasks[i].join();
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Plays a range of matches at one tuning, splitting in half until the range is small.
+     */
+    private class MatchTask extends RecursiveTask<TournamentStats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BotTuning tuning;
+        private final int cell, from, to;
+
+        MatchTask(BotTuning tuning, int cell, int from, int to) {
+            this.tuning = tuning;
+            this.cell = cell;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TournamentStats compute() {
+            if(to - from <= MATCHES_PER_TASK) {
+                TournamentStats stats = new TournamentStats();
+                for(int match = from; match < to; match++) {
+                    playMatch(tuning, cell, match, stats);
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            MatchTask left = new MatchTask(tuning, cell, from, mid);
+            left.fork();
+            TournamentStats right = new MatchTask(tuning, cell, mid, to).compute();
+            return left.join().add(right);
+        }
+    }
+
+    /**
+     * Every combination of the given values.
+     *
+     * @param speeds    bot speeds
+     * @param ranges    smart bot ranges
+     * @param deadZones dumb bot dead zones
+     * @return the grid
+     */
+    public static BotTuning[] grid(double[] speeds, double[] ranges, double[] deadZones) {
+        BotTuning[] tunings = new BotTuning[speeds.length * ranges.length * deadZones.length];
+        int i = 0;
+        for(double speed : speeds) {
+            for(double range : ranges) {
+                for(double deadZone : deadZones) {
+                    tunings[i++] = new BotTuning(speed, range, deadZone);
+                }
+            }
+        }
+        return tunings;
+    }
+
+    /**
+     * The entry point.
+     *
+     * @param args optional matches per tuning (default 200), threads (default all cores) and seed
+     */
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        BotTuning[] tunings = grid(new double[] {0.4, 0.6, 0.8, 1.0}, new double[] {0.4, 0.8}, new double[] {0.1, 0.3, 0.5});
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        TournamentStats[] results = new Tournament(5, seed).run(pool, tunings, matches);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        TournamentStats total = new TournamentStats();
+        System.out.println("tuning                                    left win  rally mean  p50  p90  p99  stalemates");
+        for(int i = 0; i < tunings.length; i++) {
+            TournamentStats s = results[i];
+            total.add(s);
+            String leftWins = s.getLeftWins() + s.getRightWins() == 0 ? "-" : String.format("%.1f%%", s.getLeftWinRate() * 100); // of finished matches
+            System.out.printf("%-40s  %8s  %10.1f  %3d  %3d  %3d  %d%n", tunings[i], leftWins,
+                    s.getMeanRally(), s.rallyPercentile(50), s.rallyPercentile(90), s.rallyPercentile(99), s.getUnfinished());
+        }
+        System.out.printf("%d matches on %d threads in %.2f s (%.0f matches/s, %.0f ticks/s)%n",
+                total.getMatches(), threads, seconds, total.getMatches() / seconds, total.getTicks() / seconds);
+    }
+}
@@ -0,0 +1,145 @@
+package edu.neumont.rehm.tournament;
+
+import edu.neumont.rehm.engine.GameListener;
+
+/**
+ * Results of a batch of matches at one tuning: wins, ticks and a histogram of rally lengths
+ * (paddle hits per point). Each task fills its own and they are merged at the end.
+ * <p>
+ * The histogram has a bin for every length up to {@link Tournament#RALLY_LIMIT}, where a match is
+ * abandoned, and the rally that was cut off is counted too. The mean comes from an exact sum.
+ */
+public class TournamentStats implements GameListener {
+
+    private static final int LAST_BIN = Tournament.RALLY_LIMIT + 1; // a tick can add a hit past the limit; anything longer shares this bin
+
+    private final int[] rallies = new int[LAST_BIN + 1];
+    private long matches = 0, leftWins = 0, rightWins = 0, unfinished = 0, ticks = 0, points = 0, totalHits = 0;
+    private int hits = 0; // in the point being played
+
+    @Override
+    public void paddleHit() {
+        hits++;
+    }
+
+    @Override
+    public void leftScored() {
+        pointOver();
+    }
+
+    @Override
+    public void rightScored() {
+        pointOver();
+    }
+
+    private void pointOver() {
+        rallies[Math.min(hits, LAST_BIN)]++;
+        points++;
+        totalHits += hits;
+        hits = 0;
+    }
+
+    /**
+     * Count a finished (or abandoned) match. An abandoned match's rally in progress is counted as a rally.
+     *
+     * @param leftScore  the left score
+     * @param rightScore the right score
+     * @param finished   whether someone won
+     * @param matchTicks how many ticks it ran
+     */
+    void matchOver(int leftScore, int rightScore, boolean finished, long matchTicks) {
+        matches++;
+        ticks += matchTicks;
+        if(!finished && hits > 0) {
+            pointOver();
+        }
+        hits = 0;
+        if(!finished) {
+            unfinished++;
+        } else if(leftScore > rightScore) {
+            leftWins++;
+        } else {
+            rightWins++;
+        }
+    }
+
+    /**
+     * Add another batch's results to this one.
+     *
+     * @param other the other batch
+     * @return this
+     */
+    TournamentStats add(TournamentStats other) {
+        for(int i = 0; i < rallies.length; i++) {
+            rallies[i] += other.rallies[i];
+        }
+        matches += other.matches;
+        leftWins += other.leftWins;
+        rightWins += other.rightWins;
+        unfinished += other.unfinished;
+        ticks += other.ticks;
+        points += other.points;
+        totalHits += other.totalHits;
+        return this;
+    }
+
+    /**
+     * A rally length percentile.
+     *
+     * @param p the percentile, 0 to 100
+     * @return the paddle hits per point
+     */
+    public int rallyPercentile(double p) {
+        long rank = (long) Math.ceil(points * p / 100.0), seen = 0;
+        for(int i = 0; i < rallies.length; i++) {
+            seen += rallies[i];
+            if(seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The paddle hits so far in the point being played.
+     *
+     * @return the hits
+     */
+    public int getRally() {
+        return hits;
+    }
+
+    public double getMeanRally() {
+        return points == 0 ? 0 : totalHits / (double) points;
+    }
+
+    /**
+     * The left bot's share of the matches that someone won; stalemates are left out.
+     *
+     * @return the win rate, or NaN if no match finished
+     */
+    public double getLeftWinRate() {
+        long finished = leftWins + rightWins;
+        return finished == 0 ? Double.NaN : leftWins / (double) finished;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    public long getLeftWins() {
+        return leftWins;
+    }
+
+    public long getRightWins() {
+        return rightWins;
+    }
+
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+}
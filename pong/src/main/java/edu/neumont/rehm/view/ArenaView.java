@@ -0,0 +1,229 @@
+package edu.neumont.rehm.view;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+
+import edu.neumont.rehm.engine.BatchEngine;
+import edu.neumont.rehm.engine.FixedStepClock;
+import edu.neumont.rehm.metrics.LatencyHistogram;
+import edu.neumont.rehm.render.ArenaPainter;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.RasterSurface;
+
+/**
+ * Arena mode: a grid of bot-vs-bot matches in one window, for lobby displays. The matches are
+ * the lanes of one {@link BatchEngine}, stepped together by one clock off one AnimationTimer;
+ * every frame they are drawn in one pass by an {@link ArenaPainter} and go to the canvas as one
+ * image, so a frame costs about the same few draw calls however many matches there are.
+ * A finished match shows its final score for a moment and starts over.
+ * <p>
+ * Keys: MINUS halves and EQUALS doubles the matches, O hides the frame-time readout, ESC quits.
+ */
+public class ArenaView {
+
+    /**
+     * The Canvas.
+     */
+    public Canvas canvas;
+    private Stage stage;
+    private AnimationTimer timer;
+    private FixedStepClock clock;
+
+    private final int rateInMs = Integer.getInteger("pong.rateInMs", 5); // 5; the same physics step as a single game
+    private int matches;
+    private BatchEngine batch;
+    private ArenaPainter arena;
+    private WritableImage image;
+    private CanvasSurface screen;
+    private long seed = Long.getLong("pong.seed", System.nanoTime());
+    private long[] finishedAt; // when each lane's match ended, 0 while it is running
+    private final long finishedHold = 2_000_000_000L; // 2 s of final score before a lane starts over
+
+    private boolean readout = true; // O
+    private String readoutText = "";
+    private long readoutUpdated = 0, lastFrame = -1, windowFrames = 0, windowTicks = 0;
+    private final double readoutX = 8, readoutY = 8, readoutW = 330, readoutH = 62;
+    private final LatencyHistogram interval = new LatencyHistogram(), step = new LatencyHistogram(), draw = new LatencyHistogram(), upload = new LatencyHistogram();
+    private final LatencyHistogram totalInterval = new LatencyHistogram(), totalStep = new LatencyHistogram(), totalDraw = new LatencyHistogram(), totalUpload = new LatencyHistogram();
+
+    /**
+     * Instantiates a new arena.
+     *
+     * @param matches the number of matches to show
+     */
+    public ArenaView(int matches) {
+        this.matches = matches;
+    }
+
+    /**
+     * Set up the matches, show the stage and start the AnimationTimer.
+     *
+     * @param stage the stage to set
+     */
+    public void init(Stage stage) {
+        this.stage = stage;
+        screen = new CanvasSurface(canvas.getGraphicsContext2D());
+        image = new WritableImage((int) canvas.getWidth(), (int) canvas.getHeight());
+        resize(matches);
+        stage.setTitle("Pong Arena");
+        stage.setResizable(false);
+        stage.show();
+        stage.centerOnScreen();
+        stage.getScene().setOnKeyPressed(this::keyPressed);
+        stage.setOnCloseRequest(evt -> System.out.println(summary()));
+
+        clock = new FixedStepClock(rateInMs, 250 / rateInMs); // never simulate more than 250 ms in one frame
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frame(now);
+            }
+        };
+        timer.start();
+    }
+
+    /**
+     * Start over with a different number of matches; keeps the current ones if that many don't fit
+     *
+     * @param count the new match count
+     */
+    private void resize(int count) {
+        try {
+            arena = new ArenaPainter((int) canvas.getWidth(), (int) canvas.getHeight(), Math.max(1, count));
+        } catch(IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            if(arena != null) {
+                return;
+            }
+            throw ex;
+        }
+        matches = arena.getMatches();
+        batch = new BatchEngine(matches, rateInMs);
+        finishedAt = new long[matches];
+        for(int i = 0; i < matches; i++) {
+            batch.reset(i, seed++, true, true);
+        }
+    }
+
+    /**
+     * One display refresh: step every match, draw them all, copy the frame to the canvas
+     *
+     * @param now the frame time in nanoseconds
+     */
+    private void frame(long now) {
+        if(lastFrame >= 0) {
+            interval.record(now - lastFrame);
+        }
+        lastFrame = now;
+
+        long start = System.nanoTime();
+        int steps = clock.advance(now);
+        batch.step(steps);
+        for(int i = 0; i < matches; i++) {
+            if(!batch.isDone(i)) {
+                continue;
+            }
+            if(finishedAt[i] == 0) {
+                finishedAt[i] = now;
+            } else if(now - finishedAt[i] > finishedHold) {
+                finishedAt[i] = 0;
+                batch.reset(i, seed++, true, true);
+            }
+        }
+        long stepped = System.nanoTime();
+        RasterSurface frame = arena.draw(batch);
+        long drawn = System.nanoTime();
+        int width = frame.getWidth(), height = frame.getHeight();
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), frame.getPixels(), 0, width);
+        screen.drawImage(image, 0, 0, width, height);
+        long uploaded = System.nanoTime();
+
+        step.record(stepped - start);
+        draw.record(drawn - stepped);
+        upload.record(uploaded - drawn);
+        windowFrames++;
+        windowTicks += (long) steps * matches;
+        if(readout) {
+            drawReadout(now);
+        }
+    }
+
+    /**
+     * Draw the frame rate and frame-time percentiles over the last half second in the top left
+     * corner; the window's histograms then go into the totals for {@link #summary()}
+     */
+    private void drawReadout(long now) {
+        if(now - readoutUpdated > 500_000_000L) {
+            double seconds = readoutUpdated == 0 ? 0 : (now - readoutUpdated) / 1e9;
+            readoutText = String.format("%d matches (%dx%d at %.2f)  %.1f fps  %.2f M ticks/s%n" +
+                            "frame p50 %.2f ms  p99 %.2f ms  max %.2f ms%n" +
+                            "p99: step %.2f ms  draw %.2f ms  upload %.2f ms",
+                    matches, arena.getColumns(), arena.getRows(), arena.getScale(),
+                    seconds == 0 ? 0 : windowFrames / seconds, seconds == 0 ? 0 : windowTicks / seconds / 1e6,
+                    interval.percentile(50) / 1e6, interval.percentile(99) / 1e6, interval.getMax() / 1e6,
+                    step.percentile(99) / 1e6, draw.percentile(99) / 1e6, upload.percentile(99) / 1e6);
+            readoutUpdated = now;
+            windowFrames = 0;
+            windowTicks = 0;
+            rollWindow();
+        }
+        screen.setFill(BoardPainter.BACKGROUND);
+        screen.fillRect(readoutX, readoutY, readoutW, readoutH);
+        screen.setFill(BoardPainter.GAME_COLOR);
+        screen.fillText(readoutText, readoutX + 4, readoutY + 16);
+    }
+
+    private void rollWindow() {
+        totalInterval.add(interval);
+        totalStep.add(step);
+        totalDraw.add(draw);
+        totalUpload.add(upload);
+        interval.reset();
+        step.reset();
+        draw.reset();
+        upload.reset();
+    }
+
+    private void keyPressed(KeyEvent evt) {
+        switch(evt.getCode()) {
+            case MINUS:
+                resize(matches / 2);
+                break;
+            case EQUALS:
+                resize(matches * 2);
+                break;
+            case O:
+                readout = !readout;
+                break;
+            case ESCAPE:
+                quit();
+                break;
+        }
+    }
+
+    /**
+     * Frame-time percentiles over the whole run, for the console.
+     *
+     * @return one line per phase
+     */
+    public String summary() {
+        rollWindow();
+        return String.format("arena: %d matches, %d frames%n" +
+                        "frame interval p50 %.2f ms  p99 %.2f ms  max %.2f ms%n" +
+                        "step p50 %.3f ms  p99 %.3f ms, draw p50 %.3f ms  p99 %.3f ms, upload p50 %.3f ms  p99 %.3f ms",
+                matches, totalStep.getCount(),
+                totalInterval.percentile(50) / 1e6, totalInterval.percentile(99) / 1e6, totalInterval.getMax() / 1e6,
+                totalStep.percentile(50) / 1e6, totalStep.percentile(99) / 1e6, totalDraw.percentile(50) / 1e6,
+                totalDraw.percentile(99) / 1e6, totalUpload.percentile(50) / 1e6, totalUpload.percentile(99) / 1e6);
+    }
+
+    private void quit() {
+        System.out.println(summary());
+        timer.stop();
+        stage.close();
+    }
+}
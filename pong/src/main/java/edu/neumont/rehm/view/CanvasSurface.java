@@ -0,0 +1,116 @@
+package edu.neumont.rehm.view;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import edu.neumont.rehm.render.Surface;
+
+/**
+ * A {@link Surface} over a JavaFX GraphicsContext that counts draw calls and can draw
+ * score digits from cached glyph images.
+ */
+public class CanvasSurface implements Surface {
+
+    private GraphicsContext g;
+    private Image[] glyphs;
+    private int[] colorKeys = new int[8];
+    private Color[] colors = new Color[8];
+    private int colorCount = 0, drawCalls = 0;
+    private Font font;
+
+    /**
+     * Instantiates a new surface.
+     *
+     * @param g the graphics context to draw on
+     */
+    public CanvasSurface(GraphicsContext g) {
+        this.g = g;
+    }
+
+    @Override
+    public void setFill(int argb) {
+        g.setFill(color(argb));
+    }
+
+    @Override
+    public void fillRect(double x, double y, double w, double h) {
+        drawCalls++;
+        g.fillRect(x, y, w, h);
+    }
+
+    @Override
+    public boolean drawGlyph(int digit, double x, double y) {
+        if(glyphs == null || glyphs[digit] == null) {
+            return false;
+        }
+        drawCalls++;
+        g.drawImage(glyphs[digit], x, y);
+        return true;
+    }
+
+    /**
+     * Copy a region of an image to the same place on this surface.
+     *
+     * @param image the image
+     * @param x     the x
+     * @param y     the y
+     * @param w     the width
+     * @param h     the height
+     */
+    public void drawImage(Image image, double x, double y, double w, double h) {
+        drawCalls++;
+        g.drawImage(image, x, y, w, h, x, y, w, h);
+    }
+
+    /**
+     * Draw text (lines separated by newlines) in a small monospaced font with the current fill color.
+     *
+     * @param text the text
+     * @param x    the x of the first line's baseline start
+     * @param y    the y of the first line's baseline
+     */
+    public void fillText(String text, double x, double y) {
+        if(font == null) {
+            font = Font.font("Monospaced", 11);
+        }
+        drawCalls++;
+        g.setFont(font);
+        g.fillText(text, x, y);
+    }
+
+    /**
+     * The JavaFX color for an ARGB value; the few colors the game uses are converted once.
+     */
+    private Color color(int argb) {
+        for(int i = 0; i < colorCount; i++) {
+            if(colorKeys[i] == argb) {
+                return colors[i];
+            }
+        }
+        Color c = Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+        if(colorCount < colors.length) {
+            colorKeys[colorCount] = argb;
+            colors[colorCount++] = c;
+        }
+        return c;
+    }
+
+    /**
+     * Sets the cached digit images drawGlyph uses, or null to draw digits rect by rect.
+     *
+     * @param glyphs ten images, one per digit
+     */
+    public void setGlyphs(Image[] glyphs) {
+        this.glyphs = glyphs;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void resetDrawCalls() {
+        drawCalls = 0;
+    }
+}
@@ -0,0 +1,294 @@
+package edu.neumont.rehm.view;
+
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.FixedStepClock;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.metrics.LatencyHistogram;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.RasterSurface;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks the {@link Pace} for what is on screen and wakes the game at that pace when the display
+ * doesn't. At {@link Pace#FULL} the display drives the frames and the scheduler's thread sleeps;
+ * at any other pace the thread runs the wake callback once per interval. Input always brings the
+ * game back to full pace, and keeps it there for a while, so a key press is never answered at
+ * the idle rate.
+ * <p>
+ * The time and process CPU spent at each pace are kept, along with how long it took from a key
+ * waking the game to the first frame at full pace, so the savings can be read off the console.
+ */
+public class IdleScheduler implements Closeable {
+
+    private static final Pace[] PACES = Pace.values();
+
+    private final long holdNanos;
+    private final Runnable wake;
+    private final LongSupplier cpu = processCpu();
+    private final boolean cpuSupported = cpu.getAsLong() >= 0;
+
+    private volatile Pace pace = Pace.FULL;
+    private long lastInput = -1, wakeStart = -1;
+    private long since = System.nanoTime(), cpuSince = cpu.getAsLong();
+    private final long[] wall = new long[PACES.length], cpuUsed = new long[PACES.length], frames = new long[PACES.length];
+    private final LatencyHistogram wakeLatency = new LatencyHistogram();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Instantiates a scheduler and starts its wake thread, at full pace.
+     *
+     * @param holdNanos how long after the last input to stay at full pace whatever is on screen
+     * @param wake      run from the scheduler's thread once per interval while not at full pace
+     */
+    public IdleScheduler(long holdNanos, Runnable wake) {
+        this.holdNanos = holdNanos;
+        this.wake = wake;
+        thread = new Thread(this::loop, "idle-wake");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loop() {
+        while(running) {
+            Pace p = pace;
+            if(p == Pace.FULL) {
+                LockSupport.park(this); // until the pace drops
+            } else {
+                LockSupport.parkNanos(this, p.getWakeNanos());
+                if(running && pace != Pace.FULL) {
+                    wake.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * Work out the pace for what is on screen; call after every frame and whenever the window changes.
+     *
+     * @param now     the current time in nanoseconds
+     * @param visible whether the window is showing, not minimized and focused
+     * @param lobby   whether the attract screen is up
+     * @param paused  whether the game is paused
+     * @param pinned  whether something needs every frame anyway (a peer, spectators)
+     * @return the pace to run at from now on
+     */
+    public Pace update(long now, boolean visible, boolean lobby, boolean paused, boolean pinned) {
+        Pace next;
+        if(pinned || (lastInput >= 0 && now - lastInput < holdNanos)) {
+            next = Pace.FULL;
+        } else if(!visible) {
+            next = Pace.HIDDEN;
+        } else if(lobby) {
+            next = Pace.LOBBY;
+        } else if(paused) {
+            next = Pace.PAUSED;
+        } else {
+            next = Pace.FULL;
+        }
+        if(next != pace) {
+            account(now);
+            pace = next;
+            LockSupport.unpark(thread); // to sleep on the new interval
+        }
+        return next;
+    }
+
+    /**
+     * Note a key press. The caller should {@link #update} next, which returns {@link Pace#FULL}.
+     *
+     * @param now when the key was pressed, in nanoseconds
+     */
+    public void input(long now) {
+        lastInput = now;
+        if(pace != Pace.FULL && wakeStart < 0) {
+            wakeStart = now;
+        }
+    }
+
+    /**
+     * Count a frame at the current pace, and time the wake-up if this is the first full frame after one.
+     *
+     * @param now when the frame was done, in nanoseconds
+     */
+    public void frameDone(long now) {
+        frames[pace.ordinal()]++;
+        if(wakeStart >= 0 && pace == Pace.FULL) {
+            wakeLatency.record(now - wakeStart);
+            wakeStart = -1;
+        }
+    }
+
+    private void account(long now) {
+        long c = cpu.getAsLong();
+        wall[pace.ordinal()] += now - since;
+        cpuUsed[pace.ordinal()] += c - cpuSince;
+        since = now;
+        cpuSince = c;
+    }
+
+    public Pace getPace() {
+        return pace;
+    }
+
+    public LatencyHistogram getWakeLatency() {
+        return wakeLatency;
+    }
+
+    /**
+     * Time, process CPU and frames per second at each pace used so far, and the wake-up latency.
+     *
+     * @return a few lines
+     */
+    public String summary() {
+        long now = System.nanoTime(), c = cpu.getAsLong();
+        StringBuilder out = new StringBuilder("pacing:");
+        for(Pace p : PACES) {
+            boolean current = p == pace;
+            long w = wall[p.ordinal()] + (current ? now - since : 0), u = cpuUsed[p.ordinal()] + (current ? c - cpuSince : 0);
+            if(w <= 0) {
+                continue;
+            }
+            out.append(String.format("%n  %-6s %8.1f s  %s  %5.1f frames/s", p.name().toLowerCase(), w / 1e9,
+                    cpuSupported ? String.format("%5.1f%% CPU", u * 100.0 / w) : "CPU n/a", frames[p.ordinal()] * 1e9 / w));
+        }
+        out.append(String.format("%n  wake on key: p50 %.1f ms  p99 %.1f ms  max %.1f ms  (%d wakes)", wakeLatency.percentile(50) / 1e6,
+                wakeLatency.percentile(99) / 1e6, wakeLatency.getMax() / 1e6, wakeLatency.getCount()));
+        return out.toString();
+    }
+
+    /**
+     * Stop the wake thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The process's CPU time so far, or -1 where the JVM doesn't say.
+     */
+    private static LongSupplier processCpu() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if(bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean)::getProcessCpuTime;
+        }
+        return () -> -1;
+    }
+
+    /**
+     * The entry point: the attract screen, a paused game and a hidden bot match, each run headless
+     * at full pace (60 frames a second, drawn on a software surface) and then at its idle pace for
+     * the same number of ticks, printing the CPU used and checking both runs end in the same state.
+     *
+     * @param args optional seconds per run (default 5) and seed (default 1)
+     */
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        run(Pace.FULL, Pace.LOBBY, 1, -1, seed); // JIT warm-up
+        System.out.printf("%-8s %9s %14s %14s  %s%n", "screen", "ticks", "full pace", "idle pace", "same state");
+        for(Pace idle : new Pace[]{Pace.LOBBY, Pace.PAUSED, Pace.HIDDEN}) {
+            Run full = run(Pace.FULL, idle, seconds, -1, seed), slow = run(idle, idle, 0, full.ticks, seed);
+            System.out.printf("%-8s %9d %6.2f%% %4.0f/s %6.2f%% %4.0f/s  %s%n", idle.name().toLowerCase(), full.ticks,
+                    full.cpuPercent(), full.framesPerSecond(), slow.cpuPercent(), slow.framesPerSecond(),
+                    Arrays.equals(full.state, slow.state) ? "yes" : "NO");
+        }
+    }
+
+    /**
+     * One headless run: frames at a pace until the time is up or the tick count is reached.
+     *
+     * @param pace   FULL to run frames on this thread at 60 a second, else let a scheduler wake them
+     * @param screen which screen to set up: LOBBY, PAUSED or HIDDEN (a bot match)
+     */
+    private static Run run(Pace pace, Pace screen, double seconds, long ticks, long seed) {
+        PongEngine engine = new PongEngine(5, new Random(seed));
+        if(screen != Pace.LOBBY) {
+            engine.toggleSmartBot();
+            engine.toggleDumbBot();
+            engine.resetGame();
+        }
+        if(screen == Pace.PAUSED) {
+            engine.apply(Command.START_OR_PAUSE);
+        }
+        Run run = new Run(engine, pace.renders(), ticks);
+        LongSupplier cpu = processCpu();
+        long start = System.nanoTime(), cpuStart = cpu.getAsLong();
+        if(pace == Pace.FULL) {
+            long frameNanos = 1_000_000_000L / 60, end = start + (long) (seconds * 1e9);
+            for(long next = start; System.nanoTime() < end; next += frameNanos) {
+                LockSupport.parkNanos(next - System.nanoTime());
+                run.frame(System.nanoTime());
+            }
+        } else {
+            try(IdleScheduler scheduler = new IdleScheduler(0, () -> run.frame(System.nanoTime()))) {
+                scheduler.update(start, screen.renders(), screen == Pace.LOBBY, screen == Pace.PAUSED, false);
+                while(run.ticks < ticks) {
+                    LockSupport.parkNanos(10_000_000);
+                }
+            }
+        }
+        run.wall = System.nanoTime() - start;
+        run.cpu = cpu.getAsLong() - cpuStart;
+        run.state = new double[]{engine.getBallX(), engine.getBallY(), engine.getPadLY(), engine.getPadRY(),
+                engine.getPlayerLScore(), engine.getPlayerRScore()};
+        return run;
+    }
+
+    /**
+     * A headless stand-in for the view: the same clock, ticks and a full redraw on a software surface.
+     */
+    private static class Run {
+        private final PongEngine engine;
+        private final boolean draw;
+        private final long maxTicks;
+        private final FixedStepClock clock = new FixedStepClock(5, 50);
+        private final RasterSurface surface = new RasterSurface((int) PongEngine.WIDTH, (int) PongEngine.HEIGHT);
+        private final BoardPainter painter = new BoardPainter();
+        private volatile long ticks = 0;
+        private long frames = 0, wall, cpu;
+        private double[] state;
+
+        private Run(PongEngine engine, boolean draw, long maxTicks) {
+            this.engine = engine;
+            this.draw = draw;
+            this.maxTicks = maxTicks < 0 ? Long.MAX_VALUE : maxTicks;
+        }
+
+        private void frame(long now) {
+            int steps = clock.advance(now);
+            for(int i = 0; i < steps && ticks < maxTicks; i++) {
+                engine.tick();
+                ticks++;
+            }
+            if(draw) {
+                painter.drawGame(surface, engine, clock.getAlpha(), true);
+            }
+            frames++;
+        }
+
+        private double cpuPercent() {
+            return cpu * 100.0 / wall;
+        }
+
+        private double framesPerSecond() {
+            return frames * 1e9 / wall;
+        }
+    }
+}
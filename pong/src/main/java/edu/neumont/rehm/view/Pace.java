@@ -0,0 +1,46 @@
+package edu.neumont.rehm.view;
+
+/**
+ * How often the game wakes up and whether it draws when it does. Every pace runs the same fixed-length
+ * ticks, just more of them per wake, so the simulation comes out the same; what changes is how
+ * often the CPU is woken and how many frames are drawn.
+ */
+public enum Pace {
+    /**
+     * Every display frame, on the AnimationTimer.
+     */
+    FULL(0, true),
+    /**
+     * The attract screen, 20 frames a second.
+     */
+    LOBBY(50, true),
+    /**
+     * A paused game, 10 frames a second.
+     */
+    PAUSED(100, true),
+    /**
+     * Hidden, minimized or unfocused: ticks 10 times a second and draws nothing.
+     */
+    HIDDEN(100, false);
+
+    private final long wakeNanos;
+    private final boolean renders;
+
+    Pace(int wakeMillis, boolean renders) {
+        this.wakeNanos = wakeMillis * 1_000_000L;
+        this.renders = renders;
+    }
+
+    /**
+     * The time between wakes, when the game isn't woken by the display.
+     *
+     * @return nanoseconds, 0 for {@link #FULL}
+     */
+    public long getWakeNanos() {
+        return wakeNanos;
+    }
+
+    public boolean renders() {
+        return renders;
+    }
+}
@@ -1,605 +1,968 @@
-package edu.neumont.rehm.view;
-
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-import javafx.scene.paint.Color;
-import javafx.stage.Stage;
-import javafx.util.Duration;
-
-import java.io.File;
-import java.net.URL;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
-
-/**
- * The View/Controller that holds all logic, including:
- * Drawing the board,
- * Ball/Paddle position and movement,
- * Collision detection/action, etc.
- */
-public class PongView {
-
-    /**
-     * The Canvas.
-     */
-    public Canvas canvas;
-    private Timeline timeline;
-    private GraphicsContext g;
-    private Stage stage;
-
-    private Color gameColor = Color.LIGHTGRAY, background = Color.color(0.07, 0.07, 0.1, 1); // white, limegreen; beige, black; steelblue, cadetblue
-    private final double WIDTH = 800, HEIGHT = 600; // 800x600; 1600x900; When changing width/height be sure to make the corresponding changes in the fxml
-    private double buffer = 20, textBuffer = 27, textPadding = 15; // 20, 27, 15
-    private double textWidth = 40, textHeight = 65; // 15 + 10 + 15 (40), 15 + 10 + 15 + 10 + 15 (65)
-
-    private int playerLScore = 0, playerRScore = 0; // 0, 0
-    private int counter = 0, rateInMs = 5; // 0, 20
-    private final int WIN_CONDITION = 11; // 11
-    private boolean pause = false, lobbyMode = true, indicators = true; // false, true
-
-    private final double padSpd = 0.6 * rateInMs, ballSpd = padSpd / 2; // 0.6
-    private final double padW = 14, padH = padW * 5; // 14, 12; 70, 60
-    private double padLX = buffer, padLY = HEIGHT/2 - padH/2;
-    private double padRYV = 0, padLYV = 0; // 0, 0
-    private double padRX = WIDTH-buffer-padW, padRY = HEIGHT/2 - padH/2;
-
-    private final double ballW = padW * 0.9, ballH = ballW; // 14, ballW
-    private double ballX = WIDTH/2 - ballW/2, ballY = HEIGHT/2 - ballH/2;
-    private double ballXV = 0, ballYV = 0, ballV = 0; // 0, 0, 0
-    private double vAdd = padSpd/10, vDir = getStartingDirection(); // 0.3
-
-    private double ballYC = ballY + ballH/2, ballXC = ballX + ballW/2;
-    private double padRC = padRY + padH/2, padLC = padLY + padH/2;
-    private int collisionIndex = 0; // should only ever be -1, 0, or 1
-
-    private double botSpd = padSpd * 0.8, botRange = padH/2 * 0.80; // padSpd * 0.8, padH/2 * 0.4; 0.3
-    private double botX = padLX + padW, botY = ballYC;
-    private boolean botActive = false, oldBot = false, dot = false;
-
-    private URL blip, score, opponentScore;
-
-
-//    private URL blip = new URL(new File(audio_dir + "blip.mp3").toURI().toString()),
-//            score = new Media(new File(audio_dir + "score.mp3").toURI().toString()),
-//            opponentScore = new Media(new File(audio_dir + "opponent_score.mp3").toURI().toString()),
-//            tap = new Media(new File(audio_dir + "tap.mp3").toURI().toString()),
-//            score2 = new Media(new File(audio_dir + "score2.mp3").toURI().toString());
-
-    /**
-     * Initialize the stage and set the Timeline
-     *
-     * @param stage the stage to set
-     */
-    public void init(Stage stage) {
-        initSounds();
-        this.stage = stage;
-//        stage.setWidth(WIDTH);
-//        stage.setHeight(HEIGHT);
-        stage.setTitle("Pong");
-        this.stage.getIcons().add(new Image(this.getClass().getClassLoader().getResourceAsStream("icon.png")));
-        stage.setResizable(false);
-        stage.show();
-        stage.centerOnScreen();
-        resetBall();
-
-        timeline = new Timeline(new KeyFrame(Duration.millis(rateInMs), e -> run())); // 20 ms
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
-    }
-
-    private void initSounds() {
-        try {
-            blip = this.getClass().getClassLoader().getResource("blip.mp3");
-            score = this.getClass().getClassLoader().getResource("score.mp3");
-            opponentScore = this.getClass().getClassLoader().getResource("opponent_score.mp3");
-        } catch(Exception ex) {
-            ex.printStackTrace();
-        }
-    }
-
-    private void run() {
-        counter++;
-        movement();
-        keybinds();
-        collisionCheck();
-        conditionCheck();
-        bot();
-//        diagnostics();
-        if(rateInMs < 5) {
-            if(counter % 20 == 1) {
-                draw();
-            }
-        } else {
-            draw();
-        }
-
-    }
-
-    private void movement() {
-        ballX += ballXV;
-        ballY += ballYV;
-        padRY += padRYV;
-        padLY += padLYV;
-
-        // update variables
-        ballYC = ballY + ballH/2;
-        ballXC = ballX + ballW/2;
-        padLC = padLY + padH/2;
-        padRC = padRY + padH/2;
-    }
-
-    private void keybinds() {
-        stage.getScene().setOnKeyPressed(evt -> {
-            switch(evt.getCode()) {
-                case W:
-                    if(!botActive) {
-                        padLYV = padSpd * -1;
-                    }
-                    break;
-                case S:
-                    if(!botActive) {
-                        padLYV = padSpd;
-                    }
-                    break;
-                case UP:
-                    if(!oldBot) {
-                        padRYV = padSpd * -1;
-                    }
-                    break;
-                case DOWN:
-                    if(!oldBot) {
-                        padRYV = padSpd;
-                    }
-                    break;
-                case SPACE:
-                    if(lobbyMode) {
-                        resetGame();
-                    } else {
-                        pause();
-                    }
-                    break;
-                case ESCAPE:
-                    stage.close();
-                    break;
-                case B:
-                    botActive = !botActive;
-                    padLYV = 0;
-                    break;
-                case N:
-                    oldBot = !oldBot;
-                    padLYV = 0;
-                    break;
-                case R:
-                    resetBall();
-                    break;
-                case ENTER:
-                    resetGame();
-                    break;
-                case D:
-                    dot = botActive;
-                    break;
-                case I:
-                    indicators = !indicators;
-                    break;
-
-            }
-        });
-        stage.getScene().setOnKeyReleased(evt -> {
-            switch(evt.getCode()) {
-                case W:
-                case S:
-                    if(!botActive) {
-                        padLYV = 0;
-                    }
-                    break;
-                case UP:
-                case DOWN:
-                    if(!oldBot) {
-                        padRYV = 0;
-                    }
-                    break;
-                default:
-            }
-        });
-    }
-
-    @SuppressWarnings("Duplicates")
-    private void collisionCheck() {
-        // ceiling/floor collision detection TODO
-        padRY = (padRY < 0)? 0 : padRY; // right paddle ceiling
-        padRY = (padRY + padH > HEIGHT)? HEIGHT - padH : padRY; // right paddle floor
-        padLY = (padLY < 0)? 0 : padLY; // left paddle ceiling
-        padLY = (padLY + padH > HEIGHT)? HEIGHT - padH : padLY; // left paddle floor
-        if(ballY <= 0 && ballYV < 0) { // ball ceiling
-            ballY *= -1; // natural reflection
-            ballYV *= -1; // swap direction
-            playSound(blip);
-        }
-        if(ballY + ballH >= HEIGHT && ballYV > 0) { // ball floor
-            ballYV *= -1;
-            ballY = HEIGHT - ((ballY + ballH) - HEIGHT) - ballH;
-            playSound(blip);
-        }
-        
-        // lobby mode collision (no paddles, think VHS logo)
-        if(lobbyMode) {
-            if(ballX + ballW > WIDTH && ballXV > 0) { // ball right wall
-                ballX = WIDTH - ((ballX + ballW) - WIDTH) - ballW;
-                ballXV *= -1;
-                playSound(blip);
-            }
-            if(ballX < 0 && ballXV < 0) { // ball left wall
-                ballX = ballX * -1;
-                ballXV *= -1;
-                playSound(blip);
-            }
-        } else { // BIG else
-
-            // right paddle collision prediction
-            if(ballX + ballW >= padRX && ballXV > 0) { // if the ball will cross the right paddle zone in the next frame (paddle face)
-                if(ballY + ballH >= padRY && ballY <= padRY + padH && ballX < padRX + padW) { // if the ball will contact the paddle in the next frame (dependent on above if statement)
-                    double bPTopDist = (ballY + ballH) - padRY; // distance between top of paddle and bottom of ball
-                    double bPFaceDist = (ballX + ballW) - padRX; // distance between left paddle face and right ball face
-                    double bPBottDist = (padRY + padH) - ballY; // distance between bottom of paddle and top of ball
-                    double overlap = 0, reflection = 0;
-                    if(bPFaceDist < bPTopDist &&
-                       bPFaceDist < bPBottDist) { // the ball will reflect off the face
-                        reflection = (ballYC - padRC);
-                        overlap = bPFaceDist;
-                        ballX = ballX - (overlap * 2); // sets the position of the ball to be just in contact with the paddle (may make the velocity check obsolete)
-                        ballXV = ballV * -1; // changes the direction
-                    }
-                    ballYV = (padRYV != 0) ? reflection * 0.1 : reflection * 0.03; // resets the velocity
-                    ballV += vAdd; // increases the speed
-                    playSound(blip);
-                }
-            }
-            if(ballX <= padLX + padW && ballXV < 0) { // if the ball will cross the right paddle zone in the next frame (paddle face)
-                if(ballY + ballH >= padLY && ballY <= padLY + padH && ballX > padLX) { // if the ball will contact the paddle in the next frame (dependent on above if statement)
-                    double bPTopDist = (ballY + ballH) - padLY; // distance between top of paddle and bottom of ball
-                    double bPFaceDist = (padLX + padW) - ballX; // distance between left paddle face and right ball face
-                    double bPBottDist = (padLY + padH) - ballY; // distance between bottom of paddle and top of ball
-                    double overlap = 0, reflection = 0;
-                    if(bPFaceDist < bPTopDist &&
-                       bPFaceDist < bPBottDist) { // the ball will reflect off the face
-                        reflection = (ballYC - padLC);
-                        overlap = bPFaceDist;
-                        ballX = ballX - (overlap * 2); // sets the position of the ball to be just in contact with the paddle (may make the velocity check obsolete)
-                        ballXV = ballV; // changes the direction
-                    }
-                    ballYV = (padLYV != 0) ? reflection * 0.1 : reflection * 0.03; // resets the velocity
-                    ballV += vAdd; // increases the speed
-                    playSound(blip);
-                }
-            }
-
-            // right paddle face collision detection
-//            if (ballX + ballW > padRX &&
-//                    ((ballY > padRY && ballY < padRY + padH) ||
-//                            (ballY + ballH > padRY && ballY + ballH < padRY + padH)) &&
-//                    ballXV > 0) {
-//                // ball made contact with right paddle
-//                double overlap = (ballX + ballW) - padRX;
-//                double reflection = (ballYC - padRC);
-//                ballX = ballX - (overlap * 2); // sets the position of the ball to be just in contact with the paddle (may make the velocity check obsolete)
-//                ballYV = (padRYV != 0) ? reflection * 0.025 : reflection * 0.01; // resets the velocity
-//                ballXV = ballV * -1; // changes the direction
-//                ballV += vAdd; // increases the speed
-////            playSound(blip);
-//            }
-
-            // left paddle face collision detection
-//            if (ballX < padLX + padW &&
-//                    ((ballY > padLY && ballY < padLY + padH) ||
-//                            (ballY + ballH > padLY && ballY + ballH < padLY + padH)) &&
-//                    ballXV < 0) {
-//                // ball made contact with left paddle face
-//                double overlap = (padLX + padW) - ballX;
-//                double reflection = (ballYC - padLC);
-//                ballX = ballX + (overlap * 2);
-//                ballYV = (padLYV != 0) ? reflection * 0.025 : reflection * 0.01;
-//                ballXV = ballV;
-//                ballV += vAdd;
-//            playSound(blip);
-//            }
-        } // end else
-    }
-
-    private void playSound(URL url) {
-        MediaPlayer mediaPlayer = new MediaPlayer(new Media(url.toString()));
-        mediaPlayer.play();
-    }
-
-    private void conditionCheck() {
-        // left player scores
-        if(ballX >= WIDTH + buffer) {
-            playerLScore += 1;
-            vDir = 1;
-            resetBall();
-            playSound(opponentScore);
-        }
-        // right player scores
-        if(ballX + ballW <= 0 - buffer) {
-            playerRScore += 1;
-            vDir = -1;
-            resetBall();
-            playSound(score);
-        }
-
-        if(ballXV == 0 && ballYV == 0) { // built for legacy sound features
-            if(counter == 100) { kickoff(); }
-        }
-
-        // declare winner TODO
-        if(playerLScore >= WIN_CONDITION || playerRScore >= WIN_CONDITION) {
-            lobbyMode = true;
-        }
-    }
-
-    private void draw() {
-        g = canvas.getGraphicsContext2D();
-        resetBoard(g, background);
-        drawScore(g, gameColor, background);
-        drawSplit(g, gameColor);
-        drawBall(g, gameColor, background);
-        if(!lobbyMode) {
-            drawPaddles(g, gameColor);
-            if(indicators) {drawIndicators(g);}
-        }
-        if(dot) {drawDot(g, botX, botY);} // used to visually see where the bot predicts the ball to go
-    }
-
-    private void bot() {
-        // # VERSION 1 # (on the right) (EASY Difficulty)
-        if(oldBot) {
-            if(ballYC < padRC - padH * 0.3) {
-                padRYV = botSpd * -1;
-            } else if(ballYC > padRC + padH * 0.3) {
-                padRYV = botSpd;
-            } else {
-                padRYV = 0;
-            }
-        }
-
-        // # VERSION 2 # (HARD Difficulty; to make medium remove hardmode ternary)
-        if(ballXV < 0 && botActive) {
-            if(botY < (padLC - botRange)) {
-                padLYV = botSpd * -1;
-            } else if(botY > (padLC + botRange)) {
-                padLYV = botSpd;
-            } else if(botY > (padLC - botRange) && botY < (padLC + botRange)) {
-                padLYV = (ballX + ballXV > (padLX + padW))? 0 : ((botY < padLC)? botSpd : botSpd * -1); // hardmode
-            }
-        } else if(ballXV > 0 && botActive) {
-            if(ballYC < padLC - 5) {
-                padLYV = botSpd * -1;
-            } else if(ballYC > padLC + 5) {
-                padLYV = botSpd;
-            } else {
-                padLYV = 0;
-            }
-        } else if(botActive) {
-            padLYV = 0;
-        }
-        // do the math
-        int safety = 0;
-        if(ballXV < 0) {
-            double slopeX = (ballYV / ballXV) * (ballX - botX);
-            botY = ballYC - slopeX;
-            while (botY < 0 || botY > HEIGHT && safety < 20) {
-                if(botY > HEIGHT) {
-                    botY = HEIGHT - (botY - HEIGHT);
-                }
-                if(botY < 0) {
-                    botY *= -1;
-                }
-                safety++;
-            }
-        }
-    }
-
-    private void drawIndicators(GraphicsContext g) {
-        Color active = Color.RED;
-        Color inactive = Color.BLUE; // palevioletred, limegreen, blue
-        int diameter = 6;
-        int border = 5;
-        g.setFill(botActive? active : inactive);
-        g.fillRect(border, border, diameter, diameter);
-        g.setFill(oldBot? active : inactive);
-        g.fillRect(WIDTH - (border + diameter), border, diameter, diameter);
-        g.setFill(gameColor);
-    }
-
-    private void drawDot(GraphicsContext g, double x, double y) {
-        double f = 2;
-        double s = 1;
-        g.setFill(background);
-        g.fillRect(x-(f/2)-s, y-(f/2)-s, s+f+s, s+f+s);
-        g.setFill(gameColor);
-        g.fillRect(x-(f/2), y-(f/2), f, f);
-    }
-
-    private void resetGame() {
-        resetBall();
-        resetPaddles();
-        playerRScore = 0;
-        playerLScore = 0;
-        lobbyMode = false;
-        timeline.play();
-    }
-
-    private void resetBall() {
-        counter = 0;
-        ballX = WIDTH/2 - ballW/2;
-        ballY = HEIGHT/2 - ballH/2;
-        ballXV = 0;
-        ballYV = 0;
-        ballV = ballSpd;
-    }
-
-    private void resetPaddles() {
-        padLY = (HEIGHT/2) - (padH/2);
-        padRY = padLY;
-    }
-
-    private void kickoff() {
-        ballYV += ThreadLocalRandom.current().nextDouble(ballSpd*-1, ballSpd);
-        ballXV = ballSpd * vDir;
-    }
-
-    /**
-     * Picks an integer to multiply with ballXV
-     * @return either 1 or -1
-     */
-    private int getStartingDirection() {
-        int result = 0;
-        for (int i = 0; i < i + 1 && result == 0; i++) {
-            result = new Random().nextInt(3) - 1;
-        }
-        return result;
-    }
-
-    private void drawScore(GraphicsContext g, Color c, Color bg) {
-        drawPlayerLScore(g, c, bg);
-        drawPlayerRScore(g, c, bg);
-    }
-
-    private void drawPlayerLScore(GraphicsContext g, Color c, Color bg) {
-        int[] ints = splitInts(playerLScore);
-        for(int i = 0; i < ints.length; i++) {
-            double x = WIDTH/2 - ((textWidth+textPadding)*ints.length) + textPadding - textBuffer;
-            double y = buffer;
-            x += i*(textWidth+textPadding);
-            drawNumber(g, x, y, ints[i], c, bg);
-        }
-    }
-
-    private void drawPlayerRScore(GraphicsContext g, Color c, Color bg) {
-        int[] ints = splitInts(playerRScore);
-        for(int i = 0; i < ints.length; i++) {
-            double x = WIDTH/2 + textBuffer;
-            x -= ints[0] == 1 ? 25 : 0;
-            double y = buffer;
-            x += i*(textWidth+textPadding);
-            drawNumber(g, x, y, ints[i], c, bg);
-        }
-    }
-
-    private void pause() {
-        if(pause) {
-            pause = false;
-            timeline.play();
-        } else {
-            pause = true;
-            timeline.pause();
-        }
-    }
-
-    private void resetBoard(GraphicsContext g, Color background) {
-        g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-        g.setFill(background);
-        g.fillRect(0,0,canvas.getWidth(), canvas.getHeight());
-    }
-
-    private void drawBall(GraphicsContext g, Color color, Color background) {
-        g.setFill(background);
-        int stroke = 3;
-        g.fillRect(ballX-stroke, ballY-stroke, ballW+(stroke*2), ballH+(stroke*2));
-        g.setFill(color);
-        g.fillRect(ballX, ballY, ballW, ballH);
-    }
-
-    private void drawLeftPaddle(GraphicsContext g) {
-        g.fillRect(padLX, padLY, padW, padH);
-    }
-
-    private void drawRightPaddle(GraphicsContext g) {
-        g.fillRect(padRX, padRY, padW, padH);
-    }
-
-    private void drawPaddles(GraphicsContext g, Color color) {
-        g.setFill(color);
-        drawLeftPaddle(g);
-        drawRightPaddle(g);
-    }
-
-    private void drawSplit(GraphicsContext g, Color color) {
-        g.setFill(color);
-        double lineWidth = 3; // def 10; fav 3
-        double margin = 4; // def 15; fav 10, 8
-        int numOfLines = 80; // def 16; fav 40, 80
-        double lineLength = (HEIGHT + margin) / numOfLines - margin; // def 23.4375
-
-        for (int i = 0; i < numOfLines; i++) {
-            g.fillRect(canvas.getWidth()/2 - lineWidth/2,i*lineLength + i*margin, lineWidth, lineLength);
-        }
-    }
-
-    private void drawNumber(GraphicsContext g, double x, double y, int number, Color c, Color bg) {
-        g.setFill(c);
-        g.fillRect(x, y, textWidth, textHeight);
-        g.setFill(bg);
-        switch (number) {
-            case 0:
-                g.fillRect(x + 15, y + 15, 10, 35);
-                break;
-            case 1:
-                g.fillRect(x + 0, y + 0, 25, 65);
-                break;
-            case 2:
-                g.fillRect(x + 0, y + 15, 25, 10);
-                g.fillRect(x + 15, y + 40, 25, 10);
-                break;
-            case 3:
-                g.fillRect(x + 0, y + 15, 25, 10);
-                g.fillRect(x + 0, y + 40, 25, 10);
-                break;
-            case 4:
-                g.fillRect(x + 15, y + 0, 10, 25);
-                g.fillRect(x + 0, y + 40, 25, 25);
-                break;
-            case 5:
-                g.fillRect(x + 15, y + 15, 25, 10);
-                g.fillRect(x + 0, y + 40, 25, 10);
-                break;
-            case 6:
-                g.fillRect(x + 15, y + 0, 25, 25);
-                g.fillRect(x + 15, y + 40, 10, 10);
-                break;
-            case 7:
-                g.fillRect(x + 0, y + 15, 25, 50);
-                break;
-            case 8:
-                g.fillRect(x + 15, y + 15, 10, 10);
-                g.fillRect(x + 15, y + 40, 10, 10);
-                break;
-            case 9:
-                g.fillRect(x + 15, y + 15, 10, 10);
-                g.fillRect(x + 0, y + 40, 25, 25);
-                break;
-        }
-    }
-
-    private int[] splitInts(int num) {
-        String[] intStrings = Integer.toString(num).split("|");
-        int[] ints = new int[intStrings.length];
-        for(int i = 0; i < intStrings.length; i++) {
-            ints[i] = Integer.parseInt(intStrings[i]);
-        }
-        return ints;
-    }
-
-    private void diagnostics() {
-        System.out.println(
-                "LY: " + padLY + " RY: " + padRY + "\n" +
-                        "BX: " + ballX + " BY: " + ballY + "\n" +
-                        "XV: " + ballXV + " YV: " + ballYV + "\n"
-        );
-    }
-
-}
+package edu.neumont.rehm.view;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+
+import edu.neumont.rehm.engine.ChaosEngine;
+import edu.neumont.rehm.engine.Command;
+import edu.neumont.rehm.engine.FixedStepClock;
+import edu.neumont.rehm.engine.FrameSnapshot;
+import edu.neumont.rehm.engine.GameListener;
+import edu.neumont.rehm.engine.InputQueue;
+import edu.neumont.rehm.engine.LatencyStats;
+import edu.neumont.rehm.engine.LookaheadBot;
+import edu.neumont.rehm.engine.PongEngine;
+import edu.neumont.rehm.engine.RewindableRandom;
+import edu.neumont.rehm.engine.SimulationLoop;
+import edu.neumont.rehm.metrics.FramePacing;
+import edu.neumont.rehm.metrics.GameMetrics;
+import edu.neumont.rehm.metrics.Phase;
+import edu.neumont.rehm.metrics.Startup;
+import edu.neumont.rehm.net.NetSession;
+import edu.neumont.rehm.net.SpectatorClient;
+import edu.neumont.rehm.net.SpectatorServer;
+import edu.neumont.rehm.render.BoardPainter;
+import edu.neumont.rehm.render.RasterSurface;
+import edu.neumont.rehm.replay.InputRecorder;
+import edu.neumont.rehm.replay.Replay;
+import edu.neumont.rehm.render.Surface;
+import edu.neumont.rehm.sound.Sound;
+import edu.neumont.rehm.sound.SoundBank;
+import edu.neumont.rehm.stats.RallyStore;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The View/Controller that draws the board and forwards input to the {@link PongEngine}, including:
+ * Drawing the board, ball, paddles and score,
+ * Key handling,
+ * Sound playback.
+ */
+public class PongView implements GameListener {
+
+    /**
+     * The Canvas.
+     */
+    public Canvas canvas;
+    private AnimationTimer timer;
+    private FixedStepClock clock;
+    private Stage stage;
+    private PongEngine engine;
+
+    private final double WIDTH = PongEngine.WIDTH, HEIGHT = PongEngine.HEIGHT; // 800x600; 1600x900; When changing width/height be sure to make the corresponding changes in the fxml
+    private BoardPainter painter = new BoardPainter();
+    private CanvasSurface screen, layer; // the visible canvas; the offscreen canvas the static layer is rendered on
+
+    private int rateInMs = Integer.getInteger("pong.rateInMs", 5); // 5; physics step, the display refresh drives drawing
+    private double alpha = 1; // how far between the last two ticks the current frame is
+    private boolean indicators = true, dot = false; // true, false
+
+    private SoundBank sounds = new SoundBank(6); // 4 blips + 1 score + 1 opponent score
+
+    private InputQueue input = new InputQueue(64);
+    private LatencyStats inputLatency = new LatencyStats();
+    private long pendingInput = -1; // timestamp of the earliest paddle key not yet visible on screen
+    private double drawnPadLY, drawnPadRY;
+
+    private boolean cachedRendering = true; // repaint only what moved over a cached static layer
+    private WritableImage boardLayer, staticLayer; // background + net; boardLayer + scores + indicators
+    private WritableImage[] glyphs = new WritableImage[10];
+    private Canvas layerCanvas;
+    private int layerKey = -1; // what staticLayer was rendered for, see staticLayerKey()
+    private double[] dirty = new double[5 * 4]; // x, y, w, h of each rect drawn last frame (ball, paddles, dot, overlay)
+    private int dirtyCount = 0, drawCalls = 0;
+
+    private GameMetrics metrics = new GameMetrics();
+    private boolean overlay = false;
+    private String overlayText = "";
+    private long overlayUpdated = 0;
+    private final double overlayX = 8, overlayY = HEIGHT - 150, overlayW = 260, overlayH = 146;
+
+    private long seed = Long.getLong("pong.seed", System.nanoTime()); // -Dpong.seed makes a game reproducible
+    private long tickIndex = 0; // every tick call so far, paused or not; what the input log is keyed by
+    private InputRecorder recorder; // -Dpong.record=<file>
+    private Replay replay; // -Dpong.replay=<file>; live input is ignored while replaying
+    private int replaySpeed = 1; // 1, 8 (F)
+    private final int seekSeconds = 10;
+    private NetSession session; // -Dpong.net=<left|right>:<local port>:<remote host>:<remote port>
+    private SpectatorServer broadcast; // -Dpong.broadcast=<port>
+    private SpectatorClient spectator; // -Dpong.watch=<host>:<port>; shows someone else's game, nothing is simulated here
+    private LookaheadBot lookahead; // L; plays the left paddle through the input queue, so it is recorded like a player
+    private final long lookaheadBudget = Long.getLong("pong.lookaheadMicros", 200) * 1000; // 200 us of search per tick
+    private ChaosEngine chaos; // X; the normal game waits while chaos mode runs
+    private int chaosBalls = Integer.getInteger("pong.chaosBalls", 1000); // 1000; MINUS halves, EQUALS doubles
+    private RasterSurface chaosFrame; // chaos frames are rasterized here and shown with one image draw
+    private WritableImage chaosImage;
+    private RallyStore stats; // -Dpong.stats=<dir>; local games only, since online ones are rolled back and replays were recorded already
+    private IdleScheduler scheduler; // slows down on the attract screen, when paused and when nobody is looking; -Dpong.idle=false turns it off
+    private volatile boolean idleFramePending = false;
+    private final long idleHold = 3_000_000_000L; // full pace for 3 s after any key
+    private SimulationLoop simulation; // -Dpong.simThread=true; local games tick on their own thread and engine only shows its snapshots
+    private long shownWallHits = 0, shownPaddleHits = 0, shownLeftScores = 0, shownRightScores = 0, shownInputTime = -1;
+    private final FramePacing pacing = new FramePacing();
+    private long frames = 0;
+    private final int exitAfterFrames = Integer.getInteger("pong.exitAfterFrames", 0); // quit by itself, e.g. for a CDS training run
+
+    /**
+     * Initialize the stage and start the AnimationTimer. Sounds, the icon and the metrics registration
+     * wait until the first frame is up, see {@link #afterFirstFrame()}
+     *
+     * @param stage the stage to set
+     */
+    public void init(Stage stage) {
+        this.stage = stage;
+        initStats(); // before the engine, which may start recording rallies on the simulation thread
+        initEngine();
+        metrics.setSoundPlays(sounds::getPlays);
+//        stage.setWidth(WIDTH);
+//        stage.setHeight(HEIGHT);
+        stage.setTitle("Pong");
+        stage.setResizable(false);
+        stage.show();
+        stage.centerOnScreen();
+        stage.getScene().setOnKeyPressed(this::keyPressed);
+        stage.getScene().setOnKeyReleased(this::keyReleased);
+        stage.setOnCloseRequest(evt -> {
+            closeSimulation();
+            closeRecorder();
+            closeSession();
+            closeBroadcast();
+            closeStats();
+            closeScheduler();
+        });
+        initLayers();
+
+        clock = new FixedStepClock(rateInMs, 250 / rateInMs); // never simulate more than 250 ms in one frame
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frame(now);
+            }
+        };
+        timer.start();
+        if(Boolean.parseBoolean(System.getProperty("pong.idle", "true"))) {
+            scheduler = new IdleScheduler(idleHold, this::wakeIdle);
+            stage.focusedProperty().addListener((obs, was, is) -> reschedule(System.nanoTime()));
+            stage.iconifiedProperty().addListener((obs, was, is) -> reschedule(System.nanoTime()));
+            stage.showingProperty().addListener((obs, was, is) -> reschedule(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Create the engine: online, watched, replayed from a log or seeded (and optionally recorded, broadcast),
+     * falling through to the next on error
+     */
+    private void initEngine() {
+        String replayPath = System.getProperty("pong.replay"), recordPath = System.getProperty("pong.record");
+        String net = System.getProperty("pong.net"), watch = System.getProperty("pong.watch");
+        Integer broadcastPort = Integer.getInteger("pong.broadcast");
+        if(broadcastPort != null) {
+            try {
+                broadcast = SpectatorServer.open(broadcastPort);
+            } catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if(net != null) {
+            try {
+                String[] parts = net.split(":");
+                engine = new PongEngine(rateInMs, new RewindableRandom(Long.getLong("pong.seed", 0))); // both sides need the same seed
+                session = NetSession.open(engine, parts[0].equals("left"), Integer.parseInt(parts[1]),
+                        new InetSocketAddress(parts[2], Integer.parseInt(parts[3])));
+                session.setListener(this);
+                session.setProbe(metrics);
+                return;
+            } catch(IOException | RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if(watch != null) {
+            try {
+                String[] parts = watch.split(":");
+                spectator = SpectatorClient.open(new InetSocketAddress(parts[0], Integer.parseInt(parts[1])));
+                engine = new PongEngine(rateInMs, new Random(seed));
+                return;
+            } catch(IOException | RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if(replayPath != null) {
+            try {
+                replay = Replay.open(Paths.get(replayPath));
+                rateInMs = replay.getRateInMs();
+                replay.setListener(this);
+                replay.setProbe(metrics);
+                engine = replay.getEngine();
+                return;
+            } catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        engine = new PongEngine(rateInMs, new Random(seed));
+        engine.setListener(this);
+        engine.setProbe(metrics);
+        if(recordPath != null) {
+            try {
+                recorder = new InputRecorder(Paths.get(recordPath), seed, rateInMs);
+            } catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if(Boolean.getBoolean("pong.simThread")) {
+            InputRecorder log = recorder;
+            engine.setProbe(null); // the metrics are the FX thread's
+            simulation = new SimulationLoop(engine, input, this, log == null ? null : (command, tick) -> log.record(tick, command),
+                    250 / rateInMs);
+            engine = new PongEngine(rateInMs, new Random(seed)); // never ticked; shows the snapshots
+        }
+    }
+
+    /**
+     * Open the rally store, if one was asked for
+     */
+    private void initStats() {
+        String statsPath = System.getProperty("pong.stats");
+        if(statsPath == null) {
+            return;
+        }
+        try {
+            stats = RallyStore.open(Paths.get(statsPath));
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void initSounds() {
+        try {
+            sounds.load();
+        } catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Load what the first frame doesn't need: decoding the sounds and the icon and starting up JMX
+     * and Flight Recorder take longer than everything before the first frame put together
+     */
+    private void afterFirstFrame() {
+        initSounds();
+        stage.getIcons().add(new Image(this.getClass().getClassLoader().getResourceAsStream("icon.png")));
+        metrics.enableEvents();
+        metrics.register();
+        System.out.println(Startup.summary());
+    }
+
+    /**
+     * Run every physics step that is due, then draw once, interpolated between the last two steps
+     *
+     * @param now the frame timestamp in nanoseconds
+     */
+    private void frame(long now) {
+        if(frames == 1) {
+            afterFirstFrame(); // the first frame has been shown by now
+        } else if(exitAfterFrames > 0 && frames == exitAfterFrames) {
+            quit();
+            return;
+        }
+        long frameStart = System.nanoTime();
+        int steps = clock.advance(now);
+        double shownAlpha = clock.getAlpha();
+        long shownTick = tickIndex;
+        if(spectator != null) {
+            watch();
+            steps = 0;
+        } else if(simulation != null) {
+            FrameSnapshot snapshot = showSimulation();
+            shownAlpha = Math.max(0, Math.min(1, (now - snapshot.getTime()) / (double) clock.getStepNanos()));
+            shownTick = snapshot.getTickIndex();
+            steps = 0;
+        } else if(replaySpeed == 1) {
+            pacing.ticksRun(steps, (long) (clock.getAlpha() * clock.getStepNanos()), clock.getStepNanos());
+        }
+        for(int i = 0; i < steps * replaySpeed; i++) {
+            if(chaos != null) {
+                runChaos();
+            } else {
+                run();
+            }
+        }
+        if(simulation == null) {
+            shownTick = tickIndex;
+        }
+        if(scheduler == null || scheduler.getPace() == Pace.FULL) {
+            pacing.frame(now, shownTick, !engine.isPaused() && spectator == null);
+        } else {
+            pacing.restart(); // idle frames are slow on purpose
+        }
+        alpha = engine.isPaused() || spectator != null? 1 : shownAlpha;
+        long start = System.nanoTime();
+        if(scheduler == null || scheduler.getPace().renders()) {
+            screen.resetDrawCalls();
+            layer.resetDrawCalls();
+            if(chaos != null) {
+                drawChaos();
+            } else if(cachedRendering) {
+                drawCached();
+            } else {
+                draw();
+            }
+            drawCalls = screen.getDrawCalls() + layer.getDrawCalls();
+            inputLatencyCheck();
+        }
+        long end = System.nanoTime();
+        metrics.record(Phase.DRAW, end - start);
+        if(session != null) {
+            session.flush();
+        }
+        if(broadcast != null) {
+            broadcast.publish(engine);
+        }
+        metrics.frameDone(now, end - frameStart, steps, clock.getLastDropped());
+        if(frames++ == 0) {
+            Startup.markFirstFrame();
+        }
+        if(scheduler != null) {
+            scheduler.frameDone(System.nanoTime());
+            reschedule(System.nanoTime());
+        }
+    }
+
+    /**
+     * Show the newest tick from the simulation thread, play the sounds for what happened since the
+     * last frame and pick up a paddle key that has just taken effect
+     *
+     * @return the snapshot shown
+     */
+    private FrameSnapshot showSimulation() {
+        FrameSnapshot snapshot = simulation.latest();
+        engine.show(snapshot);
+        if(snapshot.getWallHits() != shownWallHits || snapshot.getPaddleHits() != shownPaddleHits) {
+            sounds.play(Sound.BLIP);
+        }
+        if(snapshot.getLeftScores() != shownLeftScores) {
+            sounds.play(Sound.OPPONENT_SCORE);
+        }
+        if(snapshot.getRightScores() != shownRightScores) {
+            sounds.play(Sound.SCORE);
+        }
+        shownWallHits = snapshot.getWallHits();
+        shownPaddleHits = snapshot.getPaddleHits();
+        shownLeftScores = snapshot.getLeftScores();
+        shownRightScores = snapshot.getRightScores();
+        if(snapshot.getInputTime() != shownInputTime) {
+            shownInputTime = snapshot.getInputTime();
+            if(pendingInput < 0) {
+                pendingInput = shownInputTime;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Run a frame for the idle scheduler; called on its thread, so hand it to the FX thread,
+     * unless the last one hasn't run yet
+     */
+    private void wakeIdle() {
+        if(!idleFramePending) {
+            idleFramePending = true;
+            Platform.runLater(this::idleFrame);
+        }
+    }
+
+    private void idleFrame() {
+        idleFramePending = false;
+        if(scheduler != null && scheduler.getPace() != Pace.FULL) { // else the AnimationTimer has taken over
+            frame(System.nanoTime());
+        }
+    }
+
+    /**
+     * Pick the pace for what is on screen, and hand the frames between the AnimationTimer and the
+     * idle scheduler when it changes. The clock keeps running either way, so no ticks are lost.
+     *
+     * @param now the current time in nanoseconds
+     */
+    private void reschedule(long now) {
+        if(scheduler == null) {
+            return;
+        }
+        Pace before = scheduler.getPace();
+        boolean visible = stage.isShowing() && !stage.isIconified() && stage.isFocused();
+        Pace next = scheduler.update(now, visible, engine.isLobbyMode() && chaos == null, engine.isPaused() && chaos == null,
+                session != null || broadcast != null || spectator != null);
+        if(next == Pace.FULL && before != Pace.FULL) {
+            timer.start();
+        } else if(next != Pace.FULL && before == Pace.FULL) {
+            timer.stop();
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        if(replay != null) {
+            while(!input.isEmpty()) { // the recording drives the engine
+                input.remove();
+            }
+            replay.step();
+        } else {
+            if(lookahead != null) {
+                Command command = lookahead.decide(engine);
+                if(command != null) {
+                    input.offer(command, System.nanoTime());
+                }
+            }
+            applyInput();
+            metrics.record(Phase.INPUT, System.nanoTime() - start);
+            if(session != null) {
+                session.tick();
+            } else {
+                engine.tick();
+            }
+            tickIndex++;
+            if(recorder != null) {
+                recorder.setTotalTicks(tickIndex);
+            }
+        }
+        if(!engine.isPaused()) {
+            metrics.tickDone();
+        }
+//        diagnostics();
+    }
+
+    /**
+     * Hand the left paddle to the lookahead bot, taking it from the smart bot, or take it back;
+     * not while replaying, playing online or watching
+     */
+    private void toggleLookahead() {
+        long now = System.nanoTime();
+        if(lookahead != null) {
+            if(simulation != null) {
+                simulation.setLookahead(null); // waits until the simulation thread is out of decide()
+            }
+            System.out.println(lookahead.summary());
+            lookahead = null;
+            input.offer(Command.LEFT_STOP, now);
+        } else if(replay == null && session == null && spectator == null) {
+            lookahead = new LookaheadBot(rateInMs, lookaheadBudget, new Random(seed));
+            input.offer(Command.SMART_BOT_OFF, now); // decided where the engine is ticked, after any B still queued
+            if(simulation != null) {
+                simulation.setLookahead(lookahead); // it searches on the simulation thread, against the real engine
+            }
+        }
+    }
+
+    /**
+     * Step chaos mode; only the paddle and bot keys reach it
+     */
+    private void runChaos() {
+        while(!input.isEmpty()) {
+            chaos.apply(input.peekCommand());
+            input.remove();
+        }
+        chaos.tick();
+    }
+
+    /**
+     * Turn chaos mode on or off; not while the engine is driven by a replay, a peer, a broadcast
+     * or the simulation thread
+     */
+    private void toggleChaos() {
+        if(chaos != null) {
+            chaos = null;
+            layerKey = -1;
+        } else if(replay == null && session == null && spectator == null && simulation == null) {
+            chaos = new ChaosEngine(chaosBalls, rateInMs, new Random(seed));
+            if(chaosFrame == null) {
+                chaosFrame = new RasterSurface((int) WIDTH, (int) HEIGHT);
+                chaosImage = new WritableImage((int) WIDTH, (int) HEIGHT);
+            }
+        }
+    }
+
+    /**
+     * Restart chaos mode with a different number of balls
+     *
+     * @param balls the new ball count
+     */
+    private void resizeChaos(int balls) {
+        chaosBalls = Math.max(1, Math.min(100_000, balls));
+        if(chaos != null) {
+            chaos = new ChaosEngine(chaosBalls, rateInMs, new Random(seed));
+        }
+    }
+
+    /**
+     * Show the newest frame from the game being watched; local input only drives the view keys
+     */
+    private void watch() {
+        while(!input.isEmpty()) {
+            input.remove();
+        }
+        if(!spectator.getChannel().isOpen()) {
+            return; // the stream ended; keep showing its last frame
+        }
+        try {
+            spectator.poll(engine);
+        } catch(IOException ex) {
+            System.out.println("spectator stream ended after " + spectator.getFrames() + " frames");
+            try {
+                spectator.close();
+            } catch(IOException closeEx) {
+                closeEx.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Apply every queued key event to the engine, oldest first, at the tick boundary
+     */
+    private void applyInput() {
+        while(!input.isEmpty()) {
+            Command command = input.peekCommand();
+            long time = input.peekTime();
+            input.remove();
+            double padLYV = engine.getPadLYV(), padRYV = engine.getPadRYV();
+            if(recorder != null) {
+                recorder.record(tickIndex, command);
+            }
+            if(session != null) {
+                session.local(command); // applied now, rolled back into place if the other side acted earlier
+            } else {
+                engine.apply(command);
+            }
+            if(command.isPaddleMove()) {
+                boolean moved = (engine.getPadLYV() != padLYV && engine.getPadLYV() != 0) ||
+                                (engine.getPadRYV() != padRYV && engine.getPadRYV() != 0);
+                if(moved && pendingInput < 0) {
+                    pendingInput = time;
+                } else if(!moved) {
+                    pendingInput = -1; // stopped (or ignored by a bot) before it showed up on screen
+                }
+            }
+        }
+    }
+
+    /**
+     * Record input-to-photon latency once a frame shows a paddle moving after a key event
+     */
+    private void inputLatencyCheck() {
+        double padLY = engine.getPadLY(alpha), padRY = engine.getPadRY(alpha);
+        if(pendingInput >= 0 && (padLY != drawnPadLY || padRY != drawnPadRY)) {
+            inputLatency.record(System.nanoTime() - pendingInput);
+            pendingInput = -1;
+        }
+        drawnPadLY = padLY;
+        drawnPadRY = padRY;
+    }
+
+    private void keyPressed(KeyEvent evt) {
+        long now = System.nanoTime();
+        if(scheduler != null) {
+            scheduler.input(now);
+            reschedule(now); // back to full pace before the key is even handled
+        }
+        switch(evt.getCode()) {
+            case W:
+                input.offer(Command.LEFT_UP, now);
+                break;
+            case S:
+                input.offer(Command.LEFT_DOWN, now);
+                break;
+            case UP:
+                input.offer(Command.RIGHT_UP, now);
+                break;
+            case DOWN:
+                input.offer(Command.RIGHT_DOWN, now);
+                break;
+            case SPACE:
+                input.offer(Command.START_OR_PAUSE, now);
+                break;
+            case ESCAPE:
+                quit();
+                break;
+            case B:
+                input.offer(Command.TOGGLE_SMART_BOT, now);
+                break;
+            case N:
+                input.offer(Command.TOGGLE_DUMB_BOT, now);
+                break;
+            case R:
+                input.offer(Command.RESET_BALL, now);
+                break;
+            case ENTER:
+                input.offer(Command.RESET_GAME, now);
+                break;
+            case D:
+                dot = engine.isBotActive();
+                break;
+            case I:
+                indicators = !indicators;
+                break;
+            case O:
+                overlay = !overlay;
+                break;
+            case M:
+                sounds.toggleMute();
+                break;
+            case C:
+                cachedRendering = !cachedRendering;
+                layerKey = -1; // repaint everything on the next cached frame
+                break;
+            case LEFT:
+                seek(-seekSeconds);
+                break;
+            case RIGHT:
+                seek(seekSeconds);
+                break;
+            case F:
+                replaySpeed = replaySpeed == 1 ? 8 : 1;
+                break;
+            case L:
+                toggleLookahead();
+                break;
+            case X:
+                toggleChaos();
+                break;
+            case MINUS:
+                resizeChaos(chaosBalls / 2);
+                break;
+            case EQUALS:
+                resizeChaos(chaosBalls * 2);
+                break;
+
+        }
+    }
+
+    /**
+     * Print the measurements, finish whatever is being written or streamed and close the window
+     */
+    private void quit() {
+        closeSimulation();
+        System.out.println("input-to-photon latency: " + inputLatency);
+        System.out.println(pacing.summary());
+        System.out.println(metrics.summary());
+        System.out.println("draw calls last frame: " + drawCalls);
+        if(lookahead != null) {
+            System.out.println(lookahead.summary());
+        }
+        if(chaos != null) {
+            System.out.println(chaos.summary());
+        }
+        closeRecorder();
+        closeSession();
+        closeBroadcast();
+        closeStats();
+        closeScheduler();
+        timer.stop();
+        stage.close();
+    }
+
+    /**
+     * Jump through the replay; does nothing when not replaying
+     *
+     * @param seconds how far, negative to go back
+     */
+    private void seek(int seconds) {
+        if(replay == null) {
+            return;
+        }
+        replay.seek(replay.getTick() + seconds * 1000L / rateInMs);
+        engine = replay.getEngine();
+        layerKey = -1;
+    }
+
+    /**
+     * Stop the simulation thread and print its tick jitter, if the game runs on one; the engine's
+     * step count becomes the one the input log is closed with
+     */
+    private void closeSimulation() {
+        if(simulation == null) {
+            return;
+        }
+        simulation.stop();
+        System.out.println(simulation.summary());
+        tickIndex = simulation.getTickIndex();
+        simulation = null;
+    }
+
+    /**
+     * Finish the input log, if one is being written
+     */
+    private void closeRecorder() {
+        if(recorder == null) {
+            return;
+        }
+        try {
+            recorder.setTotalTicks(tickIndex);
+            recorder.close();
+            System.out.println("recorded " + tickIndex + " ticks, seed " + seed);
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+        recorder = null;
+    }
+
+    /**
+     * Print the netcode measurements and close the socket, if playing online
+     */
+    private void closeSession() {
+        if(session == null) {
+            return;
+        }
+        System.out.println(session.summary());
+        try {
+            session.close();
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+        session = null;
+    }
+
+    /**
+     * Print the broadcast measurements and disconnect the spectators, or stop watching
+     */
+    private void closeBroadcast() {
+        try {
+            if(broadcast != null) {
+                System.out.println(broadcast.summary());
+                broadcast.close();
+                broadcast = null;
+            }
+            if(spectator != null) {
+                spectator.close();
+                spectator = null;
+            }
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Print the store's size and write out the last rallies, if rallies are being stored
+     */
+    private void closeStats() {
+        if(stats == null) {
+            return;
+        }
+        try {
+            stats.close();
+            System.out.println(stats.summary());
+        } catch(IOException ex) {
+            ex.printStackTrace();
+        }
+        stats = null;
+    }
+
+    /**
+     * Print the time and CPU spent at each pace and stop the idle scheduler's thread
+     */
+    private void closeScheduler() {
+        if(scheduler == null) {
+            return;
+        }
+        System.out.println(scheduler.summary());
+        scheduler.close();
+        scheduler = null;
+    }
+
+    private void keyReleased(KeyEvent evt) {
+        long now = System.nanoTime();
+        switch(evt.getCode()) {
+            case W:
+            case S:
+                input.offer(Command.LEFT_STOP, now);
+                break;
+            case UP:
+            case DOWN:
+                input.offer(Command.RIGHT_STOP, now);
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void wallHit() {
+        sounds.play(Sound.BLIP);
+    }
+
+    @Override
+    public void paddleHit() {
+        sounds.play(Sound.BLIP);
+    }
+
+    @Override
+    public void leftScored() {
+        sounds.play(Sound.OPPONENT_SCORE);
+    }
+
+    @Override
+    public void rightScored() {
+        sounds.play(Sound.SCORE);
+    }
+
+    @Override
+    public void rallyEnded(long ticks, int hits, double maxSpeed, int serveDirection, boolean leftWon, boolean smartBot, boolean dumbBot) {
+        if(stats != null && replay == null && session == null) {
+            stats.rallyEnded(ticks, hits, maxSpeed, serveDirection, leftWon, smartBot, dumbBot);
+        }
+    }
+
+    private void draw() {
+        dirtyCount = 0;
+        painter.resetBoard(screen);
+        painter.drawScore(screen, engine.getPlayerLScore(), engine.getPlayerRScore());
+        painter.drawSplit(screen);
+        drawBall(screen);
+        if(!engine.isLobbyMode()) {
+            drawPaddles(screen);
+            if(indicators) {painter.drawIndicators(screen, engine.isBotActive(), engine.isOldBot());}
+        }
+        if(dot) {drawDot(screen);} // used to visually see where the bot predicts the ball to go
+        if(overlay) {drawOverlay(screen);}
+    }
+
+    /**
+     * Pre-render the unchanging parts of the board: background, net and the digit glyphs
+     */
+    private void initLayers() {
+        SnapshotParameters params = new SnapshotParameters();
+        screen = new CanvasSurface(canvas.getGraphicsContext2D());
+        layerCanvas = new Canvas(WIDTH, HEIGHT);
+        layer = new CanvasSurface(layerCanvas.getGraphicsContext2D());
+        painter.resetBoard(layer);
+        painter.drawSplit(layer);
+        boardLayer = layerCanvas.snapshot(params, null);
+
+        Canvas glyphCanvas = new Canvas(painter.getTextWidth(), painter.getTextHeight());
+        CanvasSurface glyphSurface = new CanvasSurface(glyphCanvas.getGraphicsContext2D());
+        for(int i = 0; i < glyphs.length; i++) {
+            painter.drawNumber(glyphSurface, 0, 0, i);
+            glyphs[i] = glyphCanvas.snapshot(params, null);
+        }
+        layer.setGlyphs(glyphs);
+    }
+
+    /**
+     * Draw a frame by restoring the regions under last frame's ball, paddles and dot from the
+     * static layer and drawing them at their new positions. The static layer (board, scores,
+     * indicators) is only re-rasterized when one of those changes.
+     */
+    private void drawCached() {
+        int key = staticLayerKey();
+        if(key != layerKey) {
+            layerKey = key;
+            renderStaticLayer();
+            screen.drawImage(staticLayer, 0, 0, WIDTH, HEIGHT);
+        } else {
+            for(int i = 0; i < dirtyCount; i++) {
+                // pad by a pixel and snap outwards so antialiased edges don't leave ghosts
+                double x = Math.max(0, Math.floor(dirty[i*4] - 1)), y = Math.max(0, Math.floor(dirty[i*4 + 1] - 1));
+                double w = Math.min(WIDTH, Math.ceil(dirty[i*4] + dirty[i*4 + 2] + 1)) - x;
+                double h = Math.min(HEIGHT, Math.ceil(dirty[i*4 + 1] + dirty[i*4 + 3] + 1)) - y;
+                if(w > 0 && h > 0) {
+                    screen.drawImage(staticLayer, x, y, w, h);
+                }
+            }
+        }
+        dirtyCount = 0;
+        drawBall(screen);
+        if(!engine.isLobbyMode()) {
+            drawPaddles(screen);
+        }
+        if(dot) {drawDot(screen);}
+        if(overlay) {drawOverlay(screen);}
+    }
+
+    /**
+     * Draw a chaos mode frame: the balls are too many to draw as canvas calls, so the whole board
+     * is rasterized off screen and copied to the canvas as one image
+     */
+    private void drawChaos() {
+        painter.drawChaos(chaosFrame, chaos);
+        chaosImage.getPixelWriter().setPixels(0, 0, (int) WIDTH, (int) HEIGHT, PixelFormat.getIntArgbInstance(),
+                chaosFrame.getPixels(), 0, (int) WIDTH);
+        screen.drawImage(chaosImage, 0, 0, WIDTH, HEIGHT);
+        dirtyCount = 0;
+        if(overlay) {drawOverlay(screen);}
+    }
+
+    private int staticLayerKey() {
+        int flags = (engine.isLobbyMode()? 1 : 0) | (indicators? 2 : 0) | (engine.isBotActive()? 4 : 0) | (engine.isOldBot()? 8 : 0);
+        return (engine.getPlayerLScore() << 20) | (engine.getPlayerRScore() << 8) | flags;
+    }
+
+    private void renderStaticLayer() {
+        layer.drawImage(boardLayer, 0, 0, WIDTH, HEIGHT);
+        painter.drawScore(layer, engine.getPlayerLScore(), engine.getPlayerRScore());
+        if(!engine.isLobbyMode() && indicators) {
+            painter.drawIndicators(layer, engine.isBotActive(), engine.isOldBot());
+        }
+        staticLayer = layerCanvas.snapshot(new SnapshotParameters(), staticLayer);
+    }
+
+    private void markDirty(double x, double y, double w, double h) {
+        dirty[dirtyCount*4] = x;
+        dirty[dirtyCount*4 + 1] = y;
+        dirty[dirtyCount*4 + 2] = w;
+        dirty[dirtyCount*4 + 3] = h;
+        dirtyCount++;
+    }
+
+    private void drawBall(Surface s) {
+        double ballX = engine.getBallX(alpha), ballY = engine.getBallY(alpha);
+        double ballW = engine.getBallW(), ballH = engine.getBallH();
+        int stroke = painter.getBallStroke();
+        painter.drawBall(s, ballX, ballY, ballW, ballH);
+        markDirty(ballX-stroke, ballY-stroke, ballW+(stroke*2), ballH+(stroke*2));
+    }
+
+    private void drawPaddles(Surface s) {
+        painter.drawPaddle(s, engine.getPadLX(), engine.getPadLY(alpha), engine.getPadW(), engine.getPadH());
+        markDirty(engine.getPadLX(), engine.getPadLY(alpha), engine.getPadW(), engine.getPadH());
+        painter.drawPaddle(s, engine.getPadRX(), engine.getPadRY(alpha), engine.getPadW(), engine.getPadH());
+        markDirty(engine.getPadRX(), engine.getPadRY(alpha), engine.getPadW(), engine.getPadH());
+    }
+
+    private void drawDot(Surface s) {
+        double x = engine.getBotX(), y = engine.getBotY();
+        double b = painter.getDotBorder() + 1; // dot half-size + border
+        painter.drawDot(s, x, y);
+        markDirty(x-b, y-b, b*2, b*2);
+    }
+
+    /**
+     * Draw the live tick/frame percentiles in the bottom left corner (refreshed four times a second)
+     */
+    private void drawOverlay(CanvasSurface s) {
+        long now = System.nanoTime();
+        if(now - overlayUpdated > 250_000_000L) {
+            overlayText = chaos != null ? chaos.summary() + "\n" + metrics.summary() :
+                    simulation != null ? simulation.summary() + "\n" + metrics.summary() : metrics.summary();
+            overlayUpdated = now;
+        }
+        s.setFill(BoardPainter.BACKGROUND);
+        s.fillRect(overlayX, overlayY, overlayW, overlayH);
+        s.setFill(BoardPainter.GAME_COLOR);
+        s.fillText(overlayText, overlayX + 4, overlayY + 14);
+        markDirty(overlayX, overlayY, overlayW, overlayH);
+    }
+
+    private void diagnostics() {
+        System.out.println(
+                "LY: " + engine.getPadLY() + " RY: " + engine.getPadRY() + "\n" +
+                        "BX: " + engine.getBallX() + " BY: " + engine.getBallY() + "\n" +
+                        "XV: " + engine.getBallXV() + " YV: " + engine.getBallYV() + "\n"
+        );
+    }
+
+}